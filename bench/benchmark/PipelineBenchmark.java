@@ -0,0 +1,217 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import main.algorithm.DocumentFrequencyTable;
+import main.algorithm.IntIntCounter;
+import main.algorithm.ModelPool;
+import main.algorithm.ModelRegistry;
+import main.algorithm.NLPHelper;
+import main.algorithm.SentimentAggregator;
+import main.algorithm.TfIdfTopicScorer;
+import main.algorithm.Vocabulary;
+import main.model.AspectSentiment;
+import main.model.Dataset;
+import main.model.Review;
+import main.model.ReviewReader;
+import main.model.ReviewResult;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizer;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.postag.POSTaggerME;
+
+/**
+ * Benchmarks of every stage of the YelpNLP pipeline over synthetic corpora of
+ * several sizes. Each benchmark processes the whole corpus once, so scores are
+ * the time per corpus pass.
+ *
+ * @author vbala
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PipelineBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int reviewCount;
+
+	private File directory;
+	private File reviewsFile;
+	private NLPHelper nlpHelper;
+
+	private String[] rawTexts;
+	private List<Review> rawReviews;
+	private DoccatModel model;
+	private String posModelPath;
+	private Map<Integer, Review> reviews;
+	private String[][] tokens;
+	private DocumentCategorizer categorizer;
+	private POSTaggerME tagger;
+
+	private List<Review> reviewNounsList;
+	private Map<String, Integer> wordFrequencyMap;
+	private Vocabulary vocabulary;
+	private IntIntCounter termFrequencies;
+	private Map<Review, String> reviewToTopicMap;
+	private Map<Review, Integer> scores;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("yelpnlp-bench").toFile();
+		reviewsFile = SyntheticCorpus.writeReviews(directory, reviewCount);
+		File trainingFile = SyntheticCorpus.writeTrainingFile(directory, 1000);
+		File posModelFile = SyntheticCorpus.writePOSModel(directory);
+		nlpHelper = new NLPHelper(new ModelRegistry(new File(directory, "registry")));
+
+		List<String> texts = new ArrayList<String>();
+		rawReviews = new ArrayList<Review>();
+		try (ReviewReader reader = new ReviewReader(reviewsFile.getPath(), false)) {
+			reader.forEachRemaining(review -> {
+				texts.add(review.text);
+				rawReviews.add(review);
+			});
+		}
+		rawTexts = texts.toArray(new String[texts.size()]);
+
+		reviews = new Dataset().readJSON(reviewsFile.getPath());
+		tokens = new String[reviews.size()][];
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] = nlpHelper.getTokens(reviews.get(i));
+		}
+
+		model = nlpHelper.trainDoccatModel(trainingFile.getPath());
+		categorizer = new DocumentCategorizerME(model);
+		posModelPath = posModelFile.getPath();
+		tagger = ModelPool.getInstance().getPOSTagger(posModelPath);
+
+		// Inputs of the topic stages, computed on a copy since tagging replaces the text
+		scores = nlpHelper.testTextClassificationModel(categorizer, reviews);
+		Map<Integer, Review> copies = new HashMap<Integer, Review>();
+		Map<Review, Integer> copyScores = new HashMap<Review, Integer>();
+		for (Map.Entry<Integer, Review> entry : reviews.entrySet()) {
+			Review review = entry.getValue();
+			Review copy = new Review(review.id, review.text, review.stars, review.businessId);
+			copies.put(entry.getKey(), copy);
+			copyScores.put(copy, scores.get(review));
+		}
+		scores = copyScores;
+		reviewNounsList = nlpHelper.tagNounsInReviewList(copies, posModelFile.getPath());
+		wordFrequencyMap = nlpHelper.computeWordFrequencyMatrix(reviewNounsList);
+		reviewToTopicMap = nlpHelper.runTopicCategorization(reviewNounsList, wordFrequencyMap);
+		vocabulary = new Vocabulary();
+		termFrequencies = nlpHelper.computeTermFrequencies(reviewNounsList, vocabulary);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Benchmark
+	public void cleanText(Blackhole blackhole) {
+		for (String text : rawTexts) {
+			blackhole.consume(Dataset.cleanText(text));
+		}
+	}
+
+	@Benchmark
+	public Map<Integer, Review> readJSON() throws IOException {
+		return new Dataset().readJSON(reviewsFile.getPath());
+	}
+
+	@Benchmark
+	public void getTokens(Blackhole blackhole) {
+		for (Review review : reviews.values()) {
+			blackhole.consume(nlpHelper.getTokens(review));
+		}
+	}
+
+	@Benchmark
+	public void categorize(Blackhole blackhole) {
+		for (String[] reviewTokens : tokens) {
+			blackhole.consume(categorizer.categorize(reviewTokens));
+		}
+	}
+
+	@Benchmark
+	public void posTag(Blackhole blackhole) {
+		for (String[] reviewTokens : tokens) {
+			blackhole.consume(tagger.tag(reviewTokens));
+		}
+	}
+
+	@Benchmark
+	public Map<String, Integer> computeWordFrequencyMatrix() {
+		return nlpHelper.computeWordFrequencyMatrix(reviewNounsList);
+	}
+
+	@Benchmark
+	public Map<Review, String> runTopicCategorization() {
+		return nlpHelper.runTopicCategorization(reviewNounsList, wordFrequencyMap);
+	}
+
+	/**
+	 * Same counts as {@link #computeWordFrequencyMatrix()}, keyed by interned
+	 * term IDs
+	 */
+	@Benchmark
+	public IntIntCounter computeTermFrequencies() {
+		return nlpHelper.computeTermFrequencies(reviewNounsList, new Vocabulary());
+	}
+
+	/**
+	 * Same topics as {@link #runTopicCategorization()}, selected by term ID
+	 */
+	@Benchmark
+	public Map<Review, String> runTopicCategorizationByTermId() {
+		return nlpHelper.runTopicCategorization(reviewNounsList, vocabulary, termFrequencies);
+	}
+
+	@Benchmark
+	public List<ReviewResult> summarizeResults() {
+		return nlpHelper.summarizeResults(reviewToTopicMap, scores);
+	}
+
+	/**
+	 * Sentence split, scoring, tagging and roll-up of the raw reviews, with the
+	 * sentence model shipped in models/, so run from the project directory
+	 */
+	@Benchmark
+	public List<AspectSentiment> runSentenceSentiment() throws IOException {
+		return nlpHelper.runSentenceSentiment(model, rawReviews, posModelPath,
+				new TfIdfTopicScorer(new DocumentFrequencyTable()), Runtime.getRuntime().availableProcessors(),
+				new SentimentAggregator());
+	}
+
+}
@@ -0,0 +1,165 @@
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSSample;
+import opennlp.tools.postag.POSTaggerFactory;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Deterministic synthetic review corpora for the benchmarks. The same size
+ * always produces the same reviews, so results are comparable between runs
+ * without shipping the Yelp dataset.
+ *
+ * @author vbala
+ *
+ */
+public class SyntheticCorpus {
+
+	private static final String[] NOUNS = { "food", "service", "staff", "atmosphere", "vibe", "pizza", "burger",
+			"sushi", "waiter", "table", "price", "menu", "drinks", "dessert", "patio", "parking", "music", "portion",
+			"manager", "bartender" };
+	private static final String[] POSITIVE = { "great", "amazing", "delicious", "friendly", "excellent", "tasty",
+			"fresh", "perfect", "lovely", "attentive" };
+	private static final String[] NEGATIVE = { "terrible", "awful", "rude", "slow", "cold", "bland", "dirty",
+			"overpriced", "greasy", "noisy" };
+	private static final String[] NEUTRAL = { "okay", "average", "fine", "decent", "ordinary" };
+
+	private static final long SEED = 20190401L;
+
+	private SyntheticCorpus() {
+	}
+
+	/**
+	 * Write size reviews in the newline-delimited format of the Yelp review dump.
+	 *
+	 * @param directory directory to write the file in
+	 * @param size      number of reviews
+	 * @return the review file
+	 * @throws IOException
+	 */
+	public static File writeReviews(File directory, int size) throws IOException {
+		File file = new File(directory, "review_" + size + ".json");
+		Random random = new Random(SEED + size);
+		JsonFactory factory = new JsonFactory();
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			for (int i = 0; i < size; i++) {
+				int stars = 1 + random.nextInt(5);
+				JsonGenerator generator = factory.createGenerator(out);
+				generator.writeStartObject();
+				generator.writeStringField("review_id", "review-" + size + "-" + i);
+				generator.writeStringField("user_id", "user-" + random.nextInt(size));
+				generator.writeStringField("business_id", "business-" + random.nextInt(Math.max(1, size / 10)));
+				generator.writeNumberField("stars", (double) stars);
+				generator.writeNumberField("useful", random.nextInt(10));
+				generator.writeStringField("text", text(random, stars));
+				generator.writeStringField("date", "2018-0" + (1 + random.nextInt(9)) + "-15 12:00:00");
+				generator.writeEndObject();
+				generator.flush();
+				out.write('\n');
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Write size training records in the doccat format, "stars text" per line.
+	 *
+	 * @param directory directory to write the file in
+	 * @param size      number of records
+	 * @return the training file
+	 * @throws IOException
+	 */
+	public static File writeTrainingFile(File directory, int size) throws IOException {
+		File file = new File(directory, "review_train_" + size + ".txt");
+		Random random = new Random(SEED - size);
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (int i = 0; i < size; i++) {
+				int stars = 1 + random.nextInt(5);
+				writer.write(stars + " " + text(random, stars).replaceAll("[^a-zA-Z ]", " "));
+				writer.newLine();
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Train a small parts-of-speech model on the synthetic sentence templates, so
+	 * tagging can be benchmarked without the OpenNLP model download.
+	 *
+	 * @param directory directory to write the model in
+	 * @return the model file
+	 * @throws IOException
+	 */
+	public static File writePOSModel(File directory) throws IOException {
+		Random random = new Random(SEED);
+		List<POSSample> samples = new ArrayList<POSSample>();
+		for (int i = 0; i < 2000; i++) {
+			String noun = pick(random, NOUNS);
+			String adjective = pick(random, random.nextBoolean() ? POSITIVE : NEGATIVE);
+			samples.add(new POSSample(new String[] { "The", noun, "was", adjective },
+					new String[] { "DT", "NN", "VBD", "JJ" }));
+			samples.add(new POSSample(new String[] { "We", "loved", "the", adjective, noun },
+					new String[] { "PRP", "VBD", "DT", "JJ", "NN" }));
+		}
+
+		TrainingParameters params = TrainingParameters.defaultParams();
+		params.put(TrainingParameters.CUTOFF_PARAM, 0);
+		params.put("PrintMessages", false);
+		POSModel model = POSTaggerME.train("en", ObjectStreamUtils.createObjectStream(samples), params,
+				new POSTaggerFactory());
+
+		File file = new File(directory, "en-pos-synthetic.bin");
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			model.serialize(out);
+		}
+		return file;
+	}
+
+	private static String text(Random random, int stars) {
+		String[] adjectives = stars >= 4 ? POSITIVE : stars <= 2 ? NEGATIVE : NEUTRAL;
+		StringBuilder sb = new StringBuilder();
+		int sentences = 2 + random.nextInt(6);
+		for (int s = 0; s < sentences; s++) {
+			switch (random.nextInt(4)) {
+			case 0:
+				sb.append("The ").append(pick(random, NOUNS)).append(" was ").append(pick(random, adjectives))
+						.append('.');
+				break;
+			case 1:
+				sb.append("We loved the ").append(pick(random, adjectives)).append(' ').append(pick(random, NOUNS))
+						.append('!');
+				break;
+			case 2:
+				sb.append("Paid $").append(5 + random.nextInt(60)).append(" for the ").append(pick(random, NOUNS))
+						.append(", ").append(pick(random, adjectives)).append(" overall.");
+				break;
+			default:
+				sb.append("Our ").append(pick(random, NOUNS)).append(" and ").append(pick(random, NOUNS))
+						.append(" were ").append(pick(random, adjectives)).append("...\n");
+				break;
+			}
+			sb.append(' ');
+		}
+		return sb.toString().trim();
+	}
+
+	private static String pick(Random random, String[] words) {
+		return words[random.nextInt(words.length)];
+	}
+
+}
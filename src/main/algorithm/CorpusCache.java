@@ -0,0 +1,135 @@
+package main.algorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import main.model.PreprocessedCorpus;
+import main.model.Review;
+import main.model.ReviewReader;
+
+/**
+ * Cache of {@link PreprocessedCorpus} files on disk. A corpus is keyed by a
+ * SHA-256 hash of the review file, the parts-of-speech model and the corpus
+ * format version, so reviews are only parsed, cleaned, tokenized and tagged
+ * again when one of them changes.
+ *
+ * @author vbala
+ *
+ */
+public class CorpusCache {
+
+	private final Logger LOGGER = Logger.getLogger(CorpusCache.class.getSimpleName());
+
+	/**
+	 * Number of reviews read before they are tagged in parallel
+	 */
+	private static final int BLOCK_SIZE = 4096;
+
+	/**
+	 * Directory containing the corpus files
+	 */
+	private final File directory;
+
+	/**
+	 * Constructor
+	 *
+	 * @param directory directory to store corpus files in
+	 */
+	public CorpusCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Map the preprocessed corpus of a review file, or build and store it if it
+	 * is not in the cache yet.
+	 *
+	 * @param pathToFile         pointer to JSON file containing customer review
+	 *                           data
+	 * @param pathToPOSModelFile path to opennlp pos model file
+	 * @param threadCount        number of tagging threads when building
+	 * @return the corpus, to be closed by the caller
+	 * @throws IOException
+	 */
+	public PreprocessedCorpus getOrBuild(String pathToFile, String pathToPOSModelFile, int threadCount)
+			throws IOException {
+		File corpusFile = getCorpusFile(key(new File(pathToFile), new File(pathToPOSModelFile)));
+
+		if (corpusFile.isFile()) {
+			try {
+				PreprocessedCorpus corpus = PreprocessedCorpus.open(corpusFile);
+				LOGGER.info("Loaded cached corpus " + corpusFile.getPath());
+				return corpus;
+			} catch (IOException e) {
+				LOGGER.warning("Discarding unreadable cached corpus " + corpusFile.getPath() + ": " + e.getMessage());
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		build(pathToFile, pathToPOSModelFile, threadCount, corpusFile);
+		LOGGER.info("Stored corpus " + corpusFile.getPath() + " in " + (System.currentTimeMillis() - start) + "ms");
+		return PreprocessedCorpus.open(corpusFile);
+	}
+
+	/**
+	 * Compute the cache key of a review file.
+	 *
+	 * @param reviewFile   file containing the reviews
+	 * @param posModelFile parts-of-speech model the nouns are tagged with
+	 * @return key hex encoded SHA-256 hash
+	 * @throws IOException error reading either file
+	 */
+	public String key(File reviewFile, File posModelFile) throws IOException {
+		String inputs = "corpus-v" + PreprocessedCorpus.VERSION + '\n' + ModelRegistry.sha256(reviewFile) + '\n'
+				+ ModelRegistry.sha256(posModelFile);
+		MessageDigest digest = ModelRegistry.newDigest();
+		return ModelRegistry.toHex(digest.digest(inputs.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * @param key cache key
+	 * @return the file the corpus for key is stored in
+	 */
+	public File getCorpusFile(String key) {
+		return new File(directory, "corpus-" + key + ".bin");
+	}
+
+	/**
+	 * Read the reviews in blocks, tokenize and tag each block in parallel, then
+	 * intern the tokens in review order so term IDs do not depend on scheduling.
+	 */
+	private void build(String pathToFile, String pathToPOSModelFile, int threadCount, File corpusFile)
+			throws IOException {
+		Vocabulary vocabulary = new Vocabulary();
+		ForkJoinPool pool = new ForkJoinPool(threadCount);
+		try (ReviewReader reader = new ReviewReader(pathToFile);
+				PreprocessedCorpus.Writer writer = new PreprocessedCorpus.Writer(corpusFile)) {
+			Review[] block = new Review[BLOCK_SIZE];
+			String[][] tokens = new String[BLOCK_SIZE][];
+			boolean[][] nouns = new boolean[BLOCK_SIZE][];
+			while (reader.hasNext()) {
+				int count = 0;
+				while (count < BLOCK_SIZE && reader.hasNext()) {
+					block[count++] = reader.next();
+				}
+
+				NLPHelper.tagNouns(block, count, pathToPOSModelFile, pool, tokens, nouns);
+
+				for (int i = 0; i < count; i++) {
+					int[] termIds = new int[tokens[i].length];
+					for (int t = 0; t < termIds.length; t++) {
+						termIds[t] = vocabulary.intern(tokens[i][t]);
+					}
+					writer.add(block[i].id, block[i].businessId, block[i].stars, termIds, nouns[i]);
+				}
+			}
+			writer.finish(vocabulary);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
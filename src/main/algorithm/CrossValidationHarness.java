@@ -0,0 +1,216 @@
+package main.algorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+import main.model.CrossValidationResult;
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizer;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.doccat.DocumentSampleStream;
+import opennlp.tools.ml.AbstractTrainer;
+import opennlp.tools.util.MarkableFileInputStreamFactory;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Evaluates doccat training parameters with k-fold cross-validation. Every
+ * combination of iterations, cutoff and trainer threads in the grid is trained
+ * on k-1 folds and scored on the held out fold. Every (configuration, fold)
+ * pair is a task of one pool of threadCount threads, so folds and grid points
+ * run concurrently. A task holds one permit of a shared budget of threadCount
+ * per trainer thread while it runs, so the trainers never use more threads
+ * than threadCount.
+ *
+ * @author vbala
+ *
+ */
+public class CrossValidationHarness {
+
+	private final Logger LOGGER = Logger.getLogger(CrossValidationHarness.class.getSimpleName());
+
+	/**
+	 * Outcome of one fold of one configuration
+	 */
+	private static class FoldResult {
+		long correct;
+		long evaluated;
+		long trainingSamples;
+		long trainingNanos;
+		long scoringNanos;
+	}
+
+	private final int folds;
+	private final int threadCount;
+	private final long seed;
+
+	/**
+	 * Constructor
+	 *
+	 * @param folds       number of folds, at least 2
+	 * @param threadCount number of threads shared by the configurations and
+	 *                    folds evaluated at once and their trainers
+	 * @param seed        seed of the shuffle assigning samples to folds
+	 */
+	public CrossValidationHarness(int folds, int threadCount, long seed) {
+		if (folds < 2) {
+			throw new IllegalArgumentException("At least 2 folds are needed: " + folds);
+		}
+		this.folds = folds;
+		this.threadCount = threadCount;
+		this.seed = seed;
+	}
+
+	/**
+	 * Cross-validate every combination of the given parameter values.
+	 *
+	 * @param pathToTrainingFile path to the file containing training records
+	 * @param iterations         values of the iterations parameter
+	 * @param cutoffs            values of the cutoff parameter
+	 * @param trainerThreads     values of the trainer threads parameter
+	 * @return results one result per combination, in grid order
+	 * @throws IOException
+	 */
+	public List<CrossValidationResult> run(String pathToTrainingFile, int[] iterations, int[] cutoffs,
+			int[] trainerThreads) throws IOException {
+		List<DocumentSample> samples = readSamples(pathToTrainingFile);
+		Collections.shuffle(samples, new Random(seed));
+		LOGGER.info("Cross-validating " + (iterations.length * cutoffs.length * trainerThreads.length)
+				+ " configurations on " + samples.size() + " samples with " + folds + " folds");
+
+		List<int[]> grid = new ArrayList<int[]>();
+		for (int iteration : iterations) {
+			for (int cutoff : cutoffs) {
+				for (int threads : trainerThreads) {
+					grid.add(new int[] { iteration, cutoff, threads });
+				}
+			}
+		}
+
+		// Fair, so tasks waiting for several permits are not starved by single ones
+		Semaphore budget = new Semaphore(threadCount, true);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<List<Future<FoldResult>>> pointFutures = new ArrayList<List<Future<FoldResult>>>();
+			for (int[] point : grid) {
+				List<Future<FoldResult>> foldFutures = new ArrayList<Future<FoldResult>>();
+				int permits = Math.max(1, Math.min(threadCount, point[2]));
+				for (int fold = 0; fold < folds; fold++) {
+					final int heldOut = fold;
+					foldFutures.add(executor.submit(() -> {
+						budget.acquire(permits);
+						try {
+							return evaluateFold(samples, heldOut, point[0], point[1], point[2]);
+						} finally {
+							budget.release(permits);
+						}
+					}));
+				}
+				pointFutures.add(foldFutures);
+			}
+
+			List<CrossValidationResult> results = new ArrayList<CrossValidationResult>();
+			for (int i = 0; i < grid.size(); i++) {
+				results.add(combine(grid.get(i), pointFutures.get(i)));
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Train on every fold but heldOut, then score the held out fold.
+	 */
+	private FoldResult evaluateFold(List<DocumentSample> samples, int heldOut, int iterations, int cutoff,
+			int trainerThreads) throws IOException {
+		List<DocumentSample> training = new ArrayList<DocumentSample>();
+		List<DocumentSample> test = new ArrayList<DocumentSample>();
+		for (int i = 0; i < samples.size(); i++) {
+			if (i % folds == heldOut) {
+				test.add(samples.get(i));
+			} else {
+				training.add(samples.get(i));
+			}
+		}
+
+		TrainingParameters params = new TrainingParameters();
+		params.put(TrainingParameters.ITERATIONS_PARAM, iterations);
+		params.put(TrainingParameters.CUTOFF_PARAM, cutoff);
+		params.put(TrainingParameters.THREADS_PARAM, trainerThreads);
+		params.put(AbstractTrainer.VERBOSE_PARAM, false);
+
+		FoldResult result = new FoldResult();
+		long start = System.nanoTime();
+		DoccatModel model = DocumentCategorizerME.train("en", ObjectStreamUtils.createObjectStream(training),
+				params, new DoccatFactory());
+		result.trainingNanos = System.nanoTime() - start;
+		result.trainingSamples = training.size();
+
+		DocumentCategorizer categorizer = new DocumentCategorizerME(model);
+		start = System.nanoTime();
+		for (DocumentSample sample : test) {
+			String category = categorizer.getBestCategory(categorizer.categorize(sample.getText()));
+			if (category.equals(sample.getCategory())) {
+				result.correct++;
+			}
+			result.evaluated++;
+		}
+		result.scoringNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	private CrossValidationResult combine(int[] point, List<Future<FoldResult>> foldFutures) throws IOException {
+		FoldResult total = new FoldResult();
+		try {
+			for (Future<FoldResult> future : foldFutures) {
+				FoldResult fold = future.get();
+				total.correct += fold.correct;
+				total.evaluated += fold.evaluated;
+				total.trainingSamples += fold.trainingSamples;
+				total.trainingNanos += fold.trainingNanos;
+				total.scoringNanos += fold.scoringNanos;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted during cross-validation");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+
+		return new CrossValidationResult(point[0], point[1], point[2], folds, total.correct, total.evaluated,
+				total.trainingSamples, total.trainingNanos, total.scoringNanos);
+	}
+
+	private static List<DocumentSample> readSamples(String pathToTrainingFile) throws IOException {
+		List<DocumentSample> samples = new ArrayList<DocumentSample>();
+		try (ObjectStream<DocumentSample> sampleStream = new DocumentSampleStream(new PlainTextByLineStream(
+				new MarkableFileInputStreamFactory(new File(pathToTrainingFile)), "UTF-8"))) {
+			DocumentSample sample;
+			while ((sample = sampleStream.read()) != null) {
+				samples.add(sample);
+			}
+		}
+		return samples;
+	}
+
+}
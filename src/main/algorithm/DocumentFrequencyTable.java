@@ -0,0 +1,200 @@
+package main.algorithm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Number of documents every term occurs in, updated while documents stream
+ * through. Updates and reads are lock-free and safe from any number of
+ * threads; a read taken during updates may miss the latest documents.
+ *
+ * The table can be saved as a tab separated snapshot and loaded again to
+ * warm-start the next run, so inverse document frequencies are meaningful from
+ * the first document on. The snapshot also records a key of every input the
+ * documents were counted from, so the same input is not counted twice when
+ * the snapshot is updated again.
+ *
+ * @author vbala
+ *
+ */
+public class DocumentFrequencyTable {
+
+	/**
+	 * First field of the snapshot line holding the document count
+	 */
+	private static final String DOCUMENTS_KEY = "#documents";
+
+	/**
+	 * First field of the snapshot lines holding the key of a counted input
+	 */
+	private static final String SOURCE_KEY = "#source";
+
+	private final Map<String, LongAdder> documentFrequencies = new ConcurrentHashMap<String, LongAdder>();
+	private final LongAdder documentCount = new LongAdder();
+	private final Set<String> sources = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Count one document.
+	 *
+	 * @param terms terms of the document, each distinct term counted once
+	 */
+	public void addDocument(String[] terms) {
+		String[] sorted = terms.clone();
+		Arrays.sort(sorted);
+		addSortedDocument(sorted);
+	}
+
+	/**
+	 * Count one document whose terms are sorted already.
+	 *
+	 * @param sortedTerms terms of the document in {@link Arrays#sort(Object[])}
+	 *                    order
+	 */
+	void addSortedDocument(String[] sortedTerms) {
+		documentCount.increment();
+		for (int i = 0; i < sortedTerms.length; i++) {
+			if (i == 0 || !sortedTerms[i].equals(sortedTerms[i - 1])) {
+				add(sortedTerms[i], 1);
+			}
+		}
+	}
+
+	/**
+	 * Record that the documents of an input are counted in the table.
+	 *
+	 * @param key key of the input, such as the hash of a file
+	 * @return false if the input was counted already
+	 */
+	public boolean addSource(String key) {
+		return sources.add(key);
+	}
+
+	/**
+	 * @param key key of an input
+	 * @return whether the documents of the input are counted in the table
+	 */
+	public boolean hasSource(String key) {
+		return sources.contains(key);
+	}
+
+	/**
+	 * @return number of documents counted
+	 */
+	public long getDocumentCount() {
+		return documentCount.sum();
+	}
+
+	/**
+	 * @param term a term
+	 * @return number of documents the term occurs in
+	 */
+	public long getDocumentFrequency(String term) {
+		LongAdder frequency = documentFrequencies.get(term);
+		return frequency == null ? 0 : frequency.sum();
+	}
+
+	/**
+	 * Smoothed inverse document frequency, ln((1 + N) / (1 + df)) + 1: never
+	 * negative, and highest for the rarest terms.
+	 *
+	 * @param term a term
+	 * @return the inverse document frequency of the term
+	 */
+	public double idf(String term) {
+		return Math.log((1.0 + getDocumentCount()) / (1.0 + getDocumentFrequency(term))) + 1;
+	}
+
+	/**
+	 * @return number of distinct terms
+	 */
+	public int size() {
+		return documentFrequencies.size();
+	}
+
+	/**
+	 * Write a snapshot of the table, moved into place once complete.
+	 *
+	 * @param file the snapshot file
+	 * @throws IOException error writing
+	 */
+	public void save(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		Files.createDirectories(directory.toPath());
+		File tempFile = File.createTempFile("df-", ".tmp", directory);
+		try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(DOCUMENTS_KEY + '\t' + getDocumentCount());
+			writer.newLine();
+			for (String source : sources) {
+				writer.write(SOURCE_KEY + '\t' + source);
+				writer.newLine();
+			}
+			for (Map.Entry<String, LongAdder> entry : documentFrequencies.entrySet()) {
+				String term = entry.getKey();
+				if (term.indexOf('\t') >= 0 || term.indexOf('\n') >= 0 || term.indexOf('\r') >= 0) {
+					// Tokens never hold whitespace, skip rather than corrupt the snapshot
+					continue;
+				}
+				writer.write(term + '\t' + entry.getValue().sum());
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Add the counts of a snapshot to this table.
+	 *
+	 * @param file a snapshot written by {@link #save(File)}
+	 * @throws IOException error reading, or a malformed line
+	 */
+	public void load(File file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int tab = line.lastIndexOf('\t');
+				if (tab <= 0) {
+					throw new IOException("Malformed line in " + file.getPath() + ": " + line);
+				}
+				if (line.startsWith(SOURCE_KEY + '\t')) {
+					sources.add(line.substring(tab + 1));
+					continue;
+				}
+				long count;
+				try {
+					count = Long.parseLong(line.substring(tab + 1));
+				} catch (NumberFormatException e) {
+					throw new IOException("Malformed number in " + file.getPath() + ": " + line, e);
+				}
+				String term = line.substring(0, tab);
+				if (DOCUMENTS_KEY.equals(term)) {
+					documentCount.add(count);
+				} else {
+					add(term, count);
+				}
+			}
+		}
+	}
+
+	private void add(String term, long count) {
+		LongAdder frequency = documentFrequencies.get(term);
+		if (frequency == null) {
+			frequency = documentFrequencies.computeIfAbsent(term, t -> new LongAdder());
+		}
+		frequency.add(count);
+	}
+
+}
@@ -0,0 +1,89 @@
+package main.algorithm;
+
+import java.util.Map;
+
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.FeatureGenerator;
+import opennlp.tools.util.InvalidFormatException;
+
+/**
+ * {@link DoccatFactory} whose models use a {@link HashingFeatureGenerator}. The
+ * number of buckets and the n-gram size are written to the model manifest, so
+ * a loaded model hashes the tokens it scores exactly as they were hashed in
+ * training.
+ *
+ * @author vbala
+ *
+ */
+public class HashingDoccatFactory extends DoccatFactory {
+
+	private static final String BUCKETS_PROPERTY = "yelpnlp.hashing.buckets";
+	private static final String NGRAM_SIZE_PROPERTY = "yelpnlp.hashing.ngramSize";
+
+	private HashingFeatureGenerator generator;
+
+	/**
+	 * Constructor - used when a model is loaded, the configuration is read from
+	 * its manifest
+	 */
+	public HashingDoccatFactory() {
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param buckets   number of buckets the features are hashed into
+	 * @param ngramSize longest n-gram hashed, 1 for single tokens only
+	 */
+	public HashingDoccatFactory(int buckets, int ngramSize) {
+		this.generator = new HashingFeatureGenerator(buckets, ngramSize);
+	}
+
+	@Override
+	public Map<String, String> createManifestEntries() {
+		Map<String, String> entries = super.createManifestEntries();
+		HashingFeatureGenerator current = getGenerator();
+		entries.put(BUCKETS_PROPERTY, Integer.toString(current.getBuckets()));
+		entries.put(NGRAM_SIZE_PROPERTY, Integer.toString(current.getNgramSize()));
+		return entries;
+	}
+
+	@Override
+	public void validateArtifactMap() throws InvalidFormatException {
+		super.validateArtifactMap();
+		try {
+			getGenerator();
+		} catch (IllegalArgumentException e) {
+			throw new InvalidFormatException("Invalid feature hashing configuration", e);
+		}
+	}
+
+	@Override
+	public FeatureGenerator[] getFeatureGenerators() {
+		return new FeatureGenerator[] { getGenerator() };
+	}
+
+	@Override
+	public void setFeatureGenerators(FeatureGenerator[] featureGenerators) {
+		throw new UnsupportedOperationException("Feature generators of a hashing factory are fixed");
+	}
+
+	/**
+	 * @return the generator, created from the model manifest on first use
+	 */
+	private synchronized HashingFeatureGenerator getGenerator() {
+		if (generator == null) {
+			if (artifactProvider == null) {
+				generator = new HashingFeatureGenerator();
+			} else {
+				String buckets = artifactProvider.getManifestProperty(BUCKETS_PROPERTY);
+				String ngramSize = artifactProvider.getManifestProperty(NGRAM_SIZE_PROPERTY);
+				generator = new HashingFeatureGenerator(
+						buckets == null ? HashingFeatureGenerator.DEFAULT_BUCKETS : Integer.parseInt(buckets),
+						ngramSize == null ? 1 : Integer.parseInt(ngramSize));
+			}
+		}
+		return generator;
+	}
+
+}
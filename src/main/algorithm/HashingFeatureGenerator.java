@@ -0,0 +1,123 @@
+package main.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import opennlp.tools.doccat.FeatureGenerator;
+
+/**
+ * Bag of words feature generator using the hashing trick. Every token, and
+ * optionally every n-gram of consecutive tokens, is hashed into one of a fixed
+ * number of buckets and the bucket is the feature. However many distinct words
+ * the corpus has, a model trained on these features never has more than
+ * buckets features, so its size and the memory needed for scoring stay fixed.
+ * Words sharing a bucket become indistinguishable, so the number of buckets
+ * trades memory for accuracy.
+ *
+ * N-grams are hashed from the hashes of their tokens, so no n-gram strings are
+ * built. Feature names are created once per bucket and reused.
+ *
+ * @author vbala
+ *
+ */
+public class HashingFeatureGenerator implements FeatureGenerator {
+
+	/**
+	 * Default number of buckets
+	 */
+	public static final int DEFAULT_BUCKETS = 1 << 18;
+
+	private final int buckets;
+	private final int ngramSize;
+
+	/**
+	 * Feature name of every bucket, filled in as buckets are first used
+	 */
+	private final String[] names;
+
+	/**
+	 * Constructor - {@link #DEFAULT_BUCKETS} buckets, single tokens only. Used
+	 * when a model is loaded without a {@link HashingDoccatFactory}.
+	 */
+	public HashingFeatureGenerator() {
+		this(DEFAULT_BUCKETS, 1);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param buckets   number of buckets the features are hashed into
+	 * @param ngramSize longest n-gram hashed, 1 for single tokens only
+	 */
+	public HashingFeatureGenerator(int buckets, int ngramSize) {
+		if (buckets <= 0) {
+			throw new IllegalArgumentException("Number of buckets must be greater than 0: " + buckets);
+		}
+		if (ngramSize <= 0) {
+			throw new IllegalArgumentException("N-gram size must be greater than 0: " + ngramSize);
+		}
+		this.buckets = buckets;
+		this.ngramSize = ngramSize;
+		this.names = new String[buckets];
+	}
+
+	public int getBuckets() {
+		return buckets;
+	}
+
+	public int getNgramSize() {
+		return ngramSize;
+	}
+
+	@Override
+	public Collection<String> extractFeatures(String[] text, Map<String, Object> extraInformation) {
+		List<String> features = new ArrayList<String>(text.length * ngramSize);
+		for (int start = 0; start < text.length; start++) {
+			int hash = 0;
+			int end = Math.min(start + ngramSize, text.length);
+			for (int i = start; i < end; i++) {
+				hash = mix(hash * 31 + text[i].hashCode());
+				features.add(name(bucket(hash)));
+			}
+		}
+		return features;
+	}
+
+	/**
+	 * @param token a token
+	 * @return the bucket of the token as a single word feature
+	 */
+	public int bucket(String token) {
+		return bucket(mix(token.hashCode()));
+	}
+
+	private int bucket(int hash) {
+		return Math.floorMod(hash, buckets);
+	}
+
+	private String name(int bucket) {
+		// Racing threads may both create the name; either copy is equal
+		String name = names[bucket];
+		if (name == null) {
+			name = "h=" + bucket;
+			names[bucket] = name;
+		}
+		return name;
+	}
+
+	/**
+	 * Finalization step of MurmurHash3, spreads the bits of String.hashCode over
+	 * the buckets
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+}
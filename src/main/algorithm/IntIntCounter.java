@@ -0,0 +1,173 @@
+package main.algorithm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Open addressing map from non-negative int keys (e.g. term IDs) to int
+ * counts. Keys and counts are kept in primitive arrays, so counting never
+ * boxes.
+ *
+ * Not thread-safe.
+ *
+ * @author vbala
+ *
+ */
+public class IntIntCounter {
+
+	/**
+	 * Receives the entries of a counter
+	 */
+	public interface EntryConsumer {
+		void accept(int key, int count);
+	}
+
+	private static final int EMPTY = -1;
+
+	private int[] keys;
+	private int[] counts;
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	public IntIntCounter() {
+		this(16);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param expectedSize number of keys to size the table for
+	 */
+	public IntIntCounter(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		keys = new int[capacity];
+		counts = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Add one to the count of key.
+	 *
+	 * @param key non-negative key
+	 * @return the new count
+	 */
+	public int increment(int key) {
+		return add(key, 1);
+	}
+
+	/**
+	 * Add delta to the count of key.
+	 *
+	 * @param key   non-negative key
+	 * @param delta amount to add
+	 * @return the new count
+	 */
+	public int add(int key, int delta) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Negative key " + key);
+		}
+		int slot = find(key);
+		if (keys[slot] == EMPTY) {
+			keys[slot] = key;
+			size++;
+			counts[slot] = delta;
+			if (size * 2 > keys.length) {
+				rehash();
+			}
+			return delta;
+		}
+		return counts[slot] += delta;
+	}
+
+	/**
+	 * @param key the key
+	 * @return the count of key, 0 if it was never counted
+	 */
+	public int get(int key) {
+		if (key < 0) {
+			return 0;
+		}
+		int slot = find(key);
+		return keys[slot] == EMPTY ? 0 : counts[slot];
+	}
+
+	/**
+	 * @param key the key
+	 * @return whether the key was counted
+	 */
+	public boolean containsKey(int key) {
+		return key >= 0 && keys[find(key)] != EMPTY;
+	}
+
+	/**
+	 * @return number of distinct keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Visit every entry in table order.
+	 *
+	 * @param consumer receives each key and count
+	 */
+	public void forEach(EntryConsumer consumer) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY) {
+				consumer.accept(keys[slot], counts[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Add every count of another counter to this one.
+	 *
+	 * @param other counter to merge in
+	 */
+	public void addAll(IntIntCounter other) {
+		other.forEach(this::add);
+	}
+
+	/**
+	 * Convert to a map of term to count, for display.
+	 *
+	 * @param vocabulary vocabulary the keys are term IDs of
+	 * @return map of term to count
+	 */
+	public Map<String, Integer> toMap(Vocabulary vocabulary) {
+		Map<String, Integer> map = new HashMap<String, Integer>(size * 2);
+		forEach((key, count) -> map.put(vocabulary.term(key), count));
+		return map;
+	}
+
+	private int find(int key) {
+		int mask = keys.length - 1;
+		int slot = Vocabulary.mix(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new int[oldKeys.length * 2];
+		counts = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldKeys[slot] != EMPTY) {
+				int newSlot = find(oldKeys[slot]);
+				keys[newSlot] = oldKeys[slot];
+				counts[newSlot] = oldCounts[slot];
+			}
+		}
+	}
+
+}
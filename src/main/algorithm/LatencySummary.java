@@ -0,0 +1,64 @@
+package main.algorithm;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Percentiles of a {@link LatencyHistogram} in microseconds
+ *
+ * @author vbala
+ *
+ */
+public class LatencySummary {
+
+	private final long count;
+	private final double meanMicros;
+	private final double p50Micros;
+	private final double p99Micros;
+	private final double maxMicros;
+
+	@ConstructorProperties({ "count", "meanMicros", "p50Micros", "p99Micros", "maxMicros" })
+	public LatencySummary(long count, double meanMicros, double p50Micros, double p99Micros, double maxMicros) {
+		this.count = count;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	/**
+	 * @param histogram the histogram
+	 * @return summary of the current contents of the histogram
+	 */
+	public static LatencySummary of(LatencyHistogram histogram) {
+		return new LatencySummary(histogram.getCount(), histogram.getMean() / 1000,
+				histogram.getPercentile(0.5) / 1000.0, histogram.getPercentile(0.99) / 1000.0,
+				histogram.getMax() / 1000.0);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMeanMicros() {
+		return meanMicros;
+	}
+
+	public double getP50Micros() {
+		return p50Micros;
+	}
+
+	public double getP99Micros() {
+		return p99Micros;
+	}
+
+	public double getMaxMicros() {
+		return maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", count, meanMicros, p50Micros,
+				p99Micros, maxMicros);
+	}
+
+}
@@ -0,0 +1,340 @@
+package main.algorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Instrumentation of a run shared by the whole JVM: counters of the work done
+ * by every stage, latency histograms of the expensive calls and gauges of
+ * queue depths and memory. Everything is lock-free to record, so callers look
+ * up their counters and histograms once and keep them in fields.
+ *
+ * The metrics are exposed as the MXBean {@link #OBJECT_NAME}. The reporter
+ * started by {@link #startReporter(long, File)} logs them, and writes them as
+ * JSON, periodically and samples the counters every second for per-second
+ * rates.
+ *
+ * @author vbala
+ *
+ */
+public class Metrics implements MetricsMXBean {
+
+	private final Logger LOGGER = Logger.getLogger(Metrics.class.getSimpleName());
+
+	/**
+	 * JMX name of the metrics
+	 */
+	public static final String OBJECT_NAME = "main.algorithm:type=Metrics";
+
+	private static final Metrics INSTANCE = new Metrics();
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final Map<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<String, LongSupplier>();
+
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * Counter values of the last two samples, guarded by this
+	 */
+	private Map<String, Long> previousSample;
+	private Map<String, Long> lastSample;
+	private long previousSampleNanos;
+	private long lastSampleNanos;
+
+	private ScheduledExecutorService reporter;
+
+	private Metrics() {
+		registerGauge("jvm.heap.usedBytes",
+				() -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+			if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+				// Snapshot of the bytes allocated by the threads alive when sampled, the
+				// allocations of threads which ended are not included, so it can drop
+				registerGauge("jvm.liveThreads.allocatedBytes", () -> {
+					long total = 0;
+					for (long allocated : allocations.getThreadAllocatedBytes(allocations.getAllThreadIds())) {
+						total += Math.max(0, allocated);
+					}
+					return total;
+				});
+			}
+		}
+	}
+
+	/**
+	 * @return the metrics shared by the whole JVM
+	 */
+	public static Metrics getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param name name of the counter
+	 * @return the counter, created on first use
+	 */
+	public LongAdder counter(String name) {
+		LongAdder counter = counters.get(name);
+		return counter != null ? counter : counters.computeIfAbsent(name, n -> new LongAdder());
+	}
+
+	/**
+	 * @param name name of the histogram
+	 * @return the histogram, created on first use
+	 */
+	public LatencyHistogram histogram(String name) {
+		LatencyHistogram histogram = histograms.get(name);
+		return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+	}
+
+	/**
+	 * Register a gauge, replacing any gauge of the same name.
+	 *
+	 * @param name  name of the gauge
+	 * @param gauge reads the current value, called from the reporting threads
+	 */
+	public void registerGauge(String name, LongSupplier gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * @param name name of the gauge to remove
+	 */
+	public void unregisterGauge(String name) {
+		gauges.remove(name);
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server. Does nothing if they
+	 * are registered already.
+	 */
+	public void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, new ObjectName(OBJECT_NAME));
+		} catch (InstanceAlreadyExistsException e) {
+			// Registered by an earlier call
+		} catch (JMException e) {
+			LOGGER.warning("Cannot register metrics MBean: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Sample the counters every second and log a snapshot of the metrics every
+	 * period, also writing it as JSON to jsonFile when given.
+	 *
+	 * @param periodMillis time between snapshots in milliseconds
+	 * @param jsonFile     file the latest JSON snapshot is written to, or null
+	 */
+	public synchronized void startReporter(long periodMillis, File jsonFile) {
+		if (reporter != null) {
+			throw new IllegalStateException("Metrics reporter already started");
+		}
+		reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "metrics-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reporter.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+		reporter.scheduleAtFixedRate(() -> report(jsonFile), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop the reporter, if started.
+	 */
+	public synchronized void stopReporter() {
+		if (reporter != null) {
+			reporter.shutdownNow();
+			reporter = null;
+		}
+	}
+
+	@Override
+	public Map<String, Long> getCounters() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			values.put(counter.getKey(), counter.getValue().sum());
+		}
+		return values;
+	}
+
+	@Override
+	public synchronized Map<String, Double> getRates() {
+		Map<String, Long> current = lastSample;
+		Map<String, Long> previous = previousSample;
+		double seconds = (lastSampleNanos - previousSampleNanos) / 1e9;
+		if (current == null || previous == null) {
+			// Not sampled yet, average since startup
+			current = getCounters();
+			previous = new HashMap<String, Long>();
+			seconds = (System.nanoTime() - startNanos) / 1e9;
+		}
+
+		Map<String, Double> rates = new TreeMap<String, Double>();
+		for (Map.Entry<String, Long> counter : current.entrySet()) {
+			long before = previous.getOrDefault(counter.getKey(), 0L);
+			rates.put(counter.getKey(), seconds <= 0 ? 0 : (counter.getValue() - before) / seconds);
+		}
+		return rates;
+	}
+
+	@Override
+	public Map<String, Long> getGauges() {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+			values.put(gauge.getKey(), gauge.getValue().getAsLong());
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, LatencySummary> getLatencies() {
+		Map<String, LatencySummary> values = new TreeMap<String, LatencySummary>();
+		for (Map.Entry<String, LatencyHistogram> histogram : histograms.entrySet()) {
+			values.put(histogram.getKey(), LatencySummary.of(histogram.getValue()));
+		}
+		return values;
+	}
+
+	@Override
+	public String getSnapshotJson() {
+		StringWriter out = new StringWriter();
+		try {
+			writeJson(out);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot write metrics to a string", e);
+		}
+		return out.toString();
+	}
+
+	@Override
+	public synchronized void reset() {
+		for (LongAdder counter : counters.values()) {
+			counter.reset();
+		}
+		for (LatencyHistogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+		previousSample = null;
+		lastSample = null;
+	}
+
+	/**
+	 * @return all metrics as readable text, one metric per line
+	 */
+	public String toText() {
+		StringBuilder sb = new StringBuilder();
+		Map<String, Double> rates = getRates();
+		for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+			sb.append(String.format("%-40s %14d %12.1f/s%n", counter.getKey(), counter.getValue(),
+					rates.getOrDefault(counter.getKey(), 0.0)));
+		}
+		for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+			sb.append(String.format("%-40s %14d%n", gauge.getKey(), gauge.getValue()));
+		}
+		for (Map.Entry<String, LatencySummary> latency : getLatencies().entrySet()) {
+			sb.append(String.format("%-40s %s%n", latency.getKey(), latency.getValue()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write all metrics as one JSON object.
+	 *
+	 * @param out writer to write to, left open
+	 * @throws IOException error writing
+	 */
+	public void writeJson(Writer out) throws IOException {
+		Map<String, Double> rates = getRates();
+		try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+			json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			json.writeStartObject();
+			json.writeNumberField("uptimeMillis", (System.nanoTime() - startNanos) / 1000000);
+			json.writeObjectFieldStart("counters");
+			for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+				json.writeObjectFieldStart(counter.getKey());
+				json.writeNumberField("count", counter.getValue());
+				json.writeNumberField("perSecond", rates.getOrDefault(counter.getKey(), 0.0));
+				json.writeEndObject();
+			}
+			json.writeEndObject();
+			json.writeObjectFieldStart("gauges");
+			for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+				json.writeNumberField(gauge.getKey(), gauge.getValue());
+			}
+			json.writeEndObject();
+			json.writeObjectFieldStart("latencies");
+			for (Map.Entry<String, LatencySummary> latency : getLatencies().entrySet()) {
+				LatencySummary summary = latency.getValue();
+				json.writeObjectFieldStart(latency.getKey());
+				json.writeNumberField("count", summary.getCount());
+				json.writeNumberField("meanMicros", summary.getMeanMicros());
+				json.writeNumberField("p50Micros", summary.getP50Micros());
+				json.writeNumberField("p99Micros", summary.getP99Micros());
+				json.writeNumberField("maxMicros", summary.getMaxMicros());
+				json.writeEndObject();
+			}
+			json.writeEndObject();
+			json.writeEndObject();
+		}
+	}
+
+	private synchronized void sample() {
+		previousSample = lastSample;
+		previousSampleNanos = lastSampleNanos;
+		lastSample = getCounters();
+		lastSampleNanos = System.nanoTime();
+	}
+
+	private void report(File jsonFile) {
+		// Never let an exception cancel the schedule
+		try {
+			LOGGER.info("Metrics\n" + toText());
+			if (jsonFile != null) {
+				File directory = jsonFile.getAbsoluteFile().getParentFile();
+				Files.createDirectories(directory.toPath());
+				File tempFile = File.createTempFile("metrics-", ".tmp", directory);
+				try (Writer out = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+					writeJson(out);
+				} catch (IOException e) {
+					Files.deleteIfExists(tempFile.toPath());
+					throw e;
+				}
+				Files.move(tempFile.toPath(), jsonFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warning("Cannot report metrics: " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+package main.algorithm;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link Metrics}, registered as {@link Metrics#OBJECT_NAME}
+ *
+ * @author vbala
+ *
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * @return every counter by name
+	 */
+	Map<String, Long> getCounters();
+
+	/**
+	 * @return increase per second of every counter over the last sampling
+	 *         interval, or since startup before sampling started
+	 */
+	Map<String, Double> getRates();
+
+	/**
+	 * @return current value of every gauge by name
+	 */
+	Map<String, Long> getGauges();
+
+	/**
+	 * @return summary of every latency histogram by name
+	 */
+	Map<String, LatencySummary> getLatencies();
+
+	/**
+	 * @return all metrics as a JSON object
+	 */
+	String getSnapshotJson();
+
+	/**
+	 * Reset the counters and histograms.
+	 */
+	void reset();
+
+}
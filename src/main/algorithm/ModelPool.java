@@ -0,0 +1,209 @@
+package main.algorithm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+
+/**
+ * Loads every OpenNLP model file once per JVM and hands out runtime
+ * instances. The models themselves are immutable and shared between threads,
+ * while the runtime classes ({@link POSTaggerME}, {@link SentenceDetectorME},
+ * {@link NameFinderME}) are not thread-safe, so each thread gets its own.
+ *
+ * Models can be loaded in the background with
+ * {@link #preload(String, ModelType)} so that parsing overlaps with other
+ * startup work.
+ *
+ * @author vbala
+ *
+ */
+public class ModelPool {
+
+	private final Logger LOGGER = Logger.getLogger(ModelPool.class.getSimpleName());
+
+	private static final ModelPool INSTANCE = new ModelPool();
+
+	/**
+	 * Kinds of models held in the pool
+	 */
+	public enum ModelType {
+		POS, SENTENCE, NAME_FINDER
+	}
+
+	/**
+	 * Reads a model file
+	 */
+	private interface ModelReader {
+		Object read(File file) throws IOException;
+	}
+
+	/**
+	 * Loaded (or loading) models keyed by model file path
+	 */
+	private final Map<String, CompletableFuture<Object>> models = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+	/**
+	 * Runtime instances of the calling thread keyed by model file path
+	 */
+	private final ThreadLocal<Map<String, Object>> runtimes = ThreadLocal
+			.withInitial(() -> new HashMap<String, Object>());
+
+	private final ExecutorService loader = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "model-loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @return the pool shared by the whole JVM
+	 */
+	public static ModelPool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Start loading a model in the background. Later requests for the model wait
+	 * for this load instead of parsing the file again.
+	 *
+	 * @param pathToModelFile path to the opennlp model file
+	 * @param type            kind of model stored in the file
+	 */
+	public void preload(String pathToModelFile, ModelType type) {
+		load(pathToModelFile, type, true);
+	}
+
+	public POSModel getPOSModel(String pathToModelFile) throws IOException {
+		return (POSModel) get(pathToModelFile, ModelType.POS);
+	}
+
+	public SentenceModel getSentenceModel(String pathToModelFile) throws IOException {
+		return (SentenceModel) get(pathToModelFile, ModelType.SENTENCE);
+	}
+
+	public TokenNameFinderModel getNameFinderModel(String pathToModelFile) throws IOException {
+		return (TokenNameFinderModel) get(pathToModelFile, ModelType.NAME_FINDER);
+	}
+
+	/**
+	 * @param pathToModelFile path to the opennlp pos model file
+	 * @return the parts-of-speech tagger owned by the calling thread
+	 * @throws IOException error loading the model
+	 */
+	public POSTaggerME getPOSTagger(String pathToModelFile) throws IOException {
+		POSTaggerME tagger = (POSTaggerME) runtimes.get().get(pathToModelFile);
+		if (tagger == null) {
+			tagger = new POSTaggerME(getPOSModel(pathToModelFile));
+			runtimes.get().put(pathToModelFile, tagger);
+		}
+		return tagger;
+	}
+
+	/**
+	 * @param pathToModelFile path to the opennlp sentence model file
+	 * @return the sentence detector owned by the calling thread
+	 * @throws IOException error loading the model
+	 */
+	public SentenceDetectorME getSentenceDetector(String pathToModelFile) throws IOException {
+		SentenceDetectorME detector = (SentenceDetectorME) runtimes.get().get(pathToModelFile);
+		if (detector == null) {
+			detector = new SentenceDetectorME(getSentenceModel(pathToModelFile));
+			runtimes.get().put(pathToModelFile, detector);
+		}
+		return detector;
+	}
+
+	/**
+	 * @param pathToModelFile path to the opennlp name finder model file
+	 * @return the name finder owned by the calling thread
+	 * @throws IOException error loading the model
+	 */
+	public NameFinderME getNameFinder(String pathToModelFile) throws IOException {
+		NameFinderME nameFinder = (NameFinderME) runtimes.get().get(pathToModelFile);
+		if (nameFinder == null) {
+			nameFinder = new NameFinderME(getNameFinderModel(pathToModelFile));
+			runtimes.get().put(pathToModelFile, nameFinder);
+		}
+		return nameFinder;
+	}
+
+	/**
+	 * Wait for the model to be loaded, loading it on the calling thread if no
+	 * one else has started to.
+	 */
+	private Object get(String pathToModelFile, ModelType type) throws IOException {
+		try {
+			return load(pathToModelFile, type, false).join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private CompletableFuture<Object> load(String pathToModelFile, ModelType type, boolean background) {
+		CompletableFuture<Object> model = models.get(pathToModelFile);
+		if (model != null) {
+			return model;
+		}
+
+		CompletableFuture<Object> created = new CompletableFuture<Object>();
+		model = models.putIfAbsent(pathToModelFile, created);
+		if (model != null) {
+			return model;
+		}
+
+		Runnable task = () -> {
+			try {
+				long start = System.currentTimeMillis();
+				created.complete(reader(type).read(new File(pathToModelFile)));
+				LOGGER.info("Loaded " + type + " model " + pathToModelFile + " in "
+						+ (System.currentTimeMillis() - start) + "ms");
+			} catch (IOException e) {
+				// Allow a later request to retry the load
+				models.remove(pathToModelFile, created);
+				created.completeExceptionally(new UncheckedIOException(e));
+			} catch (RuntimeException e) {
+				models.remove(pathToModelFile, created);
+				created.completeExceptionally(e);
+			}
+		};
+
+		if (background) {
+			loader.execute(task);
+		} else {
+			task.run();
+		}
+		return created;
+	}
+
+	private static ModelReader reader(ModelType type) {
+		switch (type) {
+		case POS:
+			return POSModel::new;
+		case SENTENCE:
+			return SentenceModel::new;
+		case NAME_FINDER:
+			return TokenNameFinderModel::new;
+		default:
+			throw new IllegalArgumentException("Unknown model type " + type);
+		}
+	}
+
+}
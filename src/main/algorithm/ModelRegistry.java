@@ -0,0 +1,190 @@
+package main.algorithm;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.FeatureGenerator;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Cache of trained {@link DoccatModel} binaries on disk. Models are keyed by a
+ * SHA-256 hash of the training file contents, the {@link TrainingParameters}
+ * and the feature generators and their configuration, so a model is only
+ * retrained when one of them changes.
+ *
+ * @author vbala
+ *
+ */
+public class ModelRegistry {
+
+	private final Logger LOGGER = Logger.getLogger(ModelRegistry.class.getSimpleName());
+
+	/**
+	 * Trains a model when the registry has no binary for the key
+	 */
+	public interface Trainer {
+		DoccatModel train() throws IOException;
+	}
+
+	/**
+	 * Directory containing the serialized models
+	 */
+	private final File directory;
+
+	/**
+	 * Constructor
+	 *
+	 * @param directory directory to store serialized models in
+	 */
+	public ModelRegistry(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Load the model trained on trainingFile with params, or train and store it
+	 * if it is not in the registry yet.
+	 *
+	 * @param trainingFile file containing the training records
+	 * @param params       training parameters
+	 * @param factory      factory holding the feature generators
+	 * @param trainer      trains the model on a cache miss
+	 * @return model the cached or newly trained model
+	 * @throws IOException
+	 */
+	public DoccatModel getOrTrain(File trainingFile, TrainingParameters params, DoccatFactory factory,
+			Trainer trainer) throws IOException {
+		String key = key(trainingFile, params, factory);
+		File modelFile = getModelFile(key);
+
+		if (modelFile.isFile()) {
+			try {
+				DoccatModel model = new DoccatModel(modelFile);
+				LOGGER.info("Loaded cached model " + modelFile.getPath());
+				return model;
+			} catch (IOException | RuntimeException e) {
+				// OpenNLP fails on some damaged files with unchecked exceptions
+				LOGGER.warning("Discarding unreadable cached model " + modelFile.getPath() + ": " + e.getMessage());
+			}
+		}
+
+		DoccatModel model = trainer.train();
+		store(model, modelFile);
+		return model;
+	}
+
+	/**
+	 * Compute the registry key for a training file and its parameters.
+	 *
+	 * @param trainingFile file containing the training records
+	 * @param params       training parameters
+	 * @param factory      factory holding the feature generators
+	 * @return key hex encoded SHA-256 hash
+	 * @throws IOException error reading the training file
+	 */
+	public String key(File trainingFile, TrainingParameters params, DoccatFactory factory) throws IOException {
+		MessageDigest digest = newDigest();
+		update(digest, trainingFile);
+
+		// Sort the settings so the key does not depend on insertion order
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Object> setting : new TreeMap<String, Object>(params.getObjectSettings())
+				.entrySet()) {
+			sb.append('\n').append(setting.getKey()).append('=').append(setting.getValue());
+		}
+		sb.append('\n').append(factory.getClass().getName());
+		for (FeatureGenerator generator : factory.getFeatureGenerators()) {
+			sb.append('\n').append(generator.getClass().getName());
+		}
+		// Configuration the factory writes to the model, e.g. hashing buckets
+		for (Map.Entry<String, String> entry : new TreeMap<String, String>(factory.createManifestEntries())
+				.entrySet()) {
+			sb.append('\n').append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * @param key registry key
+	 * @return the file the model for key is stored in
+	 */
+	public File getModelFile(String key) {
+		return new File(directory, "doccat-" + key + ".bin");
+	}
+
+	/**
+	 * Hash the contents of a file.
+	 *
+	 * @param file the file to hash
+	 * @return hex encoded SHA-256 hash of the file
+	 * @throws IOException error reading the file
+	 */
+	public static String sha256(File file) throws IOException {
+		MessageDigest digest = newDigest();
+		update(digest, file);
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Serialize the model to a temporary file and move it into place, so a
+	 * crashed run never leaves a truncated model behind.
+	 */
+	private void store(DoccatModel model, File modelFile) throws IOException {
+		Files.createDirectories(directory.toPath());
+		File tempFile = File.createTempFile("doccat-", ".tmp", directory);
+		try {
+			try (OutputStream modelOut = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()))) {
+				model.serialize(modelOut);
+			}
+			Files.move(tempFile.toPath(), modelFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
+		}
+		LOGGER.info("Stored model " + modelFile.getPath());
+	}
+
+	private static void update(MessageDigest digest, File file) throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every JVM is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+}
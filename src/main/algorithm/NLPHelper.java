@@ -1,22 +1,34 @@
 package main.algorithm;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
+import main.model.AspectSentiment;
+import main.model.PreprocessedCorpus;
 import main.model.Review;
 import main.model.ReviewResult;
-import main.model.Topic;
+import main.model.ReviewTable;
 import opennlp.tools.doccat.DoccatFactory;
 import opennlp.tools.doccat.DoccatModel;
 import opennlp.tools.doccat.DocumentCategorizer;
@@ -24,12 +36,9 @@ import opennlp.tools.doccat.DocumentCategorizerME;
 import opennlp.tools.doccat.DocumentSample;
 import opennlp.tools.doccat.DocumentSampleStream;
 import opennlp.tools.namefind.NameFinderME;
-import opennlp.tools.namefind.TokenNameFinderModel;
 import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSTaggerME;
 import opennlp.tools.sentdetect.SentenceDetectorME;
-import opennlp.tools.sentdetect.SentenceModel;
-import opennlp.tools.tokenize.SimpleTokenizer;
 import opennlp.tools.util.InputStreamFactory;
 import opennlp.tools.util.MarkableFileInputStreamFactory;
 import opennlp.tools.util.ObjectStream;
@@ -47,6 +56,89 @@ public class NLPHelper {
 
 	private final Logger LOGGER = Logger.getLogger(NLPHelper.class.getSimpleName());
 
+	/**
+	 * Number of reviews a scoring worker claims at a time
+	 */
+	private static final int SCORING_CHUNK_SIZE = 64;
+
+	/**
+	 * Largest range of reviews a noun tagging task handles without forking
+	 */
+	private static final int TAGGING_CHUNK_SIZE = 32;
+
+	/**
+	 * Default directory of the trained model cache
+	 */
+	public static final String MODEL_REGISTRY_DIRECTORY = "models/registry";
+
+	/**
+	 * Sentence detection model shipped with the application
+	 */
+	public static final String SENTENCE_MODEL_FILE = "models/en-sent.bin";
+
+	private static final LatencyHistogram CATEGORIZE_LATENCY = Metrics.getInstance().histogram("categorize");
+	private static final LongAdder CATEGORIZED_REVIEWS = Metrics.getInstance().counter("categorize.reviews");
+	private static final LongAdder CATEGORIZED_TOKENS = Metrics.getInstance().counter("categorize.tokens");
+	private static final LatencyHistogram POS_TAG_LATENCY = Metrics.getInstance().histogram("posTag");
+	private static final LongAdder TAGGED_REVIEWS = Metrics.getInstance().counter("posTag.reviews");
+	private static final LongAdder TAGGED_TOKENS = Metrics.getInstance().counter("posTag.tokens");
+	private static final LatencyHistogram SENTENCE_DETECT_LATENCY = Metrics.getInstance().histogram("sentDetect");
+	private static final LongAdder DETECTED_SENTENCES = Metrics.getInstance().counter("sentDetect.sentences");
+
+	private final ModelRegistry modelRegistry;
+	private final ModelPool modelPool = ModelPool.getInstance();
+
+	/**
+	 * Number of feature hashing buckets, 0 for raw token features
+	 */
+	private int hashBuckets;
+	private int ngramSize = 1;
+
+	private TopicLexicon topicLexicon = TopicLexicon.getDefault();
+
+	/**
+	 * Constructor - Cache trained models in {@link #MODEL_REGISTRY_DIRECTORY}
+	 */
+	public NLPHelper() {
+		this(new ModelRegistry(new File(MODEL_REGISTRY_DIRECTORY)));
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param modelRegistry cache of trained models
+	 */
+	public NLPHelper(ModelRegistry modelRegistry) {
+		this.modelRegistry = modelRegistry;
+	}
+
+	/**
+	 * Train sentiment models on hashed features instead of raw tokens, so the
+	 * model size no longer grows with the vocabulary. Models trained before the
+	 * change keep their own features.
+	 * 
+	 * @param buckets   number of buckets the features are hashed into, 0 for raw
+	 *                  token features
+	 * @param ngramSize longest n-gram hashed, 1 for single tokens only
+	 */
+	public void setFeatureHashing(int buckets, int ngramSize) {
+		if (buckets > 0) {
+			// Fail on an invalid configuration before any training starts
+			new HashingFeatureGenerator(buckets, ngramSize);
+		}
+		this.hashBuckets = buckets;
+		this.ngramSize = ngramSize;
+	}
+
+	/**
+	 * Detect topics with another lexicon than {@link TopicLexicon#getDefault()}.
+	 * 
+	 * @param topicLexicon aspects and the terms naming them
+	 */
+	public void setTopicLexicon(TopicLexicon topicLexicon) {
+		this.topicLexicon = topicLexicon;
+	}
+
 	/**
 	 * Predict the sentiment of the review text using the DocumentCategorizer and
 	 * the trained model.
@@ -63,14 +155,129 @@ public class NLPHelper {
 		// Retrieve the categorization results
 		for (Integer id : reviews.keySet()) {
 			String text = reviews.get(id).text;
-			double[] outcomes = categorizer.categorize(text.split(" "));
-			String category = categorizer.getBestCategory(outcomes);
-			reviewToCategoryMap.put(reviews.get(id), Integer.parseInt(category));
+			int score = scoreReview(categorizer, TextTokenizer.get().reset(text).tokens());
+			reviewToCategoryMap.put(reviews.get(id), score);
 		}
 
 		return reviewToCategoryMap;
 	}
 
+	/**
+	 * Predict the sentiment of the reviews of a columnar table in parallel. Each
+	 * worker reads the table through its own flyweight view, so no review objects
+	 * are created.
+	 * 
+	 * @param model       the trained {@link DoccatModel}
+	 * @param table       the test review data
+	 * @param threadCount number of scoring threads
+	 * @return predicted score of every row of the table
+	 * @throws IOException
+	 */
+	public int[] testTextClassificationModel(DoccatModel model, ReviewTable table, int threadCount)
+			throws IOException {
+		final int[] scores = new int[table.size()];
+		final AtomicInteger cursor = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> workers = new ArrayList<Future<?>>();
+			for (int t = 0; t < threadCount; t++) {
+				workers.add(executor.submit(() -> {
+					DocumentCategorizer categorizer = new DocumentCategorizerME(model);
+					ReviewTable.View view = table.view();
+					int start;
+					while ((start = cursor.getAndAdd(SCORING_CHUNK_SIZE)) < scores.length) {
+						int end = Math.min(start + SCORING_CHUNK_SIZE, scores.length);
+						for (int i = start; i < end; i++) {
+							String[] tokens = TextTokenizer.get().reset(view.moveTo(i).text()).tokens();
+							scores[i] = scoreReview(categorizer, tokens);
+						}
+					}
+				}));
+			}
+			awaitAll(workers);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return scores;
+	}
+
+	/**
+	 * Predict the sentiment of the reviews of a preprocessed corpus in parallel,
+	 * straight from its cached tokens. Each scoring thread gets its own
+	 * categorizer from the supplier: a new {@link DocumentCategorizerME} over a
+	 * shared {@link DoccatModel}, which is not thread-safe, or a shared
+	 * {@link NaiveBayesModel}. Workers claim reviews in chunks so that long
+	 * reviews do not leave other threads idle.
+	 * 
+	 * @param categorizers supplies the categorizer of each scoring thread
+	 * @param corpus       the test review data
+	 * @param threadCount  number of scoring threads
+	 * @return predicted score of every review of the corpus
+	 * @throws IOException
+	 */
+	public int[] testTextClassificationModel(Supplier<DocumentCategorizer> categorizers, PreprocessedCorpus corpus,
+			int threadCount) throws IOException {
+		final int[] scores = new int[corpus.size()];
+		final AtomicInteger cursor = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> workers = new ArrayList<Future<?>>();
+			for (int t = 0; t < threadCount; t++) {
+				workers.add(executor.submit(() -> {
+					DocumentCategorizer categorizer = categorizers.get();
+					int start;
+					while ((start = cursor.getAndAdd(SCORING_CHUNK_SIZE)) < scores.length) {
+						int end = Math.min(start + SCORING_CHUNK_SIZE, scores.length);
+						for (int i = start; i < end; i++) {
+							scores[i] = scoreReview(categorizer, corpus.getTokens(i));
+						}
+					}
+				}));
+			}
+			awaitAll(workers);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return scores;
+	}
+
+	/**
+	 * Predict the sentiment of one tokenized review.
+	 * 
+	 * @param categorizer categorizer owned by the calling thread
+	 * @param tokens      tokens of the cleaned review text
+	 * @return the predicted score
+	 */
+	public int scoreReview(DocumentCategorizer categorizer, String[] tokens) {
+		long start = System.nanoTime();
+		double[] outcomes = categorizer.categorize(tokens);
+		CATEGORIZE_LATENCY.record(System.nanoTime() - start);
+		CATEGORIZED_REVIEWS.increment();
+		CATEGORIZED_TOKENS.add(tokens.length);
+		return Integer.parseInt(categorizer.getBestCategory(outcomes));
+	}
+
+	/**
+	 * Tag the parts of speech of one tokenized review, recording the tagging
+	 * latency and counts.
+	 * 
+	 * @param tagger the parts-of-speech tagger owned by the calling thread
+	 * @param tokens tokens of the cleaned review text
+	 * @return the tag of every token
+	 */
+	public static String[] tag(POSTaggerME tagger, String[] tokens) {
+		long start = System.nanoTime();
+		String[] tags = tagger.tag(tokens);
+		POS_TAG_LATENCY.record(System.nanoTime() - start);
+		TAGGED_REVIEWS.increment();
+		TAGGED_TOKENS.add(tokens.length);
+		return tags;
+	}
+
 	/**
 	 * Read, and process training file. Then load the {@link DoccatModel} and train
 	 * against all records in pathToTrainingFile.
@@ -82,18 +289,96 @@ public class NLPHelper {
 	 * @throws IOException
 	 */
 	public DocumentCategorizer trainTextClassificationModel(String pathToTrainingFile) throws IOException {
-		InputStreamFactory dataIn = new MarkableFileInputStreamFactory(new File(pathToTrainingFile));
-		ObjectStream<String> lineStream = new PlainTextByLineStream(dataIn, "UTF-8");
-		ObjectStream<DocumentSample> sampleStream = new DocumentSampleStream(lineStream);
+		DocumentCategorizer categorizer = new DocumentCategorizerME(trainDoccatModel(pathToTrainingFile));
+		return categorizer;
+	}
+
+	/**
+	 * Read, and process training file and train a {@link DoccatModel} against all
+	 * records in pathToTrainingFile. The model can be shared between threads.
+	 * 
+	 * @param pathToTrainingFile path to the file containing training records
+	 * @return model the trained model object
+	 * @throws IOException
+	 */
+	public DoccatModel trainDoccatModel(String pathToTrainingFile) throws IOException {
+		File trainingFile = new File(pathToTrainingFile);
 		TrainingParameters params = new TrainingParameters();
 		params.put(TrainingParameters.ITERATIONS_PARAM, 20 + "");
 		params.put(TrainingParameters.CUTOFF_PARAM, 0 + "");
-		DoccatModel model = DocumentCategorizerME.train("en", sampleStream, params, new DoccatFactory());
-		BufferedOutputStream modelOut = new BufferedOutputStream(
-				new FileOutputStream(new File("C:/Users/Vijay/yelp-dataset/review-train_500.bin")));
-		model.serialize(modelOut);
-		DocumentCategorizer categorizer = new DocumentCategorizerME(model);
-		return categorizer;
+		DoccatFactory factory = hashBuckets > 0 ? new HashingDoccatFactory(hashBuckets, ngramSize)
+				: new DoccatFactory();
+
+		// Only train when the training file or parameters changed since the last run
+		return modelRegistry.getOrTrain(trainingFile, params, factory, () -> {
+			InputStreamFactory dataIn = new MarkableFileInputStreamFactory(trainingFile);
+			ObjectStream<String> lineStream = new PlainTextByLineStream(dataIn, "UTF-8");
+			ObjectStream<DocumentSample> sampleStream = new DocumentSampleStream(lineStream);
+			return DocumentCategorizerME.train("en", sampleStream, params, factory);
+		});
+	}
+
+	/**
+	 * Train a {@link NaiveBayesModel} against all records in pathToTrainingFile in
+	 * parallel. Each worker counts the chunks of lines it claims into a model of
+	 * its own and the shard models are merged at the end.
+	 *
+	 * @param pathToTrainingFile path to the file containing training records
+	 * @param threadCount        number of training threads
+	 * @return model the trained model object
+	 * @throws IOException
+	 */
+	public NaiveBayesModel trainNaiveBayesModel(String pathToTrainingFile, int threadCount) throws IOException {
+		final List<String> lines = Files.readAllLines(new File(pathToTrainingFile).toPath(), StandardCharsets.UTF_8);
+		final List<NaiveBayesModel> shards = Collections.synchronizedList(new ArrayList<NaiveBayesModel>());
+		final AtomicInteger cursor = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> workers = new ArrayList<Future<?>>();
+			for (int t = 0; t < threadCount; t++) {
+				workers.add(executor.submit(() -> {
+					NaiveBayesModel shard = new NaiveBayesModel();
+					shards.add(shard);
+					int start;
+					while ((start = cursor.getAndAdd(SCORING_CHUNK_SIZE)) < lines.size()) {
+						int end = Math.min(start + SCORING_CHUNK_SIZE, lines.size());
+						for (int i = start; i < end; i++) {
+							shard.addLine(lines.get(i));
+						}
+					}
+				}));
+			}
+			awaitAll(workers);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		NaiveBayesModel model = new NaiveBayesModel();
+		for (NaiveBayesModel shard : shards) {
+			model.merge(shard);
+		}
+		LOGGER.info("Trained Naive Bayes model on " + model.getDocumentCount() + " documents and "
+				+ model.getTermCount() + " terms");
+		return model;
+	}
+
+	/**
+	 * Add the records of a training file to the Naive Bayes model stored in
+	 * modelFile, or to a new model if there is none yet, and store the result.
+	 *
+	 * @param modelFile          file of the model to update
+	 * @param pathToTrainingFile path to the file containing new training records
+	 * @return model the updated model object
+	 * @throws IOException
+	 */
+	public NaiveBayesModel updateNaiveBayesModel(File modelFile, String pathToTrainingFile) throws IOException {
+		NaiveBayesModel model = modelFile.isFile() ? NaiveBayesModel.load(modelFile) : new NaiveBayesModel();
+		long added = model.addAll(pathToTrainingFile);
+		model.save(modelFile);
+		LOGGER.info("Added " + added + " documents to " + modelFile.getPath() + ", now "
+				+ model.getDocumentCount() + " documents");
+		return model;
 	}
 
 	/**
@@ -113,14 +398,11 @@ public class NLPHelper {
 		Map<Review, List<String>> reviewToPartsOfSpeechMap = new HashMap<Review, List<String>>();
 
 		// Load entity models
-		File file = new File(entityModelPath);
-		InputStream model = new FileInputStream(file);
-		POSModel posModel = new POSModel(model);
-		POSTaggerME tagger = new POSTaggerME(posModel);
+		POSTaggerME tagger = modelPool.getPOSTagger(entityModelPath);
 
 		for (Review review : reviewToScoreMap.keySet()) {
 			String[] tokens = getTokens(review);
-			String[] tagged = tagger.tag(tokens);
+			String[] tagged = tag(tagger, tokens);
 			List<String> reviewTextNounsList = new ArrayList<String>();
 
 			for (int i = 0; i < tagged.length; i++) {
@@ -160,14 +442,14 @@ public class NLPHelper {
 			}
 			// Load entity models
 			for (String pathToModelFile : entityModelsToLoad) {
-				File file = new File(pathToModelFile);
-				TokenNameFinderModel model = new TokenNameFinderModel(file);
-				NameFinderME nameFinderME = new NameFinderME(model);
+				NameFinderME nameFinderME = modelPool.getNameFinder(pathToModelFile);
 
 				// For each sentence in the review text find if it refers to a
 				// location, or organization
 				String[] tokens = getTokens(review);
 				List<Span> spans = Arrays.asList(nameFinderME.find(tokens));
+				// Each review is a separate document for the shared name finder
+				nameFinderME.clearAdaptiveData();
 				if (spans.isEmpty()) {
 					continue;
 				}
@@ -198,33 +480,16 @@ public class NLPHelper {
 	 */
 	public String[] getTokens(Review review) {
 		// Tokenize review text
-		SimpleTokenizer tokenizer = SimpleTokenizer.INSTANCE;
-		String[] tokens = tokenizer.tokenize(review.text);
-		return tokens;
+		return TextTokenizer.get().reset(review.text).tokens();
 	}
 
 	/**
 	 * 
 	 * @param reviewIdToReviewTextMap
-	 * @throws FileNotFoundException
+	 * @throws IOException
 	 */
-	public List<String[]> sentenceDetection(Map<Integer, Review> reviewIdToReviewTextMap) throws FileNotFoundException {
-		InputStream modelIn = new FileInputStream("C:/Users/Vijay/photon-BU622/YelpNLP/models/en-sent.bin");
-		SentenceModel model = null;
-		try {
-			model = new SentenceModel(modelIn);
-		} catch (IOException e) {
-			e.printStackTrace();
-		} finally {
-			if (modelIn != null) {
-				try {
-					modelIn.close();
-				} catch (IOException e) {
-				}
-			}
-		}
-
-		SentenceDetectorME sentenceDetector = new SentenceDetectorME(model);
+	public List<String[]> sentenceDetection(Map<Integer, Review> reviewIdToReviewTextMap) throws IOException {
+		SentenceDetectorME sentenceDetector = modelPool.getSentenceDetector(SENTENCE_MODEL_FILE);
 
 		List<String[]> resultSentences = new ArrayList<String[]>();
 
@@ -237,6 +502,118 @@ public class NLPHelper {
 
 	}
 
+	/**
+	 * Score the sentiment and topic of every sentence instead of every review,
+	 * so a review praising the food and panning the service keeps both
+	 * opinions. Runs in three steps: the reviews are split into sentences with
+	 * the shared {@link #SENTENCE_MODEL_FILE} model, the sentences of all reviews
+	 * are scored and tagged in chunks claimed by the workers, so long reviews do
+	 * not hold up a worker, and the sentence results are rolled up per review and
+	 * per business. A sentence's topic is the aspect of the first topic lexicon
+	 * term in it, otherwise its noun with the highest TF-IDF; sentences with
+	 * neither are left out of the roll-ups.
+	 * 
+	 * @param model              the trained sentiment model
+	 * @param reviews            reviews with their raw text, punctuation
+	 *                           included
+	 * @param pathToPOSModelFile path to opennlp pos model file
+	 * @param topicScorer        ranks the nouns of every sentence
+	 * @param threadCount        number of worker threads
+	 * @param businessAspects    receives the score of every sentence per
+	 *                           business and aspect
+	 * @return the sentiment of every review per aspect, in review order and then
+	 *         in order of first mention
+	 * @throws IOException error loading a model
+	 */
+	public List<AspectSentiment> runSentenceSentiment(DoccatModel model, List<Review> reviews,
+			String pathToPOSModelFile, TfIdfTopicScorer topicScorer, int threadCount,
+			SentimentAggregator businessAspects) throws IOException {
+		// Step 1 - Split every review into sentences
+		String[][] reviewSentences = new String[reviews.size()][];
+		AtomicInteger reviewCursor = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<?>> workers = new ArrayList<Future<?>>();
+			for (int t = 0; t < threadCount; t++) {
+				workers.add(executor.submit(() -> {
+					SentenceDetectorME detector = modelPool.getSentenceDetector(SENTENCE_MODEL_FILE);
+					int start;
+					while ((start = reviewCursor.getAndAdd(TAGGING_CHUNK_SIZE)) < reviewSentences.length) {
+						int end = Math.min(start + TAGGING_CHUNK_SIZE, reviewSentences.length);
+						for (int i = start; i < end; i++) {
+							long begin = System.nanoTime();
+							reviewSentences[i] = detector.sentDetect(reviews.get(i).text);
+							SENTENCE_DETECT_LATENCY.record(System.nanoTime() - begin);
+							DETECTED_SENTENCES.add(reviewSentences[i].length);
+						}
+					}
+					return null;
+				}));
+			}
+			awaitAll(workers);
+
+			// Step 2 - Score and tag the sentences of all reviews as one batch
+			int[] offsets = new int[reviewSentences.length + 1];
+			for (int i = 0; i < reviewSentences.length; i++) {
+				offsets[i + 1] = offsets[i] + reviewSentences[i].length;
+			}
+			String[] sentences = new String[offsets[reviewSentences.length]];
+			for (int i = 0; i < reviewSentences.length; i++) {
+				System.arraycopy(reviewSentences[i], 0, sentences, offsets[i], reviewSentences[i].length);
+			}
+			int[] scores = new int[sentences.length];
+			String[] topics = new String[sentences.length];
+			AtomicInteger sentenceCursor = new AtomicInteger();
+			workers.clear();
+			for (int t = 0; t < threadCount; t++) {
+				workers.add(executor.submit(() -> {
+					DocumentCategorizer categorizer = new DocumentCategorizerME(model);
+					int start;
+					while ((start = sentenceCursor.getAndAdd(SCORING_CHUNK_SIZE)) < sentences.length) {
+						int end = Math.min(start + SCORING_CHUNK_SIZE, sentences.length);
+						for (int i = start; i < end; i++) {
+							String[] tokens = TextTokenizer.get().reset(sentences[i]).tokens();
+							if (tokens.length == 0) {
+								topics[i] = "";
+								continue;
+							}
+							scores[i] = scoreReview(categorizer, tokens);
+							String topic = topicScorer.selectTopic(tagNouns(tokens, pathToPOSModelFile));
+							String aspect = topicLexicon.match(tokens);
+							topics[i] = aspect != null ? aspect : topic;
+						}
+					}
+					return null;
+				}));
+			}
+			awaitAll(workers);
+
+			// Step 3 - Roll the sentences up per review and aspect, and per business
+			List<AspectSentiment> aspectSentiments = new ArrayList<AspectSentiment>();
+			Map<String, long[]> aspectStats = new LinkedHashMap<String, long[]>();
+			for (int r = 0; r < reviewSentences.length; r++) {
+				Review review = reviews.get(r);
+				aspectStats.clear();
+				for (int i = offsets[r]; i < offsets[r + 1]; i++) {
+					if (topics[i].isEmpty()) {
+						continue;
+					}
+					long[] stats = aspectStats.computeIfAbsent(topics[i], a -> new long[2]);
+					stats[0]++;
+					stats[1] += scores[i];
+					businessAspects.record(review.businessId, topics[i], scores[i]);
+				}
+				for (Map.Entry<String, long[]> aspect : aspectStats.entrySet()) {
+					aspectSentiments.add(new AspectSentiment(review.id, review.businessId, aspect.getKey(),
+							(int) aspect.getValue()[0], aspect.getValue()[1]));
+				}
+			}
+			return aspectSentiments;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	/**
 	 * Tag nouns in the review text and return a list of Reviews with text set to
 	 * the defined features (i.e. nouns)
@@ -252,29 +629,14 @@ public class NLPHelper {
 		List<Review> nounsReviewsList = new ArrayList<Review>();
 
 		// Load entity model for parts-of-speech
-		File file = new File(pathToPOSModelFile);
-		InputStream model = new FileInputStream(file);
-		POSModel posModel = new POSModel(model);
-		POSTaggerME tagger = new POSTaggerME(posModel);
+		POSTaggerME tagger = modelPool.getPOSTagger(pathToPOSModelFile);
 		StringBuilder sb = new StringBuilder();
 
 		for (Integer id : reviewsMap.keySet()) {
 			Review review = reviewsMap.get(id);
-			String[] tokens = getTokens(review);
-			String[] tagged = tagger.tag(tokens);
-
-			for (int i = 0; i < tagged.length; i++) {
-				if (tagged[i].equalsIgnoreCase("nn")) {
-					// Only retain nouns in the review text
-					sb.append(tokens[i] + " ");
-				}
-			}
 
 			// Review text becomes features for model
-			review.text = sb.toString();
-
-			// Clear StringBuilder for the next review
-			sb.setLength(0);
+			review.text = extractNouns(tagger, review, sb);
 			nounsReviewsList.add(review);
 
 			if (nounsReviewsList.isEmpty()) {
@@ -286,41 +648,228 @@ public class NLPHelper {
 
 	}
 
+	/**
+	 * Tokenize reviews and tag their nouns in parallel. The reviews are split
+	 * into chunks across a fork-join pool; the {@link POSModel} comes from the
+	 * {@link ModelPool} and every pool thread gets its own {@link POSTaggerME},
+	 * which is not thread-safe. The result of every review is stored at its own
+	 * index, so the order does not depend on scheduling.
+	 * 
+	 * @param reviews            reviews to tag
+	 * @param count              number of reviews to tag, from the first
+	 * @param pathToPOSModelFile path to opennlp pos model file
+	 * @param pool               pool to tag on
+	 * @param tokens             receives the tokens of every review
+	 * @param nouns              receives the noun flag of every token
+	 * @throws IOException error loading the model
+	 */
+	public static void tagNouns(Review[] reviews, int count, String pathToPOSModelFile, ForkJoinPool pool,
+			String[][] tokens, boolean[][] nouns) throws IOException {
+		// Load the model up front so that a missing file fails before forking
+		ModelPool.getInstance().getPOSModel(pathToPOSModelFile);
+		try {
+			pool.invoke(new NounTaggingTask(pathToPOSModelFile, reviews, tokens, nouns, 0, count));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Tag the tokens of one review with the parts-of-speech tagger of the calling
+	 * thread and keep only the nouns.
+	 * 
+	 * @param tokens             tokens of the cleaned review text
+	 * @param pathToPOSModelFile path to opennlp pos model file
+	 * @return nouns the nouns of the review
+	 * @throws IOException
+	 */
+	public String[] tagNouns(String[] tokens, String pathToPOSModelFile) throws IOException {
+		String[] tagged = tag(modelPool.getPOSTagger(pathToPOSModelFile), tokens);
+		List<String> nouns = new ArrayList<String>();
+		for (int i = 0; i < tagged.length; i++) {
+			if (tagged[i].equalsIgnoreCase("nn")) {
+				nouns.add(tokens[i]);
+			}
+		}
+		return nouns.toArray(new String[nouns.size()]);
+	}
+
+	/**
+	 * Tag the review tokens and keep only the nouns.
+	 * 
+	 * @param tagger the parts-of-speech tagger owned by the calling thread
+	 * @param review the review to tag
+	 * @param sb     scratch buffer, cleared before returning
+	 * @return the nouns of the review separated by spaces
+	 */
+	private String extractNouns(POSTaggerME tagger, Review review, StringBuilder sb) {
+		String[] tokens = getTokens(review);
+		String[] tagged = tag(tagger, tokens);
+
+		for (int i = 0; i < tagged.length; i++) {
+			if (tagged[i].equalsIgnoreCase("nn")) {
+				// Only retain nouns in the review text
+				sb.append(tokens[i]).append(' ');
+			}
+		}
+
+		String nouns = sb.toString();
+		// Clear StringBuilder for the next review
+		sb.setLength(0);
+		return nouns;
+	}
+
+	/**
+	 * Fork-join task which splits a range of reviews in half until it is small
+	 * enough to tag directly.
+	 */
+	private static class NounTaggingTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String pathToPOSModelFile;
+		private final Review[] reviews;
+		private final String[][] tokens;
+		private final boolean[][] nouns;
+		private final int start;
+		private final int end;
+
+		NounTaggingTask(String pathToPOSModelFile, Review[] reviews, String[][] tokens, boolean[][] nouns,
+				int start, int end) {
+			this.pathToPOSModelFile = pathToPOSModelFile;
+			this.reviews = reviews;
+			this.tokens = tokens;
+			this.nouns = nouns;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= TAGGING_CHUNK_SIZE) {
+				POSTaggerME tagger;
+				try {
+					tagger = ModelPool.getInstance().getPOSTagger(pathToPOSModelFile);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				for (int i = start; i < end; i++) {
+					tokens[i] = TextTokenizer.get().reset(reviews[i].text).tokens();
+					String[] tags = tag(tagger, tokens[i]);
+					nouns[i] = new boolean[tags.length];
+					for (int t = 0; t < tags.length; t++) {
+						nouns[i][t] = tags[t].equalsIgnoreCase("nn");
+					}
+				}
+				return;
+			}
+
+			int middle = (start + end) >>> 1;
+			invokeAll(new NounTaggingTask(pathToPOSModelFile, reviews, tokens, nouns, start, middle),
+					new NounTaggingTask(pathToPOSModelFile, reviews, tokens, nouns, middle, end));
+		}
+	}
+
+	/**
+	 * Count how often every noun occurs across all reviews.
+	 * 
+	 * @param reviewNounsList reviews with nouns as text
+	 * @return wordToFrequencyCount map of word to number of occurrences
+	 */
 	public Map<String, Integer> computeWordFrequencyMatrix(List<Review> reviewNounsList) {
-		Map<String, Integer> wordToFrequencyCount = new HashMap<String, Integer>();
+		Vocabulary vocabulary = new Vocabulary();
+		return computeTermFrequencies(reviewNounsList, vocabulary).toMap(vocabulary);
+	}
 
+	/**
+	 * Count how often every noun occurs across all reviews of a preprocessed
+	 * corpus. The counts are keyed by the term IDs of the corpus vocabulary.
+	 * 
+	 * @param corpus the reviews with tagged nouns
+	 * @return termFrequencies map of term ID to number of occurrences
+	 */
+	public IntIntCounter computeTermFrequencies(PreprocessedCorpus corpus) {
+		IntIntCounter termFrequencies = new IntIntCounter();
+		for (int review = 0; review < corpus.size(); review++) {
+			int count = corpus.getTokenCount(review);
+			for (int i = 0; i < count; i++) {
+				if (corpus.isNoun(review, i)) {
+					termFrequencies.increment(corpus.getTermId(review, i));
+				}
+			}
+		}
+		return termFrequencies;
+	}
+
+	/**
+	 * Count how often every noun occurs across all reviews. Words are interned
+	 * into the vocabulary and counted by term ID, so no string or boxed integer
+	 * is created for words already seen.
+	 * 
+	 * @param reviewNounsList reviews with nouns as text
+	 * @param vocabulary      vocabulary to intern the words into
+	 * @return termFrequencies map of term ID to number of occurrences
+	 */
+	public IntIntCounter computeTermFrequencies(List<Review> reviewNounsList, Vocabulary vocabulary) {
+		IntIntCounter termFrequencies = new IntIntCounter();
+
+		TextTokenizer tokenizer = TextTokenizer.get();
 		for (Review review : reviewNounsList) {
-			String text = review.text;
-			String[] tokens = text.split(" ");
-			for (int i = 0; i < tokens.length; i++) {
-				String word = tokens[i];
-				if (wordToFrequencyCount.containsKey(word)) {
-					// Increment the count
-					int count = wordToFrequencyCount.get(word);
-					count++;
-					wordToFrequencyCount.put(word, count);
-				} else {
-					wordToFrequencyCount.put(word, 0);
+			tokenizer.reset(review.text);
+			for (int i = 0; i < tokenizer.size(); i++) {
+				termFrequencies.increment(vocabulary.intern(tokenizer, i));
+			}
+		}
+
+		return termFrequencies;
+	}
+
+	/**
+	 * Count the nouns of a preprocessed corpus approximately in fixed memory.
+	 * Unlike {@link #computeTermFrequencies(PreprocessedCorpus)} this does not
+	 * keep a count for every term, so it can run over the full dataset. Nouns
+	 * that were not monitored are left out of the returned counts, the others
+	 * are overestimated by at most their error.
+	 * 
+	 * @param corpus       the reviews with tagged nouns
+	 * @param heavyHitters tracker to feed the nouns to
+	 * @return termFrequencies map of term ID to estimated number of occurrences
+	 *         of the monitored nouns
+	 */
+	public IntIntCounter computeTermFrequencies(PreprocessedCorpus corpus, SpaceSaving heavyHitters) {
+		for (int review = 0; review < corpus.size(); review++) {
+			int count = corpus.getTokenCount(review);
+			for (int i = 0; i < count; i++) {
+				if (corpus.isNoun(review, i)) {
+					heavyHitters.offer(corpus.getTerm(corpus.getTermId(review, i)));
 				}
 			}
 		}
 
-		return wordToFrequencyCount;
+		IntIntCounter termFrequencies = new IntIntCounter();
+		Vocabulary vocabulary = corpus.getVocabulary();
+		for (SpaceSaving.Entry entry : heavyHitters.top(Integer.MAX_VALUE)) {
+			termFrequencies.add(vocabulary.lookup(entry.getWord()),
+					(int) Math.min(entry.getCount(), Integer.MAX_VALUE));
+		}
+		return termFrequencies;
 	}
 
 	public Map<Review, String> runTopicCategorization(List<Review> reviewNounsList,
 			Map<String, Integer> wordFrequencyMap) {
 		Map<Review, String> reviewToTopicMap = new HashMap<Review, String>();
 
+		TextTokenizer tokenizer = TextTokenizer.get();
 		for (Review review : reviewNounsList) {
 			String topic = null;
-			String text = review.text;
-			String[] words = text.split(" ");
+			String[] words = tokenizer.reset(review.text).tokens();
 			int maxCount = -1;
+			int state = TopicLexicon.START;
 			for (String word : words) {
-				if (Topic.TOPICS.contains(word)) {
-					// If this word is a HOT TOPIC then use it
-					topic = word;
+				state = topicLexicon.next(state, topicLexicon.tokenId(word));
+				if (topicLexicon.aspectOf(state) != TopicLexicon.NOT_FOUND) {
+					// If this word completes a HOT TOPIC term then use its aspect
+					topic = topicLexicon.aspect(topicLexicon.aspectOf(state));
 					break;
 				}
 				if (wordFrequencyMap.containsKey(word)) {
@@ -335,7 +884,7 @@ public class NLPHelper {
 			if (topic == null) {
 				// If no word matched, then just choose the first word in the review as the
 				// topic
-				topic = words[0];
+				topic = words.length > 0 ? words[0] : "";
 			}
 			reviewToTopicMap.put(review, topic);
 		}
@@ -343,6 +892,245 @@ public class NLPHelper {
 		return reviewToTopicMap;
 	}
 
+	/**
+	 * Select the topic of one review while reviews stream through, with the
+	 * nouns as the only tokens.
+	 * 
+	 * @param nouns           nouns of the review
+	 * @param nounFrequencies running noun frequencies shared by all reviews
+	 * @return topic the topic, empty if the review has no nouns
+	 * @see #selectTopic(String[], String[], SpaceSaving)
+	 */
+	public String selectTopic(String[] nouns, SpaceSaving nounFrequencies) {
+		return selectTopic(nouns, nouns, nounFrequencies);
+	}
+
+	/**
+	 * Select the topic of one review while reviews stream through. The nouns are
+	 * first added to the running corpus frequencies; then the aspect of the first
+	 * term of the topic lexicon in the tokens wins outright, otherwise the noun
+	 * with the highest estimated count so far is chosen. The frequencies monitor
+	 * a fixed number of nouns, so a long-running process stays bounded while
+	 * nouns that only become frequent later still displace rare ones. Safe to
+	 * call from multiple threads, the frequencies are updated and read under
+	 * their lock.
+	 * 
+	 * @param tokens          all tokens of the review, matched against the topic
+	 *                        lexicon
+	 * @param nouns           nouns of the review
+	 * @param nounFrequencies running noun frequencies shared by all reviews
+	 * @return topic the topic, empty if the review has no topic term and no nouns
+	 */
+	public String selectTopic(String[] tokens, String[] nouns, SpaceSaving nounFrequencies) {
+		String topic = null;
+		long maxCount = -1;
+		synchronized (nounFrequencies) {
+			for (String noun : nouns) {
+				nounFrequencies.offer(noun);
+			}
+			for (String noun : nouns) {
+				long count = nounFrequencies.count(noun);
+				if (count > maxCount) {
+					maxCount = count;
+					topic = noun;
+				}
+			}
+		}
+
+		String aspect = topicLexicon.match(tokens);
+		if (aspect != null) {
+			// If the review names a HOT TOPIC then use it
+			return aspect;
+		}
+		return topic == null ? "" : topic;
+	}
+
+	/**
+	 * Select the topic of one review while reviews stream through, ranking the
+	 * nouns by TF-IDF instead of corpus counts. The nouns are added to the
+	 * running noun frequencies and the review to the document frequencies of the
+	 * scorer; then the aspect of the first term of the topic lexicon in the
+	 * tokens wins outright, otherwise the noun with the highest TF-IDF is chosen.
+	 * Safe to call from multiple threads.
+	 * 
+	 * @param tokens          all tokens of the review, matched against the topic
+	 *                        lexicon
+	 * @param nouns           nouns of the review
+	 * @param nounFrequencies running noun frequencies shared by all reviews
+	 * @param topicScorer     TF-IDF scorer shared by all reviews
+	 * @return topic the topic, empty if the review has no topic term and no nouns
+	 */
+	public String selectTopic(String[] tokens, String[] nouns, SpaceSaving nounFrequencies,
+			TfIdfTopicScorer topicScorer) {
+		synchronized (nounFrequencies) {
+			for (String noun : nouns) {
+				nounFrequencies.offer(noun);
+			}
+		}
+		return selectTopic(tokens, nouns, topicScorer);
+	}
+
+	/**
+	 * Select the topic of one review by TF-IDF without counting its nouns. The
+	 * aspect of the first term of the topic lexicon in the tokens wins outright,
+	 * otherwise the noun with the highest TF-IDF is chosen. Safe to call from
+	 * multiple threads.
+	 * 
+	 * @param tokens      all tokens of the review, matched against the topic
+	 *                    lexicon
+	 * @param nouns       nouns of the review
+	 * @param topicScorer TF-IDF scorer shared by all reviews
+	 * @return topic the topic, empty if the review has no topic term and no nouns
+	 */
+	public String selectTopic(String[] tokens, String[] nouns, TfIdfTopicScorer topicScorer) {
+		String topic = topicScorer.selectTopic(nouns);
+
+		String aspect = topicLexicon.match(tokens);
+		// If the review names a HOT TOPIC then use it
+		return aspect != null ? aspect : topic;
+	}
+
+	/**
+	 * Select the topic of every review using term IDs. The aspect of the first
+	 * term of the topic lexicon wins outright, otherwise the most frequent noun in
+	 * the corpus is chosen.
+	 * 
+	 * @param reviewNounsList reviews with nouns as text
+	 * @param vocabulary      vocabulary the frequencies are keyed by
+	 * @param termFrequencies map of term ID to number of occurrences
+	 * @return reviewToTopicMap map of review to topic
+	 */
+	public Map<Review, String> runTopicCategorization(List<Review> reviewNounsList, Vocabulary vocabulary,
+			IntIntCounter termFrequencies) {
+		Map<Review, String> reviewToTopicMap = new HashMap<Review, String>();
+
+		int[] lexiconIds = topicLexicon.translate(vocabulary.terms());
+
+		TextTokenizer tokenizer = TextTokenizer.get();
+		for (Review review : reviewNounsList) {
+			tokenizer.reset(review.text);
+			String aspect = null;
+			int topicId = Vocabulary.NOT_FOUND;
+			int maxCount = -1;
+			int state = TopicLexicon.START;
+			for (int i = 0; i < tokenizer.size(); i++) {
+				int termId = vocabulary.lookup(tokenizer, i);
+				if (termId == Vocabulary.NOT_FOUND || termId >= lexiconIds.length) {
+					state = TopicLexicon.START;
+					continue;
+				}
+				state = topicLexicon.next(state, lexiconIds[termId]);
+				if (topicLexicon.aspectOf(state) != TopicLexicon.NOT_FOUND) {
+					// If this word completes a HOT TOPIC term then use its aspect
+					aspect = topicLexicon.aspect(topicLexicon.aspectOf(state));
+					break;
+				}
+				if (termFrequencies.containsKey(termId)) {
+					int count = termFrequencies.get(termId);
+					if (count > maxCount) {
+						maxCount = count;
+						topicId = termId;
+					}
+				}
+			}
+
+			String topic;
+			if (aspect != null) {
+				topic = aspect;
+			} else if (topicId != Vocabulary.NOT_FOUND) {
+				topic = vocabulary.term(topicId);
+			} else {
+				// If no word matched, then just choose the first word in the review as the
+				// topic
+				topic = tokenizer.size() > 0 ? tokenizer.token(0) : "";
+			}
+			reviewToTopicMap.put(review, topic);
+		}
+
+		return reviewToTopicMap;
+	}
+
+	/**
+	 * Select the topic of every review of a preprocessed corpus from its cached
+	 * term IDs, with the same rules as
+	 * {@link #runTopicCategorization(List, Vocabulary, IntIntCounter)}. The topic
+	 * lexicon is matched against all tokens, so phrases mixing nouns and other
+	 * words are found; the most frequent noun is the fallback.
+	 * 
+	 * @param corpus          the reviews with tagged nouns
+	 * @param termFrequencies map of corpus term ID to number of occurrences
+	 * @return topic of every review of the corpus
+	 */
+	public String[] runTopicCategorization(PreprocessedCorpus corpus, IntIntCounter termFrequencies) {
+		String[] topics = new String[corpus.size()];
+
+		int[] lexiconIds = topicLexicon.translate(corpus.getVocabulary().terms());
+
+		for (int review = 0; review < topics.length; review++) {
+			int count = corpus.getTokenCount(review);
+			String aspect = null;
+			int topicId = Vocabulary.NOT_FOUND;
+			int firstNounId = Vocabulary.NOT_FOUND;
+			int maxCount = -1;
+			int state = TopicLexicon.START;
+			for (int i = 0; i < count; i++) {
+				int termId = corpus.getTermId(review, i);
+				state = topicLexicon.next(state, lexiconIds[termId]);
+				if (topicLexicon.aspectOf(state) != TopicLexicon.NOT_FOUND) {
+					// If this word completes a HOT TOPIC term then use its aspect
+					aspect = topicLexicon.aspect(topicLexicon.aspectOf(state));
+					break;
+				}
+				if (!corpus.isNoun(review, i)) {
+					continue;
+				}
+				if (firstNounId == Vocabulary.NOT_FOUND) {
+					firstNounId = termId;
+				}
+				if (termFrequencies.containsKey(termId)) {
+					int frequency = termFrequencies.get(termId);
+					if (frequency > maxCount) {
+						maxCount = frequency;
+						topicId = termId;
+					}
+				}
+			}
+
+			if (aspect != null) {
+				topics[review] = aspect;
+				continue;
+			}
+			if (topicId == Vocabulary.NOT_FOUND) {
+				// If no word matched, then just choose the first noun in the review as the
+				// topic
+				topicId = firstNounId;
+			}
+			topics[review] = topicId == Vocabulary.NOT_FOUND ? "" : corpus.getTerm(topicId);
+		}
+
+		return topics;
+	}
+
+	/**
+	 * Select the topic of every review of a preprocessed corpus in one pass,
+	 * scoring every review against the document frequencies of the reviews before
+	 * it. The aspect of the first term of the topic lexicon wins outright,
+	 * otherwise the noun with the highest TF-IDF is chosen.
+	 * 
+	 * @param corpus      the reviews with tagged nouns
+	 * @param topicScorer TF-IDF scorer, possibly warm-started
+	 * @return topic of every review of the corpus
+	 */
+	public String[] runTopicCategorization(PreprocessedCorpus corpus, TfIdfTopicScorer topicScorer) {
+		String[] topics = new String[corpus.size()];
+		for (int review = 0; review < topics.length; review++) {
+			String topic = topicScorer.selectTopic(corpus.getNouns(review));
+			String aspect = topicLexicon.match(corpus.getTokens(review));
+			topics[review] = aspect != null ? aspect : topic;
+		}
+		return topics;
+	}
+
 	/**
 	 * Summarize the results of topic analysis package into a ReviewResult object
 	 * 
@@ -351,6 +1139,21 @@ public class NLPHelper {
 	 * @return
 	 */
 	public List<ReviewResult> summarizeResults(Map<Review, String> reviewToTopicMap, Map<Review, Integer> scores) {
+		return summarizeResults(reviewToTopicMap, scores, null);
+	}
+
+	/**
+	 * Summarize the results of topic analysis package into a ReviewResult object
+	 * and record every result in the aggregator.
+	 * 
+	 * @param reviewToTopicMap
+	 * @param scores
+	 * @param aggregator       per business and topic sentiment statistics, may be
+	 *                         null
+	 * @return
+	 */
+	public List<ReviewResult> summarizeResults(Map<Review, String> reviewToTopicMap, Map<Review, Integer> scores,
+			SentimentAggregator aggregator) {
 		Map<String, List<Review>> businessToReviewListMap = new HashMap<String, List<Review>>();
 
 		List<ReviewResult> reviewResults = new ArrayList<ReviewResult>();
@@ -381,10 +1184,37 @@ public class NLPHelper {
 				// Otherwise get the score and the topic
 				ReviewResult result = new ReviewResult(review, scores.get(review), reviewToTopicMap.get(review));
 				reviewResults.add(result);
+				if (aggregator != null) {
+					aggregator.record(result);
+				}
 			}
 		}
 
 		return reviewResults;
 	}
 
+	/**
+	 * Wait for every worker to finish, rethrowing the first failure as an
+	 * {@link IOException}.
+	 * 
+	 * @param workers futures of the submitted workers
+	 * @throws IOException
+	 */
+	private void awaitAll(List<? extends Future<?>> workers) throws IOException {
+		try {
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for workers");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
 }
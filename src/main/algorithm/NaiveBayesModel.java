@@ -0,0 +1,482 @@
+package main.algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import opennlp.tools.doccat.DocumentCategorizer;
+
+/**
+ * Multinomial Naive Bayes sentiment model over a bag of words. The model is
+ * nothing but counts: documents per category and occurrences of every term
+ * per category, kept in primitive arrays indexed by term ID. Counts only ever
+ * add up, so the model can be updated with new batches of labelled reviews and
+ * models trained on separate shards can be merged, without retraining on the
+ * whole corpus.
+ *
+ * Scoring uses log-probability tables computed from the counts with Laplace
+ * smoothing. The tables are rebuilt lazily after the counts change; once built
+ * the model may be used for scoring by any number of threads, which look up
+ * the terms in a snapshot of the vocabulary without locking. Terms never seen
+ * in training are ignored.
+ *
+ * Implements {@link DocumentCategorizer}, so it can replace a
+ * {@link opennlp.tools.doccat.DocumentCategorizerME} wherever reviews are
+ * scored.
+ *
+ * @author vbala
+ *
+ */
+public class NaiveBayesModel implements DocumentCategorizer {
+
+	private static final int MAGIC = 0x594e4231;
+	private static final int VERSION = 1;
+
+	/**
+	 * Log-probability tables of one version of the counts
+	 */
+	private static class Tables {
+		final String[] categories;
+
+		/**
+		 * ID of every term counted when the tables were built, never changed
+		 * once built so scoring threads read it without locking; terms added
+		 * later are ignored
+		 */
+		final Map<String, Integer> termIds;
+		final double[] logPriors;
+
+		/**
+		 * log P(term | category) at termId * categories + category
+		 */
+		final double[] logLikelihoods;
+
+		Tables(String[] categories, Map<String, Integer> termIds, double[] logPriors, double[] logLikelihoods) {
+			this.categories = categories;
+			this.termIds = termIds;
+			this.logPriors = logPriors;
+			this.logLikelihoods = logLikelihoods;
+		}
+	}
+
+	/**
+	 * Additive smoothing of the term counts
+	 */
+	private final double alpha;
+
+	private final Vocabulary vocabulary = new Vocabulary();
+	private final List<String> categories = new ArrayList<String>();
+	private long[] documentCounts = new long[0];
+	private long[] termTotals = new long[0];
+
+	/**
+	 * Occurrences of every term ID, one array per category
+	 */
+	private int[][] termCounts = new int[0][];
+
+	private volatile Tables tables;
+
+	/**
+	 * Constructor - Laplace smoothing
+	 */
+	public NaiveBayesModel() {
+		this(1.0);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param alpha additive smoothing of the term counts, greater than 0
+	 */
+	public NaiveBayesModel(double alpha) {
+		if (alpha <= 0) {
+			throw new IllegalArgumentException("Smoothing must be greater than 0: " + alpha);
+		}
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Count one labelled document.
+	 *
+	 * @param category category of the document, e.g. the stars of a review
+	 * @param tokens   tokens of the document
+	 */
+	public synchronized void add(String category, String[] tokens) {
+		int c = categoryIndex(category);
+		documentCounts[c]++;
+		for (String token : tokens) {
+			int termId = vocabulary.intern(token);
+			ensureTermCapacity(termId);
+			termCounts[c][termId]++;
+		}
+		termTotals[c] += tokens.length;
+		tables = null;
+	}
+
+	/**
+	 * Count every document of a training file in the doccat format: one document
+	 * per line, the category followed by the whitespace separated tokens.
+	 *
+	 * @param pathToTrainingFile path to the file containing training records
+	 * @return number of documents counted
+	 * @throws IOException error reading the file
+	 */
+	public long addAll(String pathToTrainingFile) throws IOException {
+		long count = 0;
+		try (BufferedReader reader = Files.newBufferedReader(new File(pathToTrainingFile).toPath(),
+				StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (addLine(line)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Count one line in the doccat training format.
+	 *
+	 * @param line the category followed by the whitespace separated tokens
+	 * @return whether the line held a document
+	 */
+	public boolean addLine(String line) {
+		String[] fields = line.trim().split("\\s+");
+		if (fields.length < 2) {
+			return false;
+		}
+		add(fields[0], Arrays.copyOfRange(fields, 1, fields.length));
+		return true;
+	}
+
+	/**
+	 * Add the counts of another model, e.g. one trained on another shard of the
+	 * corpus. Terms and categories are matched by name.
+	 *
+	 * @param other the model to merge into this one
+	 */
+	public void merge(NaiveBayesModel other) {
+		if (other == this) {
+			throw new IllegalArgumentException("Cannot merge a model into itself");
+		}
+		// Copy the other model first so the two locks are never held together
+		String[] otherCategories;
+		String[] otherTerms;
+		long[] otherDocuments;
+		long[] otherTotals;
+		int[][] otherCounts;
+		synchronized (other) {
+			otherCategories = other.categories.toArray(new String[other.categories.size()]);
+			otherTerms = other.vocabulary.terms();
+			otherDocuments = other.documentCounts.clone();
+			otherTotals = other.termTotals.clone();
+			otherCounts = new int[otherCategories.length][];
+			for (int c = 0; c < otherCounts.length; c++) {
+				otherCounts[c] = Arrays.copyOf(other.termCounts[c], otherTerms.length);
+			}
+		}
+
+		synchronized (this) {
+			int[] termIds = new int[otherTerms.length];
+			for (int t = 0; t < otherTerms.length; t++) {
+				termIds[t] = vocabulary.intern(otherTerms[t]);
+			}
+			if (termIds.length > 0) {
+				ensureTermCapacity(vocabulary.size() - 1);
+			}
+			for (int oc = 0; oc < otherCategories.length; oc++) {
+				int c = categoryIndex(otherCategories[oc]);
+				documentCounts[c] += otherDocuments[oc];
+				termTotals[c] += otherTotals[oc];
+				for (int t = 0; t < termIds.length; t++) {
+					termCounts[c][termIds[t]] += otherCounts[oc][t];
+				}
+			}
+			tables = null;
+		}
+	}
+
+	/**
+	 * @return number of documents counted
+	 */
+	public synchronized long getDocumentCount() {
+		long count = 0;
+		for (long documents : documentCounts) {
+			count += documents;
+		}
+		return count;
+	}
+
+	/**
+	 * @return number of distinct terms counted
+	 */
+	public int getTermCount() {
+		return vocabulary.size();
+	}
+
+	/**
+	 * Score the tokens of a document.
+	 *
+	 * @param tokens tokens of the document
+	 * @return probability of every category, in the order of
+	 *         {@link #getCategory(int)}
+	 */
+	@Override
+	public double[] categorize(String[] tokens) {
+		Tables current = tables();
+		int categoryCount = current.categories.length;
+		double[] scores = Arrays.copyOf(current.logPriors, categoryCount);
+		for (String token : tokens) {
+			Integer termId = current.termIds.get(token);
+			if (termId == null) {
+				continue;
+			}
+			int offset = termId * categoryCount;
+			for (int c = 0; c < categoryCount; c++) {
+				scores[c] += current.logLikelihoods[offset + c];
+			}
+		}
+
+		// Normalize the log scores into probabilities
+		double max = Double.NEGATIVE_INFINITY;
+		for (double score : scores) {
+			max = Math.max(max, score);
+		}
+		double sum = 0;
+		for (int c = 0; c < categoryCount; c++) {
+			scores[c] = Math.exp(scores[c] - max);
+			sum += scores[c];
+		}
+		for (int c = 0; c < categoryCount; c++) {
+			scores[c] /= sum;
+		}
+		return scores;
+	}
+
+	@Override
+	public double[] categorize(String[] tokens, Map<String, Object> extraInformation) {
+		return categorize(tokens);
+	}
+
+	@Override
+	public String getBestCategory(double[] outcomes) {
+		int best = 0;
+		for (int c = 1; c < outcomes.length; c++) {
+			if (outcomes[c] > outcomes[best]) {
+				best = c;
+			}
+		}
+		return getCategory(best);
+	}
+
+	@Override
+	public int getIndex(String category) {
+		return Arrays.asList(tables().categories).indexOf(category);
+	}
+
+	@Override
+	public String getCategory(int index) {
+		return tables().categories[index];
+	}
+
+	@Override
+	public int getNumberOfCategories() {
+		return tables().categories.length;
+	}
+
+	@Override
+	public String getAllResults(double[] outcomes) {
+		StringBuilder sb = new StringBuilder();
+		for (int c = 0; c < outcomes.length; c++) {
+			if (c > 0) {
+				sb.append(' ');
+			}
+			sb.append(getCategory(c)).append('[').append(String.format("%.4f", outcomes[c])).append(']');
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public Map<String, Double> scoreMap(String[] tokens) {
+		double[] outcomes = categorize(tokens);
+		Map<String, Double> scores = new HashMap<String, Double>();
+		for (int c = 0; c < outcomes.length; c++) {
+			scores.put(getCategory(c), outcomes[c]);
+		}
+		return scores;
+	}
+
+	@Override
+	public SortedMap<Double, Set<String>> sortedScoreMap(String[] tokens) {
+		double[] outcomes = categorize(tokens);
+		SortedMap<Double, Set<String>> scores = new TreeMap<Double, Set<String>>();
+		for (int c = 0; c < outcomes.length; c++) {
+			scores.computeIfAbsent(outcomes[c], score -> new HashSet<String>()).add(getCategory(c));
+		}
+		return scores;
+	}
+
+	/**
+	 * Write the counts to a file. The file is written next to the target and
+	 * moved into place, so a crash never leaves a truncated model behind.
+	 *
+	 * @param file file to write
+	 * @throws IOException error writing the file
+	 */
+	public synchronized void save(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		Files.createDirectories(directory.toPath());
+		File tempFile = File.createTempFile("naive-bayes-", ".tmp", directory);
+		String[] terms = vocabulary.terms();
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeDouble(alpha);
+				out.writeInt(categories.size());
+				for (int c = 0; c < categories.size(); c++) {
+					out.writeUTF(categories.get(c));
+					out.writeLong(documentCounts[c]);
+					out.writeLong(termTotals[c]);
+				}
+				out.writeInt(terms.length);
+				for (String term : terms) {
+					out.writeUTF(term);
+				}
+				for (int c = 0; c < categories.size(); c++) {
+					for (int t = 0; t < terms.length; t++) {
+						out.writeInt(termCounts[c][t]);
+					}
+				}
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
+		}
+	}
+
+	/**
+	 * Read counts written by {@link #save(File)}.
+	 *
+	 * @param file file to read
+	 * @return the model
+	 * @throws IOException error reading the file, or the file is not a model
+	 */
+	public static NaiveBayesModel load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a Naive Bayes model of version " + VERSION + ": " + file.getPath());
+			}
+			NaiveBayesModel model = new NaiveBayesModel(in.readDouble());
+			int categoryCount = in.readInt();
+			for (int c = 0; c < categoryCount; c++) {
+				model.categoryIndex(in.readUTF());
+				model.documentCounts[c] = in.readLong();
+				model.termTotals[c] = in.readLong();
+			}
+			int termCount = in.readInt();
+			for (int t = 0; t < termCount; t++) {
+				model.vocabulary.intern(in.readUTF());
+			}
+			if (termCount > 0) {
+				model.ensureTermCapacity(termCount - 1);
+			}
+			for (int c = 0; c < categoryCount; c++) {
+				for (int t = 0; t < termCount; t++) {
+					model.termCounts[c][t] = in.readInt();
+				}
+			}
+			return model;
+		}
+	}
+
+	/**
+	 * @return the log-probability tables of the current counts
+	 */
+	private Tables tables() {
+		Tables current = tables;
+		if (current == null) {
+			synchronized (this) {
+				if (tables == null) {
+					tables = compile();
+				}
+				current = tables;
+			}
+		}
+		return current;
+	}
+
+	private Tables compile() {
+		String[] names = categories.toArray(new String[categories.size()]);
+		if (names.length == 0) {
+			throw new IllegalStateException("Naive Bayes model has no training documents");
+		}
+		String[] terms = vocabulary.terms();
+		int termCount = terms.length;
+		Map<String, Integer> termIds = new HashMap<String, Integer>(termCount * 2);
+		for (int t = 0; t < termCount; t++) {
+			termIds.put(terms[t], t);
+		}
+
+		long documents = getDocumentCount();
+		double[] logPriors = new double[names.length];
+		double[] logLikelihoods = new double[termCount * names.length];
+		for (int c = 0; c < names.length; c++) {
+			logPriors[c] = Math.log((double) documentCounts[c] / documents);
+			double denominator = Math.log(termTotals[c] + alpha * termCount);
+			for (int t = 0; t < termCount; t++) {
+				logLikelihoods[t * names.length + c] = Math.log(termCounts[c][t] + alpha) - denominator;
+			}
+		}
+		return new Tables(names, termIds, logPriors, logLikelihoods);
+	}
+
+	private int categoryIndex(String category) {
+		int c = categories.indexOf(category);
+		if (c >= 0) {
+			return c;
+		}
+		categories.add(category);
+		c = categories.size() - 1;
+		documentCounts = Arrays.copyOf(documentCounts, c + 1);
+		termTotals = Arrays.copyOf(termTotals, c + 1);
+		termCounts = Arrays.copyOf(termCounts, c + 1);
+		int capacity = c > 0 ? termCounts[0].length : 1024;
+		termCounts[c] = new int[capacity];
+		return c;
+	}
+
+	private void ensureTermCapacity(int termId) {
+		for (int c = 0; c < termCounts.length; c++) {
+			if (termId >= termCounts[c].length) {
+				int capacity = termCounts[c].length;
+				while (capacity <= termId) {
+					capacity *= 2;
+				}
+				termCounts[c] = Arrays.copyOf(termCounts[c], capacity);
+			}
+		}
+	}
+
+}
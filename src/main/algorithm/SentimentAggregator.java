@@ -0,0 +1,131 @@
+package main.algorithm;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import main.model.ReviewResult;
+import main.model.SentimentSummary;
+
+/**
+ * Running sentiment statistics per (business, topic). Scores are recorded as
+ * each review is scored, so results never need to be held in memory, and the
+ * counters are {@link LongAdder}s so parallel workers can record into the
+ * same aggregator without contending on a lock.
+ *
+ * @author vbala
+ *
+ */
+public class SentimentAggregator {
+
+	/**
+	 * Counters of one (business, topic) pair
+	 */
+	private static class Stats {
+		final LongAdder count = new LongAdder();
+		final LongAdder sum = new LongAdder();
+	}
+
+	private final Map<String, Map<String, Stats>> businessToTopicStats = new ConcurrentHashMap<String, Map<String, Stats>>();
+
+	/**
+	 * Record the score of one review. Safe to call from multiple threads.
+	 *
+	 * @param businessId business the review is about, null for a review without
+	 *                   business_id, which is recorded under ""
+	 * @param topic      topic of the review
+	 * @param score      sentiment score of the review
+	 */
+	public void record(String businessId, String topic, int score) {
+		add(businessId, topic, 1, score);
+	}
+
+	/**
+	 * Record the score of one review. Safe to call from multiple threads.
+	 *
+	 * @param result the scored review
+	 */
+	public void record(ReviewResult result) {
+		record(result.getReview().businessId, result.getTopic(), result.getScore());
+	}
+
+	/**
+	 * Add the statistics of a partial aggregate, e.g. one computed on another
+	 * shard of the reviews.
+	 *
+	 * @param summary partial aggregate to add
+	 */
+	public void merge(SentimentSummary summary) {
+		add(summary.getBusinessId(), summary.getTopic(), summary.getReviewCount(), summary.getScoreSum());
+	}
+
+	/**
+	 * @param businessId the business
+	 * @param topic      the topic
+	 * @return the current summary, or null if no review was recorded
+	 */
+	public SentimentSummary getSummary(String businessId, String topic) {
+		businessId = businessId == null ? "" : businessId;
+		Map<String, Stats> topicStats = businessToTopicStats.get(businessId);
+		Stats stats = topicStats == null ? null : topicStats.get(topic);
+		return stats == null ? null : toSummary(businessId, topic, stats);
+	}
+
+	/**
+	 * Snapshot the summaries of every (business, topic) pair with at least
+	 * minReviews reviews, ordered by business and then by descending review
+	 * count. Reviews recorded while the snapshot is taken may be partially
+	 * included.
+	 *
+	 * @param minReviews minimum number of reviews for a pair to be included
+	 * @return summaries list of summaries
+	 */
+	public List<SentimentSummary> getSummaries(long minReviews) {
+		List<SentimentSummary> summaries = new ArrayList<SentimentSummary>();
+		for (Map.Entry<String, Map<String, Stats>> business : businessToTopicStats.entrySet()) {
+			for (Map.Entry<String, Stats> topic : business.getValue().entrySet()) {
+				SentimentSummary summary = toSummary(business.getKey(), topic.getKey(), topic.getValue());
+				if (summary.getReviewCount() >= minReviews) {
+					summaries.add(summary);
+				}
+			}
+		}
+
+		summaries.sort(Comparator.comparing(SentimentSummary::getBusinessId)
+				.thenComparing(Comparator.comparingLong(SentimentSummary::getReviewCount).reversed())
+				.thenComparing(SentimentSummary::getTopic));
+		return summaries;
+	}
+
+	/**
+	 * @return number of businesses with recorded reviews
+	 */
+	public int getBusinessCount() {
+		return businessToTopicStats.size();
+	}
+
+	private void add(String businessId, String topic, long count, long sum) {
+		// Reviews without business_id share one entry, the maps reject null keys
+		businessId = businessId == null ? "" : businessId;
+		// Plain lookups first, computeIfAbsent locks the bin even when the key exists
+		Map<String, Stats> topicStats = businessToTopicStats.get(businessId);
+		if (topicStats == null) {
+			topicStats = businessToTopicStats.computeIfAbsent(businessId,
+					id -> new ConcurrentHashMap<String, Stats>());
+		}
+		Stats stats = topicStats.get(topic);
+		if (stats == null) {
+			stats = topicStats.computeIfAbsent(topic, t -> new Stats());
+		}
+		stats.count.add(count);
+		stats.sum.add(sum);
+	}
+
+	private static SentimentSummary toSummary(String businessId, String topic, Stats stats) {
+		return new SentimentSummary(businessId, topic, stats.count.sum(), stats.sum.sum());
+	}
+
+}
@@ -0,0 +1,211 @@
+package main.algorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate heavy hitters over a stream of words in fixed memory, using the
+ * SpaceSaving algorithm (Metwally et al.). At most capacity words are
+ * monitored; a new word evicts the monitored word with the lowest count and
+ * inherits that count as its error. Any word occurring more than N / capacity
+ * times in a stream of N words is guaranteed to be monitored, and its count
+ * is overestimated by at most its error.
+ *
+ * Not thread-safe; callers sharing a tracker synchronize on it.
+ *
+ * @author vbala
+ *
+ */
+public class SpaceSaving {
+
+	/**
+	 * A monitored word with its estimated count
+	 */
+	public static class Entry {
+		private final String word;
+		private final long count;
+		private final long error;
+
+		Entry(String word, long count, long error) {
+			this.word = word;
+			this.count = count;
+			this.error = error;
+		}
+
+		public String getWord() {
+			return word;
+		}
+
+		/**
+		 * @return estimated count, never below the true count
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @return maximum overestimation of the count
+		 */
+		public long getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return word + "=" + count;
+		}
+	}
+
+	private final int capacity;
+
+	/**
+	 * Min-heap of the monitored words ordered by count
+	 */
+	private final String[] words;
+	private final long[] counts;
+	private final long[] errors;
+	private int size;
+
+	/**
+	 * Heap position of every monitored word
+	 */
+	private final Map<String, Integer> positions;
+
+	private long total;
+
+	/**
+	 * Constructor
+	 *
+	 * @param capacity number of words to monitor
+	 */
+	public SpaceSaving(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.words = new String[capacity];
+		this.counts = new long[capacity];
+		this.errors = new long[capacity];
+		this.positions = new HashMap<String, Integer>(capacity * 2);
+	}
+
+	/**
+	 * Count one occurrence of a word.
+	 *
+	 * @param word the word
+	 */
+	public void offer(String word) {
+		offer(word, 1);
+	}
+
+	/**
+	 * Count occurrences of a word.
+	 *
+	 * @param word  the word
+	 * @param count number of occurrences
+	 */
+	public void offer(String word, long count) {
+		total += count;
+		Integer position = positions.get(word);
+		if (position != null) {
+			counts[position] += count;
+			siftDown(position);
+			return;
+		}
+
+		if (size < capacity) {
+			words[size] = word;
+			counts[size] = count;
+			errors[size] = 0;
+			positions.put(word, size);
+			siftUp(size++);
+			return;
+		}
+
+		// Evict the word with the lowest count
+		positions.remove(words[0]);
+		long min = counts[0];
+		words[0] = word;
+		counts[0] = min + count;
+		errors[0] = min;
+		positions.put(word, 0);
+		siftDown(0);
+	}
+
+	/**
+	 * @param word the word
+	 * @return estimated count of word, 0 if it is not monitored
+	 */
+	public long count(String word) {
+		Integer position = positions.get(word);
+		return position == null ? 0 : counts[position];
+	}
+
+	/**
+	 * @return number of occurrences offered
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @param k number of words to return
+	 * @return up to k monitored words ordered by descending estimated count
+	 */
+	public List<Entry> top(int k) {
+		List<Entry> entries = new ArrayList<Entry>(size);
+		for (int i = 0; i < size; i++) {
+			entries.add(new Entry(words[i], counts[i], errors[i]));
+		}
+		Collections.sort(entries, (a, b) -> Long.compare(b.count, a.count));
+		return entries.subList(0, Math.min(k, entries.size()));
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (counts[parent] <= counts[i]) {
+				return;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && counts[left] < counts[smallest]) {
+				smallest = left;
+			}
+			if (right < size && counts[right] < counts[smallest]) {
+				smallest = right;
+			}
+			if (smallest == i) {
+				return;
+			}
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+
+	private void swap(int a, int b) {
+		String word = words[a];
+		words[a] = words[b];
+		words[b] = word;
+		long count = counts[a];
+		counts[a] = counts[b];
+		counts[b] = count;
+		long error = errors[a];
+		errors[a] = errors[b];
+		errors[b] = error;
+		positions.put(words[a], a);
+		positions.put(words[b], b);
+	}
+
+}
@@ -0,0 +1,175 @@
+package main.algorithm;
+
+/**
+ * Single pass text cleaner and tokenizer. Review text is copied into a
+ * reusable char buffer keeping only ASCII letters, with every run of
+ * whitespace collapsed into one space, and the start and end offset of every
+ * token is recorded as it goes. Buffers only grow, so once warmed up a
+ * tokenizer allocates nothing unless a caller asks for strings.
+ *
+ * Instances are not thread-safe; use {@link #get()} for the tokenizer of the
+ * calling thread.
+ *
+ * @author vbala
+ *
+ */
+public final class TextTokenizer {
+
+	private static final ThreadLocal<TextTokenizer> LOCAL = ThreadLocal.withInitial(TextTokenizer::new);
+
+	private static final String[] NO_TOKENS = new String[0];
+
+	private char[] buffer = new char[512];
+	private int length;
+
+	private int[] starts = new int[64];
+	private int[] ends = new int[64];
+	private int size;
+
+	/**
+	 * @return the tokenizer owned by the calling thread
+	 */
+	public static TextTokenizer get() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * Clean and tokenize text, replacing the previous contents of the buffer.
+	 * Digits, punctuation and other special characters are removed without
+	 * splitting the surrounding letters; whitespace separates tokens.
+	 *
+	 * @param text the text to tokenize
+	 * @return this tokenizer
+	 */
+	public TextTokenizer reset(CharSequence text) {
+		int textLength = text.length();
+		if (buffer.length < textLength) {
+			buffer = new char[Math.max(textLength, buffer.length * 2)];
+		}
+
+		length = 0;
+		size = 0;
+		boolean inToken = false;
+		for (int i = 0; i < textLength; i++) {
+			char c = text.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				if (!inToken) {
+					if (size > 0) {
+						// Separate from the previous token
+						buffer[length++] = ' ';
+					}
+					startToken();
+					inToken = true;
+				}
+				buffer[length++] = c;
+			} else if (inToken && Character.isWhitespace(c)) {
+				endToken();
+				inToken = false;
+			}
+		}
+		if (inToken) {
+			endToken();
+		}
+
+		return this;
+	}
+
+	/**
+	 * @return number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i token index
+	 * @return offset of the first char of the token in {@link #buffer()}
+	 */
+	public int start(int i) {
+		return starts[i];
+	}
+
+	/**
+	 * @param i token index
+	 * @return offset after the last char of the token in {@link #buffer()}
+	 */
+	public int end(int i) {
+		return ends[i];
+	}
+
+	/**
+	 * @return the cleaned text; only valid up to {@link #length()}
+	 */
+	public char[] buffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return length of the cleaned text
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the cleaned text, tokens separated by single spaces
+	 */
+	public String cleanText() {
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * @param i token index
+	 * @return the token as a string
+	 */
+	public String token(int i) {
+		return new String(buffer, starts[i], ends[i] - starts[i]);
+	}
+
+	/**
+	 * @return all tokens as strings, for APIs which need a String array
+	 */
+	public String[] tokens() {
+		if (size == 0) {
+			return NO_TOKENS;
+		}
+		String[] tokens = new String[size];
+		for (int i = 0; i < size; i++) {
+			tokens[i] = token(i);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Hash the chars of a token without creating a string. Equal to
+	 * {@link String#hashCode()} of the token.
+	 *
+	 * @param i token index
+	 * @return hash of the token
+	 */
+	public int tokenHash(int i) {
+		int hash = 0;
+		for (int j = starts[i]; j < ends[i]; j++) {
+			hash = 31 * hash + buffer[j];
+		}
+		return hash;
+	}
+
+	private void startToken() {
+		if (size == starts.length) {
+			int[] grownStarts = new int[size * 2];
+			int[] grownEnds = new int[size * 2];
+			System.arraycopy(starts, 0, grownStarts, 0, size);
+			System.arraycopy(ends, 0, grownEnds, 0, size);
+			starts = grownStarts;
+			ends = grownEnds;
+		}
+		starts[size] = length;
+	}
+
+	private void endToken() {
+		ends[size] = length;
+		size++;
+	}
+
+}
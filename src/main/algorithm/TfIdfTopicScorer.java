@@ -0,0 +1,91 @@
+package main.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Chooses the topic of a review as it arrives: the noun with the highest
+ * TF-IDF, its count in the review times its inverse document frequency over
+ * all reviews seen so far. Unlike raw corpus counts this favours nouns which
+ * are frequent in the review but rare elsewhere over generic nouns, and needs
+ * no second pass over the reviews. A scorer can also be read-only, scoring
+ * against fixed document frequencies without counting the reviews. Safe to
+ * call from multiple threads.
+ *
+ * @author vbala
+ *
+ */
+public class TfIdfTopicScorer {
+
+	private final DocumentFrequencyTable documentFrequencies;
+	private final boolean updating;
+
+	/**
+	 * Constructor
+	 *
+	 * @param documentFrequencies document frequencies to update and score
+	 *                            against, possibly warm-started from a snapshot
+	 */
+	public TfIdfTopicScorer(DocumentFrequencyTable documentFrequencies) {
+		this(documentFrequencies, true);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param documentFrequencies document frequencies to score against
+	 * @param updating            whether every scored review is counted in the
+	 *                            document frequencies
+	 */
+	public TfIdfTopicScorer(DocumentFrequencyTable documentFrequencies, boolean updating) {
+		this.documentFrequencies = documentFrequencies;
+		this.updating = updating;
+	}
+
+	/**
+	 * @return whether scored reviews are counted in the document frequencies
+	 */
+	public boolean isUpdating() {
+		return updating;
+	}
+
+	/**
+	 * @return the document frequencies scored against
+	 */
+	public DocumentFrequencyTable getDocumentFrequencies() {
+		return documentFrequencies;
+	}
+
+	/**
+	 * Count the review in the document frequencies unless the scorer is
+	 * read-only, then choose its topic. Ties
+	 * go to the alphabetically first noun, so the choice does not depend on the
+	 * order of the nouns.
+	 *
+	 * @param nouns nouns of the review
+	 * @return the noun with the highest TF-IDF, empty if the review has no nouns
+	 */
+	public String selectTopic(String[] nouns) {
+		String[] sorted = nouns.clone();
+		Arrays.sort(sorted);
+		if (updating) {
+			documentFrequencies.addSortedDocument(sorted);
+		}
+
+		String topic = "";
+		double maxScore = -1;
+		for (int start = 0; start < sorted.length;) {
+			int end = start + 1;
+			while (end < sorted.length && sorted[end].equals(sorted[start])) {
+				end++;
+			}
+			double score = (end - start) * documentFrequencies.idf(sorted[start]);
+			if (score > maxScore) {
+				maxScore = score;
+				topic = sorted[start];
+			}
+			start = end;
+		}
+		return topic;
+	}
+
+}
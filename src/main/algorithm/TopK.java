@@ -0,0 +1,157 @@
+package main.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the K int keys with the highest counts seen so far in a bounded
+ * min-heap, so selecting the top K of V counts is O(V log K) with O(K) memory.
+ * On equal counts the key offered first is kept.
+ *
+ * @author vbala
+ *
+ */
+public class TopK {
+
+	private final int[] keys;
+	private final long[] counts;
+	private int size;
+
+	/**
+	 * Constructor
+	 *
+	 * @param k number of keys to keep
+	 */
+	public TopK(int k) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("k must be positive: " + k);
+		}
+		this.keys = new int[k];
+		this.counts = new long[k];
+	}
+
+	/**
+	 * Select the keys with the highest counts from a counter.
+	 *
+	 * @param counter counts to select from
+	 * @param k       number of keys to keep
+	 * @return the top keys
+	 */
+	public static TopK of(IntIntCounter counter, int k) {
+		TopK topK = new TopK(k);
+		counter.forEach(topK::offer);
+		return topK;
+	}
+
+	/**
+	 * Offer a key; it is kept if it is among the K highest counts so far.
+	 *
+	 * @param key   the key
+	 * @param count the count of key
+	 */
+	public void offer(int key, long count) {
+		if (size < keys.length) {
+			keys[size] = key;
+			counts[size] = count;
+			siftUp(size++);
+		} else if (count > counts[0]) {
+			// Replace the smallest of the top keys
+			keys[0] = key;
+			counts[0] = count;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * @return number of keys kept, at most K
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return smallest count needed to enter the top K, or 0 while it is not full
+	 */
+	public long threshold() {
+		return size < keys.length ? 0 : counts[0];
+	}
+
+	/**
+	 * @return the kept keys ordered by descending count
+	 */
+	public int[] sortedKeys() {
+		int[] order = order();
+		int[] sorted = new int[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = keys[order[i]];
+		}
+		return sorted;
+	}
+
+	/**
+	 * @return the counts of {@link #sortedKeys()}
+	 */
+	public long[] sortedCounts() {
+		int[] order = order();
+		long[] sorted = new long[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = counts[order[i]];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Heap positions ordered by descending count
+	 */
+	private int[] order() {
+		Integer[] positions = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			positions[i] = i;
+		}
+		Arrays.sort(positions, (a, b) -> Long.compare(counts[b], counts[a]));
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = positions[i];
+		}
+		return order;
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (counts[parent] <= counts[i]) {
+				return;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && counts[left] < counts[smallest]) {
+				smallest = left;
+			}
+			if (right < size && counts[right] < counts[smallest]) {
+				smallest = right;
+			}
+			if (smallest == i) {
+				return;
+			}
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+
+	private void swap(int a, int b) {
+		int key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+		long count = counts[a];
+		counts[a] = counts[b];
+		counts[b] = count;
+	}
+
+}
@@ -0,0 +1,383 @@
+package main.algorithm;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import main.model.Topic;
+
+/**
+ * Dictionary of aspects and the terms naming them, e.g. "service" for "wait
+ * time", compiled into a token-level Aho-Corasick automaton. Terms may be
+ * single words or phrases; tokens are mapped to IDs once and the automaton is
+ * stepped one token ID at a time, so detecting the aspects of a review is one
+ * linear pass whatever the size of the lexicon. Matching ignores case.
+ *
+ * Immutable and safe to share between threads.
+ *
+ * @author vbala
+ *
+ */
+public class TopicLexicon {
+
+	/**
+	 * State of the automaton before any token
+	 */
+	public static final int START = 0;
+
+	/**
+	 * Token ID of tokens which occur in no term, and aspect of states which
+	 * complete no term
+	 */
+	public static final int NOT_FOUND = -1;
+
+	private static final TopicLexicon DEFAULT = new TopicLexicon(Topic.DEFAULT_LEXICON);
+
+	private static final long EMPTY = -1;
+
+	private final String[] aspects;
+
+	/**
+	 * Lower case tokens by token ID, and an open addressing table of token ID + 1
+	 * hashed case-insensitively, 0 marks an empty slot
+	 */
+	private final String[] tokens;
+	private final int[] tokenSlots;
+	private final int tokenMask;
+
+	/**
+	 * Goto function as an open addressing table from state and token ID to the
+	 * next state
+	 */
+	private final long[] transitionKeys;
+	private final int[] transitionTargets;
+	private final int mask;
+
+	private final int[] failure;
+
+	/**
+	 * Aspect of the longest term ending in every state
+	 */
+	private final int[] output;
+
+	/**
+	 * Constructor - compiles the automaton
+	 *
+	 * @param aspectTerms terms of every aspect; a term is one or more words
+	 * @throws IllegalArgumentException a term is empty or belongs to two aspects
+	 */
+	public TopicLexicon(Map<String, ? extends Collection<String>> aspectTerms) {
+		aspects = aspectTerms.keySet().toArray(new String[0]);
+
+		// Trie of the tokenized terms
+		List<Map<Integer, Integer>> children = new ArrayList<Map<Integer, Integer>>();
+		List<Integer> terminals = new ArrayList<Integer>();
+		children.add(new HashMap<Integer, Integer>());
+		terminals.add(NOT_FOUND);
+		Map<String, Integer> tokenIds = new HashMap<String, Integer>();
+		int transitionCount = 0;
+		for (int aspect = 0; aspect < aspects.length; aspect++) {
+			for (String term : aspectTerms.get(aspects[aspect])) {
+				String[] termTokens = TextTokenizer.get().reset(term).tokens();
+				if (termTokens.length == 0) {
+					throw new IllegalArgumentException("Empty term for aspect " + aspects[aspect]);
+				}
+				int state = START;
+				for (String token : termTokens) {
+					String key = toLowerCase(token);
+					Integer tokenId = tokenIds.get(key);
+					if (tokenId == null) {
+						tokenId = tokenIds.size();
+						tokenIds.put(key, tokenId);
+					}
+					Integer next = children.get(state).get(tokenId);
+					if (next == null) {
+						next = children.size();
+						children.get(state).put(tokenId, next);
+						children.add(new HashMap<Integer, Integer>());
+						terminals.add(NOT_FOUND);
+						transitionCount++;
+					}
+					state = next;
+				}
+				int previous = terminals.get(state);
+				if (previous != NOT_FOUND && previous != aspect) {
+					throw new IllegalArgumentException(
+							"Term \"" + term + "\" belongs to " + aspects[previous] + " and " + aspects[aspect]);
+				}
+				terminals.set(state, aspect);
+			}
+		}
+
+		tokens = new String[tokenIds.size()];
+		int tokenCapacity = 16;
+		while (tokenCapacity < tokens.length * 2) {
+			tokenCapacity <<= 1;
+		}
+		tokenSlots = new int[tokenCapacity];
+		tokenMask = tokenCapacity - 1;
+		for (Map.Entry<String, Integer> token : tokenIds.entrySet()) {
+			tokens[token.getValue()] = token.getKey();
+			int slot = mix(hash(token.getKey())) & tokenMask;
+			while (tokenSlots[slot] != 0) {
+				slot = (slot + 1) & tokenMask;
+			}
+			tokenSlots[slot] = token.getValue() + 1;
+		}
+
+		int capacity = 16;
+		while (capacity < transitionCount * 2) {
+			capacity <<= 1;
+		}
+		transitionKeys = new long[capacity];
+		transitionTargets = new int[capacity];
+		mask = capacity - 1;
+		Arrays.fill(transitionKeys, EMPTY);
+
+		// Failure links breadth first, so the links of shorter prefixes are known
+		int stateCount = children.size();
+		failure = new int[stateCount];
+		output = new int[stateCount];
+		output[START] = NOT_FOUND;
+		int[] queue = new int[stateCount];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = START;
+		while (head < tail) {
+			int state = queue[head++];
+			for (Map.Entry<Integer, Integer> child : children.get(state).entrySet()) {
+				int tokenId = child.getKey();
+				int next = child.getValue();
+				putTransition(state, tokenId, next);
+				failure[next] = state == START ? START : next(failure[state], tokenId);
+				output[next] = terminals.get(next) != NOT_FOUND ? terminals.get(next) : output[failure[next]];
+				queue[tail++] = next;
+			}
+		}
+	}
+
+	/**
+	 * @return the lexicon of {@link Topic#DEFAULT_LEXICON}
+	 */
+	public static TopicLexicon getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Load a lexicon from a text file with one aspect per line followed by a
+	 * colon and its comma-separated terms:
+	 *
+	 * <pre>
+	 * service: service, wait time, waiting
+	 * </pre>
+	 *
+	 * Blank lines and lines starting with # are ignored.
+	 *
+	 * @param file the lexicon file
+	 * @return the compiled lexicon
+	 * @throws IOException error reading, or a line has no aspect
+	 */
+	public static TopicLexicon load(File file) throws IOException {
+		Map<String, List<String>> aspectTerms = new LinkedHashMap<String, List<String>>();
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				int colon = line.indexOf(':');
+				if (colon <= 0) {
+					throw new IOException(file.getPath() + ":" + lineNumber + " has no aspect");
+				}
+				List<String> terms = aspectTerms.computeIfAbsent(line.substring(0, colon).trim(),
+						a -> new ArrayList<String>());
+				for (String term : line.substring(colon + 1).split(",")) {
+					if (!term.trim().isEmpty()) {
+						terms.add(term.trim());
+					}
+				}
+			}
+		}
+		try {
+			return new TopicLexicon(aspectTerms);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file.getPath() + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return names of the aspects, indexed by aspect
+	 */
+	public List<String> getAspects() {
+		return Collections.unmodifiableList(Arrays.asList(aspects));
+	}
+
+	/**
+	 * @param aspect aspect index, e.g. from {@link #aspectOf(int)}
+	 * @return name of the aspect
+	 */
+	public String aspect(int aspect) {
+		return aspects[aspect];
+	}
+
+	/**
+	 * @param token a token of a review
+	 * @return ID of the token in the lexicon, {@link #NOT_FOUND} if it occurs in
+	 *         no term
+	 */
+	public int tokenId(String token) {
+		// Hashed and compared in lower case, so no lower case copy is made
+		for (int slot = mix(hash(token)) & tokenMask; tokenSlots[slot] != 0; slot = (slot + 1) & tokenMask) {
+			int tokenId = tokenSlots[slot] - 1;
+			if (equalsLowerCase(tokens[tokenId], token)) {
+				return tokenId;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Map the terms of a vocabulary to lexicon token IDs, so reviews stored as
+	 * term IDs can be matched without looking up strings.
+	 *
+	 * @param terms terms indexed by term ID
+	 * @return lexicon token ID of every term, {@link #NOT_FOUND} for terms
+	 *         occurring in no lexicon term
+	 */
+	public int[] translate(String[] terms) {
+		int[] ids = new int[terms.length];
+		for (int i = 0; i < terms.length; i++) {
+			ids[i] = tokenId(terms[i]);
+		}
+		return ids;
+	}
+
+	/**
+	 * Step the automaton over one token.
+	 *
+	 * @param state   current state, {@link #START} before the first token
+	 * @param tokenId lexicon ID of the token, may be {@link #NOT_FOUND}
+	 * @return the next state
+	 */
+	public int next(int state, int tokenId) {
+		if (tokenId == NOT_FOUND) {
+			return START;
+		}
+		while (true) {
+			int next = transition(state, tokenId);
+			if (next != NOT_FOUND) {
+				return next;
+			}
+			if (state == START) {
+				return START;
+			}
+			state = failure[state];
+		}
+	}
+
+	/**
+	 * @param state a state of the automaton
+	 * @return aspect of the longest term ending at the state, {@link #NOT_FOUND}
+	 *         if no term ends there
+	 */
+	public int aspectOf(int state) {
+		return output[state];
+	}
+
+	/**
+	 * Find the aspect of the term which ends first in the tokens, preferring the
+	 * longest term when several end at the same token.
+	 *
+	 * @param tokens tokens of a review
+	 * @return name of the aspect, null if no term occurs
+	 */
+	public String match(String[] tokens) {
+		int state = START;
+		for (String token : tokens) {
+			state = next(state, tokenId(token));
+			if (output[state] != NOT_FOUND) {
+				return aspects[output[state]];
+			}
+		}
+		return null;
+	}
+
+	private void putTransition(int state, int tokenId, int next) {
+		long key = key(state, tokenId);
+		int slot = slot(key);
+		while (transitionKeys[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		transitionKeys[slot] = key;
+		transitionTargets[slot] = next;
+	}
+
+	private int transition(int state, int tokenId) {
+		long key = key(state, tokenId);
+		for (int slot = slot(key);; slot = (slot + 1) & mask) {
+			long candidate = transitionKeys[slot];
+			if (candidate == key) {
+				return transitionTargets[slot];
+			}
+			if (candidate == EMPTY) {
+				return NOT_FOUND;
+			}
+		}
+	}
+
+	private static String toLowerCase(String token) {
+		char[] chars = new char[token.length()];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(token.charAt(i));
+		}
+		return new String(chars);
+	}
+
+	private static int hash(String token) {
+		int hash = 0;
+		for (int i = 0; i < token.length(); i++) {
+			hash = 31 * hash + Character.toLowerCase(token.charAt(i));
+		}
+		return hash;
+	}
+
+	private static boolean equalsLowerCase(String lowerCase, String token) {
+		if (lowerCase.length() != token.length()) {
+			return false;
+		}
+		for (int i = 0; i < token.length(); i++) {
+			if (lowerCase.charAt(i) != Character.toLowerCase(token.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static long key(int state, int tokenId) {
+		return ((long) state << 32) | tokenId;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+}
@@ -0,0 +1,183 @@
+package main.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Interns terms to dense int IDs (0, 1, 2, ...). Each distinct term is stored
+ * once, and tokens of a {@link TextTokenizer} can be looked up straight from
+ * its char buffer without creating a string.
+ *
+ * Methods are synchronized so a vocabulary can be shared by several workers.
+ *
+ * @author vbala
+ *
+ */
+public class Vocabulary {
+
+	/**
+	 * Returned by lookups of terms which are not in the vocabulary
+	 */
+	public static final int NOT_FOUND = -1;
+
+	/**
+	 * Open addressing table of term ID + 1, 0 marks an empty slot
+	 */
+	private int[] slots = new int[1024];
+
+	private String[] terms = new String[512];
+	private int[] hashes = new int[512];
+	private int size;
+
+	/**
+	 * Get the ID of a term, adding it to the vocabulary if it is new.
+	 *
+	 * @param term the term
+	 * @return id of the term
+	 */
+	public synchronized int intern(String term) {
+		int hash = term.hashCode();
+		int slot = find(hash, term, null, 0, 0);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		return add(slot, hash, term);
+	}
+
+	/**
+	 * Get the ID of a token, adding it to the vocabulary if it is new. A string
+	 * is only created for tokens which are not in the vocabulary yet.
+	 *
+	 * @param tokenizer tokenizer holding the token
+	 * @param i         token index
+	 * @return id of the token
+	 */
+	public synchronized int intern(TextTokenizer tokenizer, int i) {
+		int hash = tokenizer.tokenHash(i);
+		int start = tokenizer.start(i);
+		int slot = find(hash, null, tokenizer.buffer(), start, tokenizer.end(i) - start);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		return add(slot, hash, tokenizer.token(i));
+	}
+
+	/**
+	 * @param term the term
+	 * @return id of the term or {@link #NOT_FOUND}
+	 */
+	public synchronized int lookup(String term) {
+		int slot = find(term.hashCode(), term, null, 0, 0);
+		return slots[slot] - 1;
+	}
+
+	/**
+	 * @param tokenizer tokenizer holding the token
+	 * @param i         token index
+	 * @return id of the token or {@link #NOT_FOUND}
+	 */
+	public synchronized int lookup(TextTokenizer tokenizer, int i) {
+		int start = tokenizer.start(i);
+		int slot = find(tokenizer.tokenHash(i), null, tokenizer.buffer(), start, tokenizer.end(i) - start);
+		return slots[slot] - 1;
+	}
+
+	/**
+	 * @param id term id
+	 * @return the term
+	 */
+	public synchronized String term(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Unknown term id " + id);
+		}
+		return terms[id];
+	}
+
+	/**
+	 * @return number of distinct terms
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return copy of all terms indexed by id
+	 */
+	public synchronized String[] terms() {
+		return Arrays.copyOf(terms, size);
+	}
+
+	/**
+	 * Find the slot holding the term, or the empty slot it should go in. The term
+	 * is given either as a string or as a range of chars.
+	 */
+	private int find(int hash, String term, char[] chars, int offset, int length) {
+		int mask = slots.length - 1;
+		int slot = mix(hash) & mask;
+		while (true) {
+			int entry = slots[slot];
+			if (entry == 0) {
+				return slot;
+			}
+			int id = entry - 1;
+			if (hashes[id] == hash && matches(terms[id], term, chars, offset, length)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private static boolean matches(String candidate, String term, char[] chars, int offset, int length) {
+		if (term != null) {
+			return candidate.equals(term);
+		}
+		if (candidate.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (candidate.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int add(int slot, int hash, String term) {
+		if (size == terms.length) {
+			terms = Arrays.copyOf(terms, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int id = size++;
+		terms[id] = term;
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+
+		// Keep the table at most half full
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void rehash() {
+		int[] grown = new int[slots.length * 2];
+		int mask = grown.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = mix(hashes[id]) & mask;
+			while (grown[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			grown[slot] = id + 1;
+		}
+		slots = grown;
+	}
+
+	/**
+	 * Spread the bits of String hash codes, which are poor in the low bits for
+	 * short words.
+	 */
+	static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
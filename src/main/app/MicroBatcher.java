@@ -0,0 +1,194 @@
+package main.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import main.algorithm.Metrics;
+
+/**
+ * Coalesces items submitted concurrently into batches. A worker takes the
+ * first waiting item, then collects more until the batch is full or the
+ * maximum wait since the first item has passed, and processes the whole batch
+ * at once. Every worker owns its own {@link Processor}, so processors need not
+ * be thread-safe and can hold per-thread resources such as OpenNLP runtimes.
+ *
+ * The wait bounds the latency added by batching; under load batches fill up
+ * before the wait passes, so throughput grows without waiting at all.
+ *
+ * @author vbala
+ *
+ * @param <I> type of the submitted items
+ * @param <O> type of the results
+ */
+public class MicroBatcher<I, O> {
+
+	private final Logger LOGGER = Logger.getLogger(MicroBatcher.class.getSimpleName());
+
+	/**
+	 * Processes one batch on the worker thread owning it
+	 */
+	public interface Processor<I, O> {
+
+		/**
+		 * @param items items of the batch
+		 * @return the result of every item, in order
+		 * @throws Exception fails every item of the batch
+		 */
+		List<O> process(List<I> items) throws Exception;
+	}
+
+	private static class Entry<I, O> {
+		final I item;
+		final CompletableFuture<O> result = new CompletableFuture<O>();
+
+		Entry(I item) {
+			this.item = item;
+		}
+	}
+
+	private final String name;
+	private final int batchSize;
+	private final long maxWaitNanos;
+	private final BlockingQueue<Entry<I, O>> queue;
+	private final List<Thread> workers = new ArrayList<Thread>();
+	private final LongAdder batches;
+	private final LongAdder batchedItems;
+
+	private volatile boolean running = true;
+
+	/**
+	 * Constructor - starts the workers
+	 *
+	 * @param name          name of the batcher, used for thread and metric names
+	 * @param workerCount   number of worker threads
+	 * @param batchSize     largest number of items in a batch
+	 * @param maxWaitMillis longest time the first item of a batch waits for more
+	 * @param queueCapacity number of items which may wait before submit rejects
+	 * @param processors    creates the processor of every worker
+	 */
+	public MicroBatcher(String name, int workerCount, int batchSize, long maxWaitMillis, int queueCapacity,
+			Supplier<Processor<I, O>> processors) {
+		if (workerCount <= 0 || batchSize <= 0) {
+			throw new IllegalArgumentException("Workers and batch size must be greater than 0");
+		}
+		this.name = name;
+		this.batchSize = batchSize;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		this.queue = new ArrayBlockingQueue<Entry<I, O>>(queueCapacity);
+
+		// Mean batch size is items / batches
+		this.batches = Metrics.getInstance().counter(name + ".batches");
+		this.batchedItems = Metrics.getInstance().counter(name + ".items");
+		Metrics.getInstance().registerGauge(name + ".queueDepth", queue::size);
+
+		for (int w = 0; w < workerCount; w++) {
+			Processor<I, O> processor = processors.get();
+			Thread thread = new Thread(() -> work(processor), name + "-" + w);
+			thread.setDaemon(true);
+			workers.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Queue an item for the next batch.
+	 *
+	 * @param item the item
+	 * @return the result of the item once its batch was processed
+	 * @throws RejectedExecutionException the queue is full or the batcher closed
+	 */
+	public CompletableFuture<O> submit(I item) {
+		if (!running) {
+			throw new RejectedExecutionException(name + " is closed");
+		}
+		Entry<I, O> entry = new Entry<I, O>(item);
+		if (!queue.offer(entry)) {
+			throw new RejectedExecutionException(name + " queue is full");
+		}
+		return entry.result;
+	}
+
+	/**
+	 * Stop the workers. Items still queued fail.
+	 */
+	public void close() {
+		running = false;
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		Entry<I, O> entry;
+		while ((entry = queue.poll()) != null) {
+			entry.result.completeExceptionally(new RejectedExecutionException(name + " is closed"));
+		}
+		Metrics.getInstance().unregisterGauge(name + ".queueDepth");
+	}
+
+	private void work(Processor<I, O> processor) {
+		List<Entry<I, O>> batch = new ArrayList<Entry<I, O>>(batchSize);
+		List<I> items = new ArrayList<I>(batchSize);
+		try {
+			while (running) {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + maxWaitNanos;
+				while (batch.size() < batchSize) {
+					// Take what is already waiting, then wait for the rest of the time
+					if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					Entry<I, O> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				for (Entry<I, O> entry : batch) {
+					items.add(entry.item);
+				}
+				batches.increment();
+				batchedItems.add(batch.size());
+				complete(processor, batch, items);
+				batch.clear();
+				items.clear();
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		} finally {
+			for (Entry<I, O> entry : batch) {
+				entry.result.completeExceptionally(new RejectedExecutionException(name + " is closed"));
+			}
+		}
+	}
+
+	private void complete(Processor<I, O> processor, List<Entry<I, O>> batch, List<I> items) {
+		try {
+			List<O> results = processor.process(items);
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).result.complete(results.get(i));
+			}
+		} catch (Exception e) {
+			LOGGER.warning(name + " batch of " + batch.size() + " failed: " + e);
+			for (Entry<I, O> entry : batch) {
+				entry.result.completeExceptionally(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,281 @@
+package main.app;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import main.algorithm.LatencyHistogram;
+import main.algorithm.Metrics;
+
+/**
+ * Runs records through a chain of stages concurrently. Every stage has its own
+ * worker threads and reads from a bounded queue, so a slow stage blocks the
+ * stages before it (back-pressure) instead of letting records pile up in
+ * memory. Records are processed in place and handed on to the next stage; the
+ * order of records is not preserved.
+ *
+ * Every stage reports the records it processed, its latency per record and the
+ * depth of its input queue to {@link Metrics}; a full queue in front of a stage
+ * marks the bottleneck.
+ *
+ * @author vbala
+ *
+ * @param <T> type of record flowing through the pipeline
+ */
+public class Pipeline<T> {
+
+	private final Logger LOGGER = Logger.getLogger(Pipeline.class.getSimpleName());
+
+	/**
+	 * Work done on each record by a stage. Implementations must be thread-safe
+	 * when the stage has more than one worker.
+	 */
+	public interface Stage<T> {
+		void process(T record) throws Exception;
+	}
+
+	/**
+	 * Marks the end of the input of a stage worker
+	 */
+	private static final Object END = new Object();
+
+	/**
+	 * Longest wait for a worker to end before it is interrupted again
+	 */
+	private static final long JOIN_INTERVAL_MILLIS = 100;
+
+	private static class StageDefinition<T> {
+		final String name;
+		final int workers;
+		final Stage<T> stage;
+		final LongAdder records;
+		final LatencyHistogram latency;
+		BlockingQueue<Object> input;
+
+		StageDefinition(String name, int workers, Stage<T> stage) {
+			this.name = name;
+			this.workers = workers;
+			this.stage = stage;
+			this.records = Metrics.getInstance().counter("pipeline." + name + ".records");
+			this.latency = Metrics.getInstance().histogram("pipeline." + name);
+		}
+
+		String queueDepthGauge() {
+			return "pipeline." + name + ".queueDepth";
+		}
+	}
+
+	private final int queueCapacity;
+	private final List<StageDefinition<T>> stages = new ArrayList<StageDefinition<T>>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param queueCapacity number of records each queue between stages can hold
+	 */
+	public Pipeline(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Append a stage to the pipeline.
+	 *
+	 * @param name    name of the stage, used for thread names
+	 * @param workers number of worker threads of the stage
+	 * @param stage   work done on each record
+	 */
+	public void addStage(String name, int workers, Stage<T> stage) {
+		if (workers <= 0) {
+			throw new IllegalArgumentException("Stage " + name + " needs at least one worker");
+		}
+		stages.add(new StageDefinition<T>(name, workers, stage));
+	}
+
+	/**
+	 * @return names of the stages in order
+	 */
+	public List<String> getStageNames() {
+		List<String> names = new ArrayList<String>();
+		for (StageDefinition<T> definition : stages) {
+			names.add(definition.name);
+		}
+		return names;
+	}
+
+	/**
+	 * @param stage index of the stage
+	 * @return number of records waiting in the input queue of the stage, 0 when
+	 *         the pipeline is not running
+	 */
+	public int getQueueDepth(int stage) {
+		BlockingQueue<Object> input = stages.get(stage).input;
+		return input == null ? 0 : input.size();
+	}
+
+	/**
+	 * Feed every record of the source through all stages and wait until the last
+	 * stage has processed them. The source is read on the calling thread.
+	 *
+	 * @param source records to process
+	 * @return number of records which went through every stage
+	 * @throws IOException if a stage failed or the source could not be read
+	 */
+	public long run(Iterator<T> source) throws IOException {
+		if (stages.isEmpty()) {
+			throw new IllegalStateException("Pipeline has no stages");
+		}
+
+		for (StageDefinition<T> definition : stages) {
+			BlockingQueue<Object> input = new ArrayBlockingQueue<Object>(queueCapacity);
+			definition.input = input;
+			Metrics.getInstance().registerGauge(definition.queueDepthGauge(), input::size);
+		}
+
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		AtomicLong completed = new AtomicLong();
+		List<Thread> threads = new ArrayList<Thread>();
+		Thread caller = Thread.currentThread();
+
+		for (int i = 0; i < stages.size(); i++) {
+			StageDefinition<T> definition = stages.get(i);
+			StageDefinition<T> next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+			AtomicInteger running = new AtomicInteger(definition.workers);
+
+			for (int w = 0; w < definition.workers; w++) {
+				Thread thread = new Thread(() -> {
+					try {
+						work(definition, next, running, completed);
+					} catch (Throwable t) {
+						if (failure.compareAndSet(null, t)) {
+							// Unblock every other thread so the pipeline stops
+							for (Thread other : threads) {
+								other.interrupt();
+							}
+							caller.interrupt();
+						}
+					}
+				}, "pipeline-" + definition.name + "-" + w);
+				thread.setDaemon(true);
+				threads.add(thread);
+			}
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		StageDefinition<T> first = stages.get(0);
+		try {
+			while (failure.get() == null && source.hasNext()) {
+				first.input.put(source.next());
+			}
+			endInput(first);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			if (failure.get() == null) {
+				failure.compareAndSet(null, e);
+				for (Thread thread : threads) {
+					thread.interrupt();
+				}
+			}
+		} catch (RuntimeException e) {
+			failure.compareAndSet(null, e);
+			for (Thread thread : threads) {
+				thread.interrupt();
+			}
+		} finally {
+			// No worker may still process a record or write to the caller's sinks
+			// once the run returns or throws
+			joinAll(threads, failure.get() != null);
+			// Clear an interrupt sent by a failing worker
+			Thread.interrupted();
+			for (StageDefinition<T> definition : stages) {
+				definition.input = null;
+				Metrics.getInstance().unregisterGauge(definition.queueDepthGauge());
+			}
+		}
+
+		Throwable t = failure.get();
+		if (t instanceof InterruptedException) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Pipeline interrupted");
+		} else if (t instanceof IOException) {
+			throw (IOException) t;
+		} else if (t instanceof UncheckedIOException) {
+			throw ((UncheckedIOException) t).getCause();
+		} else if (t != null) {
+			throw new IOException("Pipeline failed", t);
+		}
+
+		LOGGER.info("Pipeline processed " + completed.get() + " records");
+		return completed.get();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void work(StageDefinition<T> definition, StageDefinition<T> next, AtomicInteger running,
+			AtomicLong completed) throws Exception {
+		while (true) {
+			Object item = definition.input.take();
+			if (item == END) {
+				break;
+			}
+			T record = (T) item;
+			long start = System.nanoTime();
+			definition.stage.process(record);
+			definition.latency.record(System.nanoTime() - start);
+			definition.records.increment();
+			if (next != null) {
+				next.input.put(record);
+			} else {
+				completed.incrementAndGet();
+			}
+		}
+
+		// The last worker of a stage to finish ends the input of the next stage
+		if (running.decrementAndGet() == 0 && next != null) {
+			endInput(next);
+		}
+	}
+
+	/**
+	 * Wait until every worker thread ended. Interrupts of the calling thread do
+	 * not cut the wait short; after a failure the workers still alive are
+	 * interrupted again on every wake-up, so one which swallowed an interrupt
+	 * in its stage is not left blocked on a queue.
+	 *
+	 * @param threads   the worker threads
+	 * @param interrupt whether to interrupt the workers still alive
+	 */
+	private static void joinAll(List<Thread> threads, boolean interrupt) {
+		for (Thread thread : threads) {
+			while (thread.isAlive()) {
+				if (interrupt) {
+					thread.interrupt();
+				}
+				try {
+					thread.join(JOIN_INTERVAL_MILLIS);
+				} catch (InterruptedException e) {
+					// Sent by a failing worker, or deferred until the workers ended
+				}
+			}
+		}
+	}
+
+	private static void endInput(StageDefinition<?> definition) throws InterruptedException {
+		for (int w = 0; w < definition.workers; w++) {
+			definition.input.put(END);
+		}
+	}
+
+}
@@ -0,0 +1,338 @@
+package main.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import main.algorithm.LatencyHistogram;
+import main.algorithm.Metrics;
+import main.algorithm.NLPHelper;
+import main.algorithm.SpaceSaving;
+import main.algorithm.TextTokenizer;
+import main.algorithm.TfIdfTopicScorer;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizer;
+import opennlp.tools.doccat.DocumentCategorizerME;
+
+/**
+ * HTTP endpoint scoring review texts on demand, built on the JDK's HTTP
+ * server. POST /score takes a JSON string, an array of strings, or an object
+ * with a "text" string or a "texts" array, and answers with the sentiment score
+ * and topic of every text:
+ *
+ * <pre>
+ * {"results":[{"score":4,"topic":"food"}]}
+ * </pre>
+ *
+ * Texts of concurrent requests are coalesced by a {@link MicroBatcher} whose
+ * workers each own a categorizer and a tagger. Topics are chosen by TF-IDF
+ * against fixed document frequencies, or by the estimated frequencies of the
+ * nouns scored since the server started, of which nounCapacity are monitored
+ * by a {@link SpaceSaving} tracker, so the memory of the server does not grow
+ * with the texts it scores. GET /health
+ * answers "ok".
+ *
+ * @author vbala
+ *
+ */
+public class ScoringServer {
+
+	private final Logger LOGGER = Logger.getLogger(ScoringServer.class.getSimpleName());
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/**
+	 * Largest request body accepted
+	 */
+	private static final int MAX_BODY_BYTES = 16 << 20;
+
+	/**
+	 * Sentiment and topic of one text
+	 */
+	private static class Result {
+		final int score;
+		final String topic;
+
+		Result(int score, String topic) {
+			this.score = score;
+			this.topic = topic;
+		}
+	}
+
+	/**
+	 * Request which cannot be answered, with its HTTP status
+	 */
+	private static class RequestException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		final int status;
+
+		RequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	private final NLPHelper nlpHelper;
+	private final String pathToPOSModelFile;
+	private final long requestTimeoutMillis;
+	private final TfIdfTopicScorer topicScorer;
+	private final MicroBatcher<String, Result> batcher;
+	private final SpaceSaving nounFrequencies;
+
+	private final LatencyHistogram requestLatency = Metrics.getInstance().histogram("server.request");
+	private final LongAdder requests = Metrics.getInstance().counter("server.requests");
+	private final LongAdder texts = Metrics.getInstance().counter("server.texts");
+	private final LongAdder errors = Metrics.getInstance().counter("server.errors");
+
+	private HttpServer server;
+	private ExecutorService handlers;
+
+	/**
+	 * Constructor - starts the scoring workers
+	 *
+	 * @param nlpHelper            helper running the NLP tasks
+	 * @param model                the trained sentiment model
+	 * @param pathToPOSModelFile   path to opennlp pos model file
+	 * @param topicScorer          ranks the nouns of every text as topic, or
+	 *                             null to rank them by noun frequency; only
+	 *                             read, texts are never added to its document
+	 *                             frequencies
+	 * @param nounCapacity         number of nouns monitored when ranking by noun
+	 *                             frequency
+	 * @param workers              number of scoring workers
+	 * @param batchSize            largest number of texts scored in one batch
+	 * @param maxWaitMillis        longest time a text waits for a batch to fill
+	 * @param queueCapacity        number of texts which may wait to be scored
+	 *                             before requests are rejected
+	 * @param requestTimeoutMillis longest time a request waits for its texts
+	 *                             to be scored
+	 */
+	public ScoringServer(NLPHelper nlpHelper, DoccatModel model, String pathToPOSModelFile,
+			TfIdfTopicScorer topicScorer, int nounCapacity, int workers, int batchSize, long maxWaitMillis,
+			int queueCapacity, long requestTimeoutMillis) {
+		this.nlpHelper = nlpHelper;
+		this.pathToPOSModelFile = pathToPOSModelFile;
+		this.requestTimeoutMillis = requestTimeoutMillis;
+		this.topicScorer = topicScorer;
+		this.nounFrequencies = new SpaceSaving(nounCapacity);
+		this.batcher = new MicroBatcher<String, Result>("server.batcher", workers, batchSize, maxWaitMillis,
+				queueCapacity, () -> {
+					DocumentCategorizer categorizer = new DocumentCategorizerME(model);
+					return batch -> score(categorizer, batch);
+				});
+	}
+
+	/**
+	 * Start answering requests.
+	 *
+	 * @param address        address to listen on, port 0 for any free port
+	 * @param handlerThreads number of threads reading requests and waiting for
+	 *                       their results
+	 * @return the port the server listens on
+	 * @throws IOException the address cannot be bound
+	 */
+	public synchronized int start(InetSocketAddress address, int handlerThreads) throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("Scoring server already started");
+		}
+		server = HttpServer.create(address, 0);
+		handlers = Executors.newFixedThreadPool(handlerThreads, runnable -> {
+			Thread thread = new Thread(runnable, "server-handler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(handlers);
+		server.createContext("/score", this::handleScore);
+		server.createContext("/health",
+				exchange -> respond(exchange, 200, "text/plain", "ok".getBytes(StandardCharsets.UTF_8)));
+		server.start();
+		int port = server.getAddress().getPort();
+		LOGGER.info("Scoring server listening on port " + port);
+		return port;
+	}
+
+	/**
+	 * Stop answering requests and stop the scoring workers.
+	 */
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			handlers.shutdownNow();
+			server = null;
+		}
+		batcher.close();
+	}
+
+	/**
+	 * Score a batch of texts on a batcher worker.
+	 */
+	private List<Result> score(DocumentCategorizer categorizer, List<String> batch) throws IOException {
+		List<Result> results = new ArrayList<Result>(batch.size());
+		for (String text : batch) {
+			String[] tokens = TextTokenizer.get().reset(text).tokens();
+			int score = nlpHelper.scoreReview(categorizer, tokens);
+			String[] nouns = nlpHelper.tagNouns(tokens, pathToPOSModelFile);
+			String topic = topicScorer != null ? nlpHelper.selectTopic(tokens, nouns, topicScorer)
+					: nlpHelper.selectTopic(tokens, nouns, nounFrequencies);
+			results.add(new Result(score, topic));
+		}
+		return results;
+	}
+
+	private void handleScore(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		requests.increment();
+		try {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				throw new RequestException(405, "Use POST");
+			}
+			List<String> requestTexts = parseTexts(readBody(exchange.getRequestBody()));
+			texts.add(requestTexts.size());
+
+			List<CompletableFuture<Result>> futures = new ArrayList<CompletableFuture<Result>>();
+			for (String text : requestTexts) {
+				futures.add(batcher.submit(text));
+			}
+			List<Result> results = new ArrayList<Result>(futures.size());
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+			for (CompletableFuture<Result> future : futures) {
+				results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+			}
+			respond(exchange, 200, "application/json", toJson(results));
+		} catch (RequestException e) {
+			fail(exchange, e.status, e.getMessage());
+		} catch (RejectedExecutionException e) {
+			fail(exchange, 503, "Too many texts waiting to be scored");
+		} catch (TimeoutException e) {
+			fail(exchange, 504, "Scoring timed out");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(exchange, 503, "Server stopping");
+		} catch (ExecutionException e) {
+			LOGGER.warning("Scoring failed: " + e.getCause());
+			fail(exchange, 500, "Scoring failed");
+		} finally {
+			requestLatency.record(System.nanoTime() - start);
+		}
+	}
+
+	private static byte[] readBody(InputStream in) throws IOException, RequestException {
+		try (InputStream body = in) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = body.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+				if (out.size() > MAX_BODY_BYTES) {
+					throw new RequestException(413, "Request body exceeds " + MAX_BODY_BYTES + " bytes");
+				}
+			}
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Read the texts of a request: a string, an array of strings, or an object
+	 * with a "text" string or a "texts" array.
+	 */
+	private static List<String> parseTexts(byte[] body) throws IOException, RequestException {
+		List<String> texts = new ArrayList<String>();
+		try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.VALUE_STRING) {
+				texts.add(parser.getText());
+			} else if (token == JsonToken.START_ARRAY) {
+				readTextArray(parser, texts);
+			} else if (token == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String field = parser.getCurrentName();
+					JsonToken value = parser.nextToken();
+					if ("text".equals(field) && value == JsonToken.VALUE_STRING) {
+						texts.add(parser.getText());
+					} else if ("texts".equals(field) && value == JsonToken.START_ARRAY) {
+						readTextArray(parser, texts);
+					} else {
+						parser.skipChildren();
+					}
+				}
+			}
+		} catch (JsonParseException e) {
+			throw new RequestException(400, "Malformed JSON: " + e.getOriginalMessage());
+		}
+		if (texts.isEmpty()) {
+			throw new RequestException(400, "No texts to score");
+		}
+		return texts;
+	}
+
+	private static void readTextArray(JsonParser parser, List<String> texts) throws IOException, RequestException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token != JsonToken.VALUE_STRING) {
+				throw new RequestException(400, "Texts must be strings");
+			}
+			texts.add(parser.getText());
+		}
+	}
+
+	private static byte[] toJson(List<Result> results) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(32 * results.size() + 16);
+		try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+			json.writeStartObject();
+			json.writeArrayFieldStart("results");
+			for (Result result : results) {
+				json.writeStartObject();
+				json.writeNumberField("score", result.score);
+				json.writeStringField("topic", result.topic);
+				json.writeEndObject();
+			}
+			json.writeEndArray();
+			json.writeEndObject();
+		}
+		return out.toByteArray();
+	}
+
+	private void fail(HttpExchange exchange, int status, String message) throws IOException {
+		errors.increment();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+			json.writeStartObject();
+			json.writeStringField("error", message);
+			json.writeEndObject();
+		}
+		respond(exchange, status, "application/json", out.toByteArray());
+	}
+
+	private static void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+			throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+}
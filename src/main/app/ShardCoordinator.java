@@ -0,0 +1,179 @@
+package main.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import main.algorithm.SentimentAggregator;
+import main.model.PartialResults;
+import main.model.ReviewPartitioner;
+import main.model.SentimentSummary;
+
+/**
+ * Runs the analysis of a review file as one local process per shard. The file
+ * is partitioned by business_id, every shard is analyzed by a separate
+ * {@link YelpNLP} process which writes {@link PartialResults}, and the partial
+ * results are merged. Shards only share the work directory, so the shard
+ * processes could as well run on other nodes sharing the file system and be
+ * merged with {@link #merge()}.
+ *
+ * @author vbala
+ *
+ */
+public class ShardCoordinator {
+
+	private final Logger LOGGER = Logger.getLogger(ShardCoordinator.class.getSimpleName());
+
+	/**
+	 * Prefix of the system properties passed on to the shard processes
+	 */
+	private static final String PROPERTY_PREFIX = "yelpnlp.";
+
+	private final int shardCount;
+	private final File directory;
+
+	private SentimentAggregator aggregator;
+	private Map<String, Long> wordFrequencies;
+
+	/**
+	 * Constructor
+	 *
+	 * @param shardCount number of shards and processes
+	 * @param directory  work directory for the shard files and results
+	 */
+	public ShardCoordinator(int shardCount, File directory) {
+		this.shardCount = shardCount;
+		this.directory = directory;
+	}
+
+	/**
+	 * @param shard the shard
+	 * @return results directory of the shard
+	 */
+	public File getResultDirectory(int shard) {
+		return new File(directory, "shard-" + shard);
+	}
+
+	/**
+	 * Partition the review file, analyze every shard in its own process and
+	 * merge the results.
+	 *
+	 * @param pathToFile pointer to newline-delimited JSON file of reviews
+	 * @throws IOException error partitioning or merging, or a shard process
+	 *                     failed
+	 */
+	public void run(String pathToFile) throws IOException {
+		long[] counts = new ReviewPartitioner(shardCount).partition(pathToFile, directory);
+
+		long start = System.currentTimeMillis();
+		List<Process> processes = new ArrayList<Process>();
+		try {
+			for (int shard = 0; shard < shardCount; shard++) {
+				File resultDirectory = getResultDirectory(shard);
+				clear(resultDirectory);
+				LOGGER.info("Starting shard " + shard + " with " + counts[shard] + " reviews");
+				processes.add(launch(shard, resultDirectory));
+			}
+			for (int shard = 0; shard < shardCount; shard++) {
+				int exitCode = processes.get(shard).waitFor();
+				if (exitCode != 0) {
+					throw new IOException("Shard " + shard + " failed with exit code " + exitCode + ", see "
+							+ getLogFile(shard).getPath());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the shard processes");
+		} finally {
+			// Do not leave orphans behind when a shard failed
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+		LOGGER.info("Analyzed " + shardCount + " shards in " + (System.currentTimeMillis() - start) + "ms");
+
+		merge();
+	}
+
+	/**
+	 * Merge the results of every shard in the work directory.
+	 *
+	 * @throws IOException a shard has no complete results, or error reading them
+	 */
+	public void merge() throws IOException {
+		aggregator = new SentimentAggregator();
+		wordFrequencies = new HashMap<String, Long>();
+		for (int shard = 0; shard < shardCount; shard++) {
+			File resultDirectory = getResultDirectory(shard);
+			if (!PartialResults.exists(resultDirectory)) {
+				throw new IOException("No results for shard " + shard + " in " + resultDirectory.getPath());
+			}
+			for (SentimentSummary summary : PartialResults.readSummaries(resultDirectory)) {
+				aggregator.merge(summary);
+			}
+			PartialResults.mergeWordFrequencies(resultDirectory, wordFrequencies);
+		}
+		LOGGER.info("Merged " + shardCount + " shards, " + aggregator.getBusinessCount() + " businesses");
+	}
+
+	/**
+	 * @return the merged sentiment aggregates
+	 */
+	public SentimentAggregator getAggregator() {
+		return aggregator;
+	}
+
+	/**
+	 * @return the merged noun frequencies
+	 */
+	public Map<String, Long> getWordFrequencies() {
+		return wordFrequencies;
+	}
+
+	private Process launch(int shard, File resultDirectory) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+
+		// Share the cores between the shards unless the thread count is set
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(PROPERTY_PREFIX)) {
+				command.add("-D" + name + "=" + System.getProperty(name));
+			}
+		}
+		if (System.getProperty(PROPERTY_PREFIX + "threads") == null) {
+			int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / shardCount);
+			command.add("-D" + PROPERTY_PREFIX + "threads=" + threads);
+		}
+
+		command.add(YelpNLP.class.getName());
+		command.add("--shard");
+		command.add(ReviewPartitioner.getShardFile(directory, shard).getPath());
+		command.add(resultDirectory.getPath());
+
+		File logFile = getLogFile(shard);
+		return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile).start();
+	}
+
+	private File getLogFile(int shard) {
+		return new File(directory, "shard-" + shard + ".log");
+	}
+
+	private static void clear(File resultDirectory) throws IOException {
+		File[] files = resultDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (!file.delete()) {
+					throw new IOException("Cannot delete " + file.getPath());
+				}
+			}
+		}
+	}
+
+}
@@ -3,16 +3,53 @@ package main.app;
  * 
  */
 
+import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import main.algorithm.CorpusCache;
+import main.algorithm.CrossValidationHarness;
+import main.algorithm.DocumentFrequencyTable;
+import main.algorithm.IntIntCounter;
+import main.algorithm.Metrics;
+import main.algorithm.ModelPool;
+import main.algorithm.ModelPool.ModelType;
+import main.algorithm.ModelRegistry;
 import main.algorithm.NLPHelper;
+import main.algorithm.NaiveBayesModel;
+import main.algorithm.SentimentAggregator;
+import main.algorithm.SpaceSaving;
+import main.algorithm.TextTokenizer;
+import main.algorithm.TfIdfTopicScorer;
+import main.algorithm.TopicLexicon;
+import main.model.AspectSentiment;
+import main.model.AsyncResultSink;
+import main.model.BinaryResultSink;
+import main.model.CrossValidationResult;
+import main.model.CsvResultSink;
 import main.model.Dataset;
+import main.model.PartialResults;
+import main.model.PreprocessedCorpus;
 import main.model.Review;
+import main.model.ReviewReader;
+import main.model.ReviewRecord;
+import main.model.ResultSink;
 import main.model.ReviewResult;
+import main.model.ReviewStore;
+import main.model.ReviewTable;
+import opennlp.tools.doccat.DoccatModel;
 import opennlp.tools.doccat.DocumentCategorizer;
+import opennlp.tools.doccat.DocumentCategorizerME;
 
 /**
  * YelpNLP application
@@ -26,16 +63,32 @@ public class YelpNLP {
 
 	private Dataset dataset;
 	private NLPHelper nlpHelper;
+	private CorpusCache corpusCache;
 
 	/**
 	 * Constructor
 	 * 
 	 * @throws IOException
 	 */
-	public YelpNLP() {
+	public YelpNLP() throws IOException {
 		// Initialize core objects
 		dataset = new Dataset();
 		nlpHelper = new NLPHelper();
+		nlpHelper.setFeatureHashing(YelpUtil.FEATURE_HASH_BUCKETS, YelpUtil.FEATURE_NGRAM_SIZE);
+		if (YelpUtil.TOPIC_LEXICON_FILE != null) {
+			nlpHelper.setTopicLexicon(TopicLexicon.load(new File(YelpUtil.TOPIC_LEXICON_FILE)));
+		}
+		corpusCache = new CorpusCache(new File(YelpUtil.CORPUS_CACHE_DIRECTORY));
+
+		// Expose throughput, latency and queue depth of the run over JMX and logs
+		Metrics.getInstance().registerMBean();
+		if (YelpUtil.METRICS_PERIOD_SECONDS > 0) {
+			Metrics.getInstance().startReporter(YelpUtil.METRICS_PERIOD_SECONDS * 1000,
+					YelpUtil.METRICS_FILE == null ? null : new File(YelpUtil.METRICS_FILE));
+		}
+
+		// Parse the OpenNLP models in the background while the sentiment model trains
+		ModelPool.getInstance().preload(YelpUtil.POS_MODEL_FILE, ModelType.POS);
 	}
 
 	/**
@@ -51,44 +104,462 @@ public class YelpNLP {
 		// Step 1 - Initialize model and begin training with reviews in training file
 		// Using a NaiveBayes classifer
 		LOGGER.info("-----------------------INITIALIZE MODEL AND TRAIN-------------------------" + "\n");
+		Supplier<DocumentCategorizer> categorizers = trainSentimentModel();
+
+		// Step 2 - Read, clean and tag the reviews in the test file, or map them from
+		// the corpus cache when the file was preprocessed before
+		try (PreprocessedCorpus corpus = corpusCache.getOrBuild(YelpUtil.OUTPUT_TEST_FILE_500,
+				YelpUtil.POS_MODEL_FILE, YelpUtil.THREAD_COUNT)) {
+			List<Review> reviews = new ArrayList<Review>(corpus.size());
+			for (int i = 0; i < corpus.size(); i++) {
+				reviews.add(corpus.toReview(i));
+			}
+
+			// Step 3 - Evaluate learned model against test reviews data
+			LOGGER.info("-----------------------EVALUATE MODEL FOR SENTIMENT SCORE-------------------------" + "\n");
+			int[] reviewScores = nlpHelper.testTextClassificationModel(categorizers, corpus, YelpUtil.THREAD_COUNT);
+			Map<Review, Integer> scores = new HashMap<Review, Integer>();
+			for (int i = 0; i < reviewScores.length; i++) {
+				scores.put(reviews.get(i), reviewScores[i]);
+			}
+			YelpUtil.displayScores(scores, false, YelpUtil.DISPLAY_LIMIT);
+
+			// Step 4 - Pull out the tagged nouns to classify topic
+			LOGGER.info("-----------------------RUN TOPIC CATEGORIZATION-------------------------" + "\n");
+			for (int i = 0; i < reviews.size(); i++) {
+				reviews.get(i).text = String.join(" ", corpus.getNouns(i));
+			}
+
+			// Step 5 - Determine the topic using the important part of the review text
+			// Heavy hitters replace the exact count, topics are then ranked by the
+			// estimated counts of the monitored nouns
+			IntIntCounter termFrequencies;
+			if (YelpUtil.HEAVY_HITTER_CAPACITY > 0) {
+				SpaceSaving heavyHitters = new SpaceSaving(YelpUtil.HEAVY_HITTER_CAPACITY);
+				termFrequencies = nlpHelper.computeTermFrequencies(corpus, heavyHitters);
+				YelpUtil.displayHeavyHitters(heavyHitters, YelpUtil.DISPLAY_LIMIT);
+			} else {
+				termFrequencies = nlpHelper.computeTermFrequencies(corpus);
+				YelpUtil.displayTopTerms(corpus.getVocabulary(), termFrequencies, YelpUtil.DISPLAY_LIMIT);
+			}
+
+			// Step 6 - Use TF-IDF or the word frequency map and review text to select topic
+			TfIdfTopicScorer topicScorer = createTopicScorer(YelpUtil.OUTPUT_TEST_FILE_500);
+			String[] topics = topicScorer != null ? nlpHelper.runTopicCategorization(corpus, topicScorer)
+					: nlpHelper.runTopicCategorization(corpus, termFrequencies);
+			saveTopicScorer(topicScorer);
+			Map<Review, String> reviewToTopicMap = new HashMap<Review, String>();
+			for (int i = 0; i < topics.length; i++) {
+				reviewToTopicMap.put(reviews.get(i), topics[i]);
+			}
+			YelpUtil.displayTopics(reviewToTopicMap, scores, YelpUtil.DISPLAY_LIMIT);
+
+//			// Step 6 - Aggregate data (score, topic, and business_id of review) for conclusions
+			LOGGER.info("-----------------------SUMMARIZING RESULTS AND DISPLAYING SUBSET-------------------------" + "\n");
+			SentimentAggregator aggregator = new SentimentAggregator();
+			List<ReviewResult> reviewResults = nlpHelper.summarizeResults(reviewToTopicMap, scores, aggregator);
+			try (ResultSink sink = openResultSink(YelpUtil.RESULTS_DIRECTORY)) {
+				if (sink != null) {
+					for (ReviewResult result : reviewResults) {
+						sink.write(result);
+					}
+				}
+			}
+			YelpUtil.displayReviewResults(reviewResults, YelpUtil.DISPLAY_LIMIT);
+			YelpUtil.displaySentimentSummaries(aggregator.getSummaries(YelpUtil.MIN_SUMMARY_REVIEWS),
+					YelpUtil.DISPLAY_LIMIT);
+		}
+	}
+
+	/**
+	 * Run the analysis as a staged pipeline. Reviews stream from the test file
+	 * through the clean, score, tag, topic and aggregate stages, which run
+	 * concurrently and are connected by bounded queues, so no step materializes
+	 * the whole dataset.
+	 * 
+	 * @throws IOException
+	 */
+	private void runPipeline() throws IOException {
+		LOGGER.info("-----------------------INITIALIZE MODEL AND TRAIN-------------------------" + "\n");
+		Supplier<DocumentCategorizer> categorizers = trainSentimentModel();
+		SentimentAggregator aggregator = new SentimentAggregator();
+
+		LOGGER.info("-----------------------RUN STAGED PIPELINE-------------------------" + "\n");
+		TfIdfTopicScorer topicScorer = createTopicScorer(YelpUtil.OUTPUT_TEST_FILE_500);
+		try (ResultSink sink = openResultSink(YelpUtil.RESULTS_DIRECTORY)) {
+			analyze(categorizers, YelpUtil.OUTPUT_TEST_FILE_500, aggregator, new SpaceSaving(YelpUtil.NOUN_CAPACITY),
+					topicScorer, sink);
+		}
+		saveTopicScorer(topicScorer);
+
+		LOGGER.info("-----------------------SUMMARIZING RESULTS AND DISPLAYING SUBSET-------------------------" + "\n");
+		YelpUtil.displaySentimentSummaries(aggregator.getSummaries(YelpUtil.MIN_SUMMARY_REVIEWS),
+				YelpUtil.DISPLAY_LIMIT);
+	}
+
+	/**
+	 * Stream the reviews of a file through the staged pipeline.
+	 * 
+	 * @param categorizers    supplies the sentiment categorizer of each scoring
+	 *                        thread
+	 * @param pathToFile      pointer to JSON file containing customer review data
+	 * @param aggregator      receives the score of every review per business and
+	 *                        topic
+	 * @param nounFrequencies receives the estimated number of occurrences of
+	 *                        the most frequent nouns
+	 * @param topicScorer     ranks the nouns of every review as topic, or null to
+	 *                        rank them by noun frequency
+	 * @param sink            receives the result of every review, or null
+	 * @throws IOException
+	 */
+	private void analyze(Supplier<DocumentCategorizer> categorizers, String pathToFile, SentimentAggregator aggregator,
+			SpaceSaving nounFrequencies, TfIdfTopicScorer topicScorer, ResultSink sink)
+			throws IOException {
+		ThreadLocal<DocumentCategorizer> threadCategorizers = ThreadLocal.withInitial(categorizers);
+
+		Pipeline<ReviewRecord> pipeline = new Pipeline<ReviewRecord>(YelpUtil.PIPELINE_QUEUE_CAPACITY);
+		pipeline.addStage("clean", YelpUtil.CLEAN_WORKERS, record -> {
+			TextTokenizer tokenizer = TextTokenizer.get().reset(record.review.text);
+			record.review.text = tokenizer.cleanText();
+			record.tokens = tokenizer.tokens();
+		});
+		pipeline.addStage("score", YelpUtil.SCORE_WORKERS,
+				record -> record.score = nlpHelper.scoreReview(threadCategorizers.get(), record.tokens));
+		pipeline.addStage("tag", YelpUtil.TAG_WORKERS,
+				record -> record.nouns = nlpHelper.tagNouns(record.tokens, YelpUtil.POS_MODEL_FILE));
+		pipeline.addStage("topic", YelpUtil.TOPIC_WORKERS,
+				record -> record.topic = topicScorer != null
+						? nlpHelper.selectTopic(record.tokens, record.nouns, nounFrequencies, topicScorer)
+						: nlpHelper.selectTopic(record.tokens, record.nouns, nounFrequencies));
+		pipeline.addStage("aggregate", YelpUtil.AGGREGATE_WORKERS, record -> {
+			aggregator.record(record.review.businessId, record.topic, record.score);
+			if (sink != null) {
+				sink.write(new ReviewResult(record.review, record.score, record.topic));
+			}
+		});
+
+		try (Stream<Review> reviews = new ReviewReader(pathToFile, false).stream()) {
+			pipeline.run(reviews.map(ReviewRecord::new).iterator());
+		}
+	}
+
+	/**
+	 * Analyze one shard of the reviews with the staged pipeline and write its
+	 * partial aggregates and noun frequencies for {@link ShardCoordinator} to
+	 * merge. Topics are chosen with the noun frequencies of the shard.
+	 * 
+	 * @param pathToFile      pointer to JSON file containing the reviews of the
+	 *                        shard
+	 * @param outputDirectory directory to write the partial results to
+	 * @throws IOException
+	 */
+	private void runShard(String pathToFile, File outputDirectory) throws IOException {
+		Supplier<DocumentCategorizer> categorizers = trainSentimentModel();
+		SentimentAggregator aggregator = new SentimentAggregator();
+		SpaceSaving nounFrequencies = new SpaceSaving(YelpUtil.NOUN_CAPACITY);
+		// Results of the shard stay next to its partial aggregates
+		String resultDirectory = YelpUtil.RESULTS_DIRECTORY.isEmpty() ? "" : outputDirectory.getPath();
+		try (ResultSink sink = openResultSink(resultDirectory)) {
+			// Shards only read the snapshot, they would overwrite each other's updates
+			analyze(categorizers, pathToFile, aggregator, nounFrequencies, createTopicScorer(pathToFile), sink);
+		}
+		// Merged counts of the shards stay estimates, a noun is only in the shards monitoring it
+		Map<String, Long> wordFrequencies = new HashMap<String, Long>();
+		for (SpaceSaving.Entry entry : nounFrequencies.top(Integer.MAX_VALUE)) {
+			wordFrequencies.put(entry.getWord(), entry.getCount());
+		}
+		PartialResults.write(outputDirectory, aggregator.getSummaries(0), wordFrequencies);
+	}
+
+	/**
+	 * Analyze a review file as shards in separate processes and display the
+	 * merged results.
+	 * 
+	 * @param shardCount number of shards and processes
+	 * @param pathToFile pointer to JSON file containing customer review data
+	 * @throws IOException
+	 */
+	private void runSharded(int shardCount, String pathToFile) throws IOException {
+		// Train once so the shard processes load the model from the registry
+		LOGGER.info("-----------------------INITIALIZE MODEL AND TRAIN-------------------------" + "\n");
+		nlpHelper.trainDoccatModel(YelpUtil.TRAINING_DATA_FILE_500);
+
+		LOGGER.info("-----------------------RUN SHARD PROCESSES-------------------------" + "\n");
+		ShardCoordinator coordinator = new ShardCoordinator(shardCount, new File(YelpUtil.SHARD_DIRECTORY));
+		coordinator.run(pathToFile);
+
+		LOGGER.info("-----------------------SUMMARIZING RESULTS AND DISPLAYING SUBSET-------------------------" + "\n");
+		YelpUtil.displayWordFrequencyMap(coordinator.getWordFrequencies(), YelpUtil.DISPLAY_LIMIT);
+		YelpUtil.displaySentimentSummaries(coordinator.getAggregator().getSummaries(YelpUtil.MIN_SUMMARY_REVIEWS),
+				YelpUtil.DISPLAY_LIMIT);
+	}
+
+	/**
+	 * Look up reviews in the full review file by their Yelp review_id and score
+	 * each of them again, without loading the dataset.
+	 * 
+	 * @param reviewIds review_ids of the reviews to score
+	 * @throws IOException
+	 */
+	private void rescore(List<String> reviewIds) throws IOException {
 		DocumentCategorizer categorizer = nlpHelper.trainTextClassificationModel(YelpUtil.TRAINING_DATA_FILE_500);
+		try (ReviewStore store = ReviewStore.open(YelpUtil.REVIEW_DATA_FILE)) {
+			for (String reviewId : reviewIds) {
+				Review review = store.get(reviewId);
+				if (review == null) {
+					LOGGER.warning("No review with id " + reviewId);
+					continue;
+				}
+				int score = nlpHelper.scoreReview(categorizer, nlpHelper.getTokens(review));
+				System.out.println("Input " + review.toString() + "\n  Output " + score);
+			}
+		}
+	}
+
+	/**
+	 * Score every review of a file and display the accuracy of the sentiment
+	 * model against the stars. The reviews are held in a columnar
+	 * {@link ReviewTable} instead of one object per review, so large files fit
+	 * in the heap.
+	 * 
+	 * @param pathToFile pointer to JSON file containing customer review data
+	 * @throws IOException
+	 */
+	private void evaluate(String pathToFile) throws IOException {
+		LOGGER.info("-----------------------INITIALIZE MODEL AND TRAIN-------------------------" + "\n");
+		DoccatModel model = nlpHelper.trainDoccatModel(YelpUtil.TRAINING_DATA_FILE_500);
 
-		// Step 2 - Read reviews in test file into internal objects with unique ID
-		Map<Integer, Review> reviewsMap = dataset.readJSON(YelpUtil.OUTPUT_TEST_FILE_500);
+		ReviewTable table = dataset.readTable(pathToFile, YelpUtil.TABLE_OFF_HEAP);
+		LOGGER.info("Read " + table.size() + " reviews of " + table.getBusinessCount() + " businesses with "
+				+ table.getTextBytes() + " bytes of text");
 
-		// Step 3 - Evaluate learned model against test reviews data
 		LOGGER.info("-----------------------EVALUATE MODEL FOR SENTIMENT SCORE-------------------------" + "\n");
-		Map<Review, Integer> scores = nlpHelper.testTextClassificationModel(categorizer, reviewsMap);
-		YelpUtil.displayScores(scores, false, YelpUtil.DISPLAY_LIMIT);
+		long start = System.currentTimeMillis();
+		int[] scores = nlpHelper.testTextClassificationModel(model, table, YelpUtil.THREAD_COUNT);
+		LOGGER.info("Scored " + scores.length + " reviews in " + (System.currentTimeMillis() - start) + "ms");
+		YelpUtil.displayScores(table, scores);
+	}
 
-		// Step 4 - Tag parts of speech and pull out all nouns to classify topic
-		LOGGER.info("-----------------------RUN TOPIC CATEGORIZATION-------------------------" + "\n");
-		String POS_MODEL = "C:/Users/Vijay/photon-BU622/YelpNLP/models/en-pos-maxent.bin";
-		List<Review> reviewNounsList = nlpHelper.tagNounsInReviewList(reviewsMap, POS_MODEL);
+	/**
+	 * Score the sentiment of every sentence of the reviews and display it per
+	 * review and aspect and per business and aspect. Sentence topics are ranked
+	 * with their own document frequencies, the review level snapshot is not
+	 * used.
+	 * 
+	 * @param pathToFile pointer to JSON file containing customer review data
+	 * @throws IOException
+	 */
+	private void runSentences(String pathToFile) throws IOException {
+		// Parse the sentence model while the sentiment model trains
+		ModelPool.getInstance().preload(NLPHelper.SENTENCE_MODEL_FILE, ModelType.SENTENCE);
+		LOGGER.info("-----------------------INITIALIZE MODEL AND TRAIN-------------------------" + "\n");
+		DoccatModel model = nlpHelper.trainDoccatModel(YelpUtil.TRAINING_DATA_FILE_500);
 
-		// Step 5 - Determine the topic using the important part of the review text
-		Map<String, Integer> wordFrequencyMap = nlpHelper.computeWordFrequencyMatrix(reviewNounsList);
-		YelpUtil.displayWordFrequencyMap(wordFrequencyMap, YelpUtil.DISPLAY_LIMIT);
+		// Keep the punctuation the sentence detector splits on
+		List<Review> reviews;
+		try (Stream<Review> stream = new ReviewReader(pathToFile, false).stream()) {
+			reviews = stream.collect(Collectors.toList());
+		}
 
-		// Step 6 - Use word frequency map and review text to select topic
-		Map<Review, String> reviewToTopicMap = nlpHelper.runTopicCategorization(reviewNounsList, wordFrequencyMap);
-		YelpUtil.displayTopics(reviewToTopicMap, scores, YelpUtil.DISPLAY_LIMIT);
+		LOGGER.info("-----------------------SCORE SENTENCES PER ASPECT-------------------------" + "\n");
+		long start = System.currentTimeMillis();
+		SentimentAggregator businessAspects = new SentimentAggregator();
+		List<AspectSentiment> aspectSentiments = nlpHelper.runSentenceSentiment(model, reviews,
+				YelpUtil.POS_MODEL_FILE, new TfIdfTopicScorer(new DocumentFrequencyTable()), YelpUtil.THREAD_COUNT,
+				businessAspects);
+		LOGGER.info("Scored the sentences of " + reviews.size() + " reviews in " + (System.currentTimeMillis() - start)
+				+ "ms");
 
-//		// Step 6 - Aggregate data (score, topic, and business_id of review) for conclusions
 		LOGGER.info("-----------------------SUMMARIZING RESULTS AND DISPLAYING SUBSET-------------------------" + "\n");
-		List<ReviewResult> reviewResults = nlpHelper.summarizeResults(reviewToTopicMap, scores);
-		YelpUtil.displayReviewResults(reviewResults, YelpUtil.DISPLAY_LIMIT);
+		YelpUtil.displayAspectSentiments(aspectSentiments, YelpUtil.DISPLAY_LIMIT);
+		YelpUtil.displaySentimentSummaries(businessAspects.getSummaries(YelpUtil.MIN_SUMMARY_REVIEWS), "sentences",
+				YelpUtil.DISPLAY_LIMIT);
+	}
+
+	/**
+	 * Answer scoring requests over HTTP until the JVM is stopped.
+	 * 
+	 * @param port port to listen on
+	 * @throws IOException
+	 */
+	private void serve(int port) throws IOException {
+		DoccatModel model = nlpHelper.trainDoccatModel(YelpUtil.TRAINING_DATA_FILE_500);
+		ScoringServer server = new ScoringServer(nlpHelper, model, YelpUtil.POS_MODEL_FILE, createTopicScorer(null),
+				YelpUtil.NOUN_CAPACITY, YelpUtil.THREAD_COUNT, YelpUtil.SERVER_BATCH_SIZE, YelpUtil.SERVER_MAX_WAIT_MILLIS,
+				YelpUtil.SERVER_QUEUE_CAPACITY, YelpUtil.SERVER_TIMEOUT_MILLIS);
+		server.start(new InetSocketAddress(port), YelpUtil.SERVER_HANDLER_THREADS);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "server-shutdown"));
+	}
+
+	/**
+	 * Add the records of new training files to the stored Naive Bayes sentiment
+	 * model without retraining on the earlier records.
+	 * 
+	 * @param pathsToTrainingFiles paths to the files containing new training
+	 *                             records
+	 * @throws IOException
+	 */
+	private void updateNaiveBayes(List<String> pathsToTrainingFiles) throws IOException {
+		File modelFile = new File(YelpUtil.NAIVE_BAYES_MODEL_FILE);
+		for (String pathToTrainingFile : pathsToTrainingFiles) {
+			nlpHelper.updateNaiveBayesModel(modelFile, pathToTrainingFile);
+		}
+	}
+
+	/**
+	 * Train the sentiment model selected by
+	 * {@link YelpUtil#NAIVE_BAYES_SENTIMENT}. The Naive Bayes model is the one
+	 * updated by --update-naive-bayes when it exists, otherwise it is trained on
+	 * the training file.
+	 * 
+	 * @return supplies the categorizer of each scoring thread
+	 * @throws IOException
+	 */
+	private Supplier<DocumentCategorizer> trainSentimentModel() throws IOException {
+		if (YelpUtil.NAIVE_BAYES_SENTIMENT) {
+			File modelFile = new File(YelpUtil.NAIVE_BAYES_MODEL_FILE);
+			NaiveBayesModel model = modelFile.isFile() ? NaiveBayesModel.load(modelFile)
+					: nlpHelper.trainNaiveBayesModel(YelpUtil.TRAINING_DATA_FILE_500, YelpUtil.THREAD_COUNT);
+			// The model is shared, it scores from any number of threads
+			return () -> model;
+		}
+		DoccatModel model = nlpHelper.trainDoccatModel(YelpUtil.TRAINING_DATA_FILE_500);
+		return () -> new DocumentCategorizerME(model);
+	}
+
+	/**
+	 * Cross-validate the sentiment model over a grid of training parameters and
+	 * display the accuracy and throughput of each configuration.
+	 * 
+	 * @throws IOException
+	 */
+	private void crossValidate() throws IOException {
+		LOGGER.info("-----------------------CROSS-VALIDATE TRAINING PARAMETERS-------------------------" + "\n");
+		CrossValidationHarness harness = new CrossValidationHarness(YelpUtil.CROSS_VALIDATION_FOLDS,
+				YelpUtil.THREAD_COUNT, YelpUtil.CROSS_VALIDATION_SEED);
+		List<CrossValidationResult> results = harness.run(YelpUtil.TRAINING_DATA_FILE_500,
+				YelpUtil.GRID_ITERATIONS, YelpUtil.GRID_CUTOFFS, YelpUtil.GRID_TRAINER_THREADS);
+		YelpUtil.displayCrossValidationResults(results);
+	}
+
+	/**
+	 * Create the TF-IDF topic scorer, warm-started from
+	 * {@link YelpUtil#DF_SNAPSHOT_FILE} when it exists. If the snapshot already
+	 * counts the reviews of the input file, keyed by its hash, the scorer only
+	 * reads the snapshot, so a rerun does not count the same reviews twice.
+	 * Without an input file the scorer only reads the snapshot, so the document
+	 * frequencies of the scoring server never grow.
+	 * 
+	 * @param pathToFile pointer to the file of the reviews to score, or null when
+	 *                   the reviews do not come from a file
+	 * @return the scorer, or null when topics are ranked by noun frequency
+	 * @throws IOException error reading the snapshot or the input file
+	 */
+	private TfIdfTopicScorer createTopicScorer(String pathToFile) throws IOException {
+		if (!YelpUtil.TFIDF_TOPICS) {
+			return null;
+		}
+		DocumentFrequencyTable documentFrequencies = new DocumentFrequencyTable();
+		if (YelpUtil.DF_SNAPSHOT_FILE != null && new File(YelpUtil.DF_SNAPSHOT_FILE).isFile()) {
+			documentFrequencies.load(new File(YelpUtil.DF_SNAPSHOT_FILE));
+			LOGGER.info("Loaded document frequencies of " + documentFrequencies.getDocumentCount() + " reviews and "
+					+ documentFrequencies.size() + " terms from " + YelpUtil.DF_SNAPSHOT_FILE);
+		}
+		if (pathToFile == null) {
+			return new TfIdfTopicScorer(documentFrequencies, false);
+		}
+		if (YelpUtil.DF_SNAPSHOT_FILE != null
+				&& !documentFrequencies.addSource(ModelRegistry.sha256(new File(pathToFile)))) {
+			LOGGER.info("Document frequencies already count " + pathToFile + ", leaving the snapshot unchanged");
+			return new TfIdfTopicScorer(documentFrequencies, false);
+		}
+		return new TfIdfTopicScorer(documentFrequencies);
+	}
+
+	/**
+	 * Save the document frequencies of the scorer to
+	 * {@link YelpUtil#DF_SNAPSHOT_FILE} to warm-start the next run, unless the
+	 * scorer only read them.
+	 * 
+	 * @param topicScorer the scorer, may be null
+	 * @throws IOException error writing the snapshot
+	 */
+	private void saveTopicScorer(TfIdfTopicScorer topicScorer) throws IOException {
+		if (topicScorer != null && topicScorer.isUpdating() && YelpUtil.DF_SNAPSHOT_FILE != null) {
+			topicScorer.getDocumentFrequencies().save(new File(YelpUtil.DF_SNAPSHOT_FILE));
+		}
+	}
+
+	/**
+	 * Open the sinks persisting the result of every review: a CSV file for
+	 * people and a binary file for downstream jobs, written by a background
+	 * thread so the analysis never waits for the disk.
+	 * 
+	 * @param directory directory to write the result files to, empty to persist
+	 *                  nothing
+	 * @return thread-safe sink writing both files, or null when disabled
+	 * @throws IOException error creating the files
+	 */
+	private ResultSink openResultSink(String directory) throws IOException {
+		if (directory.isEmpty()) {
+			return null;
+		}
+		File outputDirectory = new File(directory);
+		Files.createDirectories(outputDirectory.toPath());
+		CsvResultSink csv = new CsvResultSink(new File(outputDirectory, YelpUtil.RESULTS_CSV_FILE),
+				YelpUtil.RESULTS_INCLUDE_TEXT);
+		try {
+			ResultSink binary = new BinaryResultSink(new File(outputDirectory, YelpUtil.RESULTS_BINARY_FILE),
+					YelpUtil.RESULTS_INCLUDE_TEXT);
+			LOGGER.info("Writing review results to " + outputDirectory.getPath());
+			return new AsyncResultSink(YelpUtil.RESULTS_QUEUE_CAPACITY, csv, binary);
+		} catch (IOException e) {
+			csv.close();
+			throw e;
+		}
 	}
 
 	/**
-	 * Launch application.
+	 * Launch application. Pass --pipeline to run the analysis as a staged
+	 * pipeline, --evaluate optionally followed by the review file to measure the
+	 * accuracy of the sentiment model, --sentences optionally followed by the
+	 * review file to score every sentence per aspect, --sharded followed by the number of shards and optionally the
+	 * review file to run it as one process per shard, --serve optionally
+	 * followed by a port to answer scoring requests over HTTP, --rescore
+	 * followed by review_ids to score single reviews, --cross-validate to
+	 * evaluate training parameters, --update-naive-bayes
+	 * followed by training files to add them to the incremental sentiment model,
+	 * or --sample to build training and test files from a random sample of the
+	 * review file instead of running the analysis.
 	 * 
 	 * @param args
 	 * @throws IOException
 	 */
 	public static void main(String[] args) throws IOException {
 		YelpNLP app = new YelpNLP();
-		app.run();
+		if (args.length > 0 && args[0].equals("--pipeline")) {
+			app.runPipeline();
+		} else if (args.length > 0 && args[0].equals("--evaluate")) {
+			app.evaluate(args.length > 1 ? args[1] : YelpUtil.OUTPUT_TEST_FILE_500);
+		} else if (args.length > 0 && args[0].equals("--sentences")) {
+			app.runSentences(args.length > 1 ? args[1] : YelpUtil.OUTPUT_TEST_FILE_500);
+		} else if (args.length > 0 && args[0].equals("--rescore")) {
+			app.rescore(Arrays.asList(args).subList(1, args.length));
+		} else if (args.length > 0 && args[0].equals("--cross-validate")) {
+			app.crossValidate();
+		} else if (args.length > 1 && args[0].equals("--sharded")) {
+			app.runSharded(Integer.parseInt(args[1]), args.length > 2 ? args[2] : YelpUtil.REVIEW_DATA_FILE);
+		} else if (args.length > 2 && args[0].equals("--shard")) {
+			app.runShard(args[1], new File(args[2]));
+		} else if (args.length > 0 && args[0].equals("--serve")) {
+			app.serve(args.length > 1 ? Integer.parseInt(args[1]) : YelpUtil.SERVER_PORT);
+		} else if (args.length > 0 && args[0].equals("--update-naive-bayes")) {
+			app.updateNaiveBayes(Arrays.asList(args).subList(1, args.length));
+		} else if (args.length > 0 && args[0].equals("--sample")) {
+			new YelpUtil().createSampledDataFiles();
+		} else {
+			app.run();
+		}
 	}
 
 }
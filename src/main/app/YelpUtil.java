@@ -2,14 +2,22 @@ package main.app;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import main.algorithm.IntIntCounter;
+import main.algorithm.SpaceSaving;
+import main.algorithm.TopK;
+import main.algorithm.Vocabulary;
+import main.model.AspectSentiment;
+import main.model.CrossValidationResult;
 import main.model.Dataset;
 import main.model.Review;
 import main.model.ReviewResult;
+import main.model.ReviewSampler;
+import main.model.ReviewTable;
+import main.model.SentimentSummary;
 import test.DatasetUTest;
 
 /**
@@ -40,11 +48,96 @@ public class YelpUtil {
 	final static String OUTPUT_TEST_FILE_500 = "C:/Users/Vijay/yelp-dataset/review_test_500.json";
 	final static String TEST_DATA_FILE = "C:/Users/Vijay/yelp-dataset/review_test.txt";
 
+	// Stratified random sample of the full review file
+	final static String SAMPLE_TRAINING_DATA_FILE = "C:/Users/Vijay/yelp-dataset/review_train_sample.txt";
+	final static String SAMPLE_TEST_DATA_FILE = "C:/Users/Vijay/yelp-dataset/review_test_sample.json";
+	final static int SAMPLE_TRAIN_PER_STARS = Integer.getInteger("yelpnlp.sample.train", 200000);
+	final static int SAMPLE_TEST_PER_STARS = Integer.getInteger("yelpnlp.sample.test", 2000);
+	final static long SAMPLE_SEED = 7;
+
 	// Path to summary file
 	final static String SYSTEM_RESULTS_FILE = "C:/Users/Vijay/yelp-dataset/system_results.txt";
 
+	// OpenNLP parts-of-speech model
+	final static String POS_MODEL_FILE = "C:/Users/Vijay/photon-BU622/YelpNLP/models/en-pos-maxent.bin";
+
+	// Preprocessed test corpora, keyed by the hash of the review file
+	final static String CORPUS_CACHE_DIRECTORY = "models/corpus";
+
+	// Aspect lexicon file for topic detection, "aspect: term, phrase" per line; built-in lexicon if unset
+	final static String TOPIC_LEXICON_FILE = System.getProperty("yelpnlp.topicLexicon");
+
+	// Ranking of the nouns of a review as topic: "tfidf" over the reviews seen so far, or "frequency" for corpus counts
+	final static boolean TFIDF_TOPICS = !"frequency".equals(System.getProperty("yelpnlp.topicScoring", "tfidf"));
+
+	// Document frequency snapshot warm-starting TF-IDF topic scoring and updated after the run, none if unset
+	final static String DF_SNAPSHOT_FILE = System.getProperty("yelpnlp.dfSnapshot");
+
+	// Hashed sentiment features: number of buckets, 0 for raw tokens, and longest n-gram
+	final static int FEATURE_HASH_BUCKETS = Integer.getInteger("yelpnlp.hashBuckets", 0);
+	final static int FEATURE_NGRAM_SIZE = Integer.getInteger("yelpnlp.ngramSize", 1);
+
+	// Metrics snapshot period in seconds, 0 to disable, and optional JSON snapshot file
+	final static long METRICS_PERIOD_SECONDS = Long.getLong("yelpnlp.metrics.period", 0);
+	final static String METRICS_FILE = System.getProperty("yelpnlp.metrics.file");
+
+	// Scoring server: port, texts per batch, longest wait for a batch to fill, queued texts,
+	// longest wait of a request for its scores
+	final static int SERVER_PORT = Integer.getInteger("yelpnlp.server.port", 8080);
+	final static int SERVER_BATCH_SIZE = Integer.getInteger("yelpnlp.server.batchSize", 32);
+	final static long SERVER_MAX_WAIT_MILLIS = Long.getLong("yelpnlp.server.maxWaitMillis", 2);
+	final static int SERVER_QUEUE_CAPACITY = Integer.getInteger("yelpnlp.server.queueCapacity", 8192);
+	final static int SERVER_HANDLER_THREADS = Integer.getInteger("yelpnlp.server.handlers", 64);
+	final static long SERVER_TIMEOUT_MILLIS = Long.getLong("yelpnlp.server.timeoutMillis", 30000);
+
+	// Nouns monitored by the SpaceSaving counts of the pipeline, shard and server runs
+	final static int NOUN_CAPACITY = Integer.getInteger("yelpnlp.nounCapacity", 100000);
+
+	// Work directory of the shard files and partial results of --sharded runs
+	final static String SHARD_DIRECTORY = "shards";
+
+	// Per-review results of a run as CSV and binary files, empty to disable, with or without the text
+	final static String RESULTS_DIRECTORY = System.getProperty("yelpnlp.results.dir", "results");
+	final static boolean RESULTS_INCLUDE_TEXT = Boolean.getBoolean("yelpnlp.results.text");
+	final static int RESULTS_QUEUE_CAPACITY = Integer.getInteger("yelpnlp.results.queueCapacity", 65536);
+	final static String RESULTS_CSV_FILE = "review_results.csv";
+	final static String RESULTS_BINARY_FILE = "review_results.bin";
+
+	// Incrementally trained Naive Bayes sentiment model
+	final static String NAIVE_BAYES_MODEL_FILE = "models/naive-bayes.bin";
+
+	// Sentiment scoring model: "maxent" for the OpenNLP doccat model, or "naiveBayes"
+	final static boolean NAIVE_BAYES_SENTIMENT = "naiveBayes".equals(System.getProperty("yelpnlp.sentimentModel", "maxent"));
+
 	final static int DISPLAY_LIMIT = 20;
 
+	// Number of worker threads for the parallel NLP steps
+	final static int THREAD_COUNT = Integer.getInteger("yelpnlp.threads", Runtime.getRuntime().availableProcessors());
+
+	// Staged pipeline: capacity of the queues between stages and workers per stage
+	final static int PIPELINE_QUEUE_CAPACITY = Integer.getInteger("yelpnlp.queueCapacity", 1024);
+	final static int CLEAN_WORKERS = Integer.getInteger("yelpnlp.workers.clean", 1);
+	final static int SCORE_WORKERS = Integer.getInteger("yelpnlp.workers.score", THREAD_COUNT);
+	final static int TAG_WORKERS = Integer.getInteger("yelpnlp.workers.tag", THREAD_COUNT);
+	final static int TOPIC_WORKERS = Integer.getInteger("yelpnlp.workers.topic", 1);
+	final static int AGGREGATE_WORKERS = Integer.getInteger("yelpnlp.workers.aggregate", 1);
+
+	// Cross-validation of the sentiment model training parameters
+	final static int CROSS_VALIDATION_FOLDS = 5;
+	final static long CROSS_VALIDATION_SEED = 42;
+	final static int[] GRID_ITERATIONS = { 10, 20, 50 };
+	final static int[] GRID_CUTOFFS = { 0, 2, 5 };
+	final static int[] GRID_TRAINER_THREADS = { 1, 4 };
+
+	// Fewest reviews of a business about a topic for it to be summarized
+	final static int MIN_SUMMARY_REVIEWS = 2;
+
+	// Keep the review texts of --evaluate runs outside the heap
+	final static boolean TABLE_OFF_HEAP = Boolean.getBoolean("yelpnlp.table.offHeap");
+
+	// Words monitored by the approximate heavy hitter mode, 0 counts every word exactly
+	final static int HEAVY_HITTER_CAPACITY = Integer.getInteger("yelpnlp.heavyHitters", 0);
+
 	public YelpUtil() {
 	}
 
@@ -66,47 +159,66 @@ public class YelpUtil {
 
 	}
 
-	public static void displayWordFrequencyMap(Map<String, Integer> wordFrequencyMap, int DISPLAY_LIMIT) {
+	/**
+	 * Display the most frequent words of a word frequency map. Selects the top
+	 * words with {@link TopK} over the entry positions instead of sorting the
+	 * whole map.
+	 * 
+	 * @param wordFrequencyMap map of word to number of occurrences
+	 * @param DISPLAY_LIMIT    number of words to display
+	 */
+	public static void displayWordFrequencyMap(Map<String, ? extends Number> wordFrequencyMap, int DISPLAY_LIMIT) {
 		LOGGER.info("Display word frequency map...\n");
-		List<Integer> frequencies = new ArrayList<Integer>();
-		for (String word : wordFrequencyMap.keySet()) {
-			int count = wordFrequencyMap.get(word);
-			frequencies.add(count);
-			LOGGER.info(word + " " + count);
+		List<String> words = new ArrayList<String>(wordFrequencyMap.keySet());
+		TopK top = new TopK(DISPLAY_LIMIT);
+		for (int i = 0; i < words.size(); i++) {
+			top.offer(i, wordFrequencyMap.get(words.get(i)).longValue());
 		}
 
-		Collections.sort(frequencies);
-
-		int wordLimit = frequencies.size() - 7;
-		int index = frequencies.size() - 1;
-		List<String> keys = new ArrayList<String>();
-		while (index > wordLimit) {
-			for (String key : wordFrequencyMap.keySet()) {
-				int value = wordFrequencyMap.get(key);
-				if (value == frequencies.get(index)) {
-					// Found max word
-					keys.add(key);
-					// Increment index
-					index--;
-				}
-			}
+		int[] keys = top.sortedKeys();
+		long[] counts = top.sortedCounts();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < keys.length; i++) {
+			sb.append(words.get(keys[i])).append('=').append(counts[i]).append(", ");
 		}
+		System.out.println(sb.toString());
+	}
 
-		int counter = 0;
-		for (String key : keys) {
-			if (counter > DISPLAY_LIMIT) {
-				break;
-			}
-			System.out.print(key + ", ");
-			counter++;
+	/**
+	 * Display the most frequent terms of a term frequency counter.
+	 * 
+	 * @param vocabulary      vocabulary the counter is keyed by
+	 * @param termFrequencies map of term ID to number of occurrences
+	 * @param DISPLAY_LIMIT   number of terms to display
+	 */
+	public static void displayTopTerms(Vocabulary vocabulary, IntIntCounter termFrequencies, int DISPLAY_LIMIT) {
+		LOGGER.info("Display top terms...\n");
+		TopK top = TopK.of(termFrequencies, DISPLAY_LIMIT);
+		int[] keys = top.sortedKeys();
+		long[] counts = top.sortedCounts();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < keys.length; i++) {
+			sb.append(vocabulary.term(keys[i])).append('=').append(counts[i]).append(", ");
 		}
-		System.out.println();
-		for (String key : keys) {
-			if (counter > DISPLAY_LIMIT) {
-				break;
-			}
-			System.out.print(wordFrequencyMap.get(key) + ", ");
+		System.out.println(sb.toString());
+	}
+
+	/**
+	 * Display the approximate heavy hitters tracked while reviews streamed
+	 * through.
+	 * 
+	 * @param heavyHitters  the heavy hitter tracker
+	 * @param DISPLAY_LIMIT number of terms to display
+	 */
+	public static void displayHeavyHitters(SpaceSaving heavyHitters, int DISPLAY_LIMIT) {
+		// Counts are only ever overestimated, so the true count lies in [count - error, count]
+		LOGGER.info("Display approximate top terms of " + heavyHitters.getTotal() + " words...\n");
+		StringBuilder sb = new StringBuilder();
+		for (SpaceSaving.Entry entry : heavyHitters.top(DISPLAY_LIMIT)) {
+			sb.append(entry.getWord()).append('=').append(entry.getCount()).append("(-").append(entry.getError())
+					.append("), ");
 		}
+		System.out.println(sb.toString());
 	}
 
 	/**
@@ -165,6 +277,27 @@ public class YelpUtil {
 		System.out.println(sb.toString());
 	}
 
+	/**
+	 * Display the accuracy of the scores of the reviews of a table
+	 * 
+	 * @param table  the reviews
+	 * @param scores predicted score of every row of the table
+	 */
+	public static void displayScores(ReviewTable table, int[] scores) {
+		int correct = 0;
+		ReviewTable.View view = table.view();
+		for (int i = 0; i < scores.length; i++) {
+			if (view.moveTo(i).getStars() == scores[i]) {
+				correct++;
+			}
+		}
+
+		int incorrect = scores.length - correct;
+		float accuracy = (float) correct / scores.length;
+		System.out.println("Overall Prediction Accuracy = " + accuracy + ", Correct(#) = " + correct
+				+ ", Incorrect(#) = " + incorrect);
+	}
+
 	public static void displayReviewResults(List<ReviewResult> reviewResults, int DISPLAY_LIMIT) {
 		int count = 0;
 		for (ReviewResult result : reviewResults) {
@@ -178,6 +311,69 @@ public class YelpUtil {
 		}
 	}
 
+	/**
+	 * Display the aggregated feedback of each business about its topics
+	 * 
+	 * @param summaries     per business and topic sentiment summaries
+	 * @param DISPLAY_LIMIT number of summaries to display
+	 */
+	public static void displaySentimentSummaries(List<SentimentSummary> summaries, int DISPLAY_LIMIT) {
+		displaySentimentSummaries(summaries, "reviews", DISPLAY_LIMIT);
+	}
+
+	/**
+	 * Display the aggregated feedback of each business about its topics
+	 * 
+	 * @param summaries     per business and topic sentiment summaries
+	 * @param unit          what the summaries count, e.g. "sentences"
+	 * @param DISPLAY_LIMIT number of summaries to display
+	 */
+	public static void displaySentimentSummaries(List<SentimentSummary> summaries, String unit, int DISPLAY_LIMIT) {
+		int count = 0;
+		for (SentimentSummary summary : summaries) {
+			if (count > DISPLAY_LIMIT) {
+				break;
+			}
+			System.out.println(summary.describe() + " (" + summary.getReviewCount() + " " + unit + ", mean "
+					+ String.format("%.2f", summary.getMeanScore()) + ")");
+			count++;
+		}
+	}
+
+	/**
+	 * Display the sentiment of reviews per aspect
+	 * 
+	 * @param aspectSentiments per review and aspect sentiment
+	 * @param DISPLAY_LIMIT    number of aspect sentiments to display
+	 */
+	public static void displayAspectSentiments(List<AspectSentiment> aspectSentiments, int DISPLAY_LIMIT) {
+		int count = 0;
+		for (AspectSentiment aspectSentiment : aspectSentiments) {
+			if (count > DISPLAY_LIMIT) {
+				break;
+			}
+			System.out.println("Review " + aspectSentiment.getReviewId() + " of " + aspectSentiment.getBusinessId()
+					+ "\n  " + aspectSentiment.getAspect() + " - mean "
+					+ String.format("%.2f", aspectSentiment.getMeanScore()) + " over "
+					+ aspectSentiment.getSentenceCount() + " sentences");
+			count++;
+		}
+	}
+
+	/**
+	 * Display the cross-validation result of every training configuration, best
+	 * accuracy first
+	 * 
+	 * @param results cross-validation results
+	 */
+	public static void displayCrossValidationResults(List<CrossValidationResult> results) {
+		List<CrossValidationResult> sorted = new ArrayList<CrossValidationResult>(results);
+		sorted.sort((a, b) -> Double.compare(b.getAccuracy(), a.getAccuracy()));
+		for (CrossValidationResult result : sorted) {
+			System.out.println(result.toString());
+		}
+	}
+
 	/**
 	 * 
 	 * @throws IOException
@@ -198,6 +394,21 @@ public class YelpUtil {
 		dataset.createTrainingDataFile(TRAINING_DATA_FILE_500, reviews);
 	}
 
+	/**
+	 * Write a training file and a test file sampled at random from the full
+	 * review file, with the same number of reviews of every star rating
+	 * 
+	 * @throws IOException
+	 */
+	public void createSampledDataFiles() throws IOException {
+		ReviewSampler sampler = new ReviewSampler(THREAD_COUNT, SAMPLE_SEED);
+		long[] population = sampler.sample(REVIEW_DATA_FILE, SAMPLE_TRAINING_DATA_FILE, SAMPLE_TEST_DATA_FILE,
+				SAMPLE_TRAIN_PER_STARS, SAMPLE_TEST_PER_STARS);
+		for (int stars = 1; stars < population.length; stars++) {
+			System.out.println(stars + " stars: " + population[stars] + " reviews");
+		}
+	}
+
 	/**
 	 * 
 	 * @throws IOException
@@ -0,0 +1,73 @@
+package main.model;
+
+/**
+ * Sentiment of the sentences of one review about one aspect, e.g. the food
+ * sentences of a review which praises the food and pans the service
+ *
+ * @author vbala
+ *
+ */
+public class AspectSentiment {
+
+	private final String reviewId;
+	private final String businessId;
+	private final String aspect;
+	private final int sentenceCount;
+	private final long scoreSum;
+
+	public AspectSentiment(String reviewId, String businessId, String aspect, int sentenceCount, long scoreSum) {
+		this.reviewId = reviewId;
+		this.businessId = businessId;
+		this.aspect = aspect;
+		this.sentenceCount = sentenceCount;
+		this.scoreSum = scoreSum;
+	}
+
+	public String getReviewId() {
+		return reviewId;
+	}
+
+	public String getBusinessId() {
+		return businessId;
+	}
+
+	public String getAspect() {
+		return aspect;
+	}
+
+	/**
+	 * @return number of sentences of the review about the aspect
+	 */
+	public int getSentenceCount() {
+		return sentenceCount;
+	}
+
+	/**
+	 * @return sum of the sentiment scores of the sentences
+	 */
+	public long getScoreSum() {
+		return scoreSum;
+	}
+
+	/**
+	 * @return mean sentiment score of the sentences
+	 */
+	public double getMeanScore() {
+		return sentenceCount == 0 ? 0 : (double) scoreSum / sentenceCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("AspectSentiment [reviewId=").append(reviewId).append(", businessId=").append(businessId)
+				.append(", aspect=").append(aspect).append(", sentenceCount=").append(sentenceCount)
+				.append(", meanScore=").append(getMeanScore()).append("]");
+		return builder.toString();
+	}
+
+}
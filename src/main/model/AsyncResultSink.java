@@ -0,0 +1,153 @@
+package main.model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import main.algorithm.Metrics;
+
+/**
+ * Thread-safe sink handing results to a writer thread which writes them to one
+ * or more sinks, so the threads producing results never wait for the disk. The
+ * queue is bounded: producers only block when the writer falls a whole queue
+ * behind. A failure of the writer is thrown by the next {@link #write} and by
+ * {@link #close()}; results written after it are dropped.
+ *
+ * @author vbala
+ *
+ */
+public class AsyncResultSink implements ResultSink {
+
+	private final Logger LOGGER = Logger.getLogger(AsyncResultSink.class.getSimpleName());
+
+	/**
+	 * Queued after the last result by close
+	 */
+	private static final ReviewResult END = new ReviewResult(null, 0, null);
+
+	private static final int BATCH_SIZE = 1024;
+
+	private final List<ResultSink> sinks;
+	private final BlockingQueue<ReviewResult> queue;
+	private final Thread writer;
+	private final LongAdder written = Metrics.getInstance().counter("results.written");
+
+	private volatile IOException failure;
+	private volatile boolean closed;
+
+	/**
+	 * Constructor - starts the writer thread
+	 *
+	 * @param queueCapacity number of results which may wait to be written
+	 * @param sinks         sinks every result is written to, closed by
+	 *                      {@link #close()}
+	 */
+	public AsyncResultSink(int queueCapacity, ResultSink... sinks) {
+		this.sinks = Arrays.asList(sinks);
+		this.queue = new ArrayBlockingQueue<ReviewResult>(queueCapacity);
+		Metrics.getInstance().registerGauge("results.queueDepth", queue::size);
+		this.writer = new Thread(this::drain, "result-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@Override
+	public void write(ReviewResult result) throws IOException {
+		checkFailure();
+		if (closed) {
+			throw new IOException("Result sink is closed");
+		}
+		try {
+			queue.put(result);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while queueing a result");
+		}
+	}
+
+	/**
+	 * Write the results still queued, stop the writer thread and close the
+	 * sinks.
+	 *
+	 * @throws IOException the writer failed, or error closing a sink
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			queue.put(END);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			writer.interrupt();
+			throw new InterruptedIOException("Interrupted while writing the remaining results");
+		} finally {
+			Metrics.getInstance().unregisterGauge("results.queueDepth");
+			IOException error = failure;
+			for (ResultSink sink : sinks) {
+				try {
+					sink.close();
+				} catch (IOException e) {
+					if (error == null) {
+						error = e;
+					} else {
+						error.addSuppressed(e);
+					}
+				}
+			}
+			failure = error;
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException error = failure;
+		if (error != null) {
+			throw new IOException("Writing results failed", error);
+		}
+	}
+
+	private void drain() {
+		List<ReviewResult> batch = new ArrayList<ReviewResult>(BATCH_SIZE);
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch, BATCH_SIZE - 1);
+				for (ReviewResult result : batch) {
+					if (result == END) {
+						return;
+					}
+					// Keep taking results after a failure so producers never block
+					if (failure == null) {
+						writeToSinks(result);
+					}
+				}
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			// Close was interrupted
+		}
+	}
+
+	private void writeToSinks(ReviewResult result) {
+		try {
+			for (ResultSink sink : sinks) {
+				sink.write(result);
+			}
+			written.increment();
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warning("Cannot write results: " + e);
+			failure = e instanceof IOException ? (IOException) e : new IOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+package main.model;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a file written by {@link BinaryResultSink}.
+ * Every record is read into one reusable buffer and decoded from there, so
+ * reloading costs little more than reading the file.
+ *
+ * @author vbala
+ *
+ */
+public class BinaryResultReader implements Iterator<ReviewResult>, Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final DataInputStream in;
+	private byte[] record = new byte[512];
+	private int position;
+	private ReviewResult next;
+	private boolean finished;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pathToFile pointer to a file written by {@link BinaryResultSink}
+	 * @throws IOException the file cannot be opened or is not a result file
+	 */
+	public BinaryResultReader(String pathToFile) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(pathToFile)), BUFFER_SIZE));
+		try {
+			if (in.readInt() != BinaryResultSink.MAGIC) {
+				throw new IOException(pathToFile + " is not a result file");
+			}
+			int version = in.readInt();
+			if (version != BinaryResultSink.VERSION) {
+				throw new IOException("Unsupported result file version " + version + " in " + pathToFile);
+			}
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !finished) {
+			try {
+				next = advance();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			finished = next == null;
+		}
+		return next != null;
+	}
+
+	@Override
+	public ReviewResult next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		ReviewResult result = next;
+		next = null;
+		return result;
+	}
+
+	/**
+	 * @return a sequential stream over the remaining results; closing the stream
+	 *         closes this reader
+	 */
+	public Stream<ReviewResult> stream() {
+		Spliterator<ReviewResult> spliterator = Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Read the next record.
+	 *
+	 * @return the next result, or null at the end of the file
+	 * @throws IOException error reading, or the file ends within a record
+	 */
+	private ReviewResult advance() throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (length < 0) {
+			throw new IOException("Corrupt result record of length " + length);
+		}
+		if (length > record.length) {
+			record = new byte[Math.max(length, record.length * 2)];
+		}
+		try {
+			in.readFully(record, 0, length);
+		} catch (EOFException e) {
+			throw new IOException("Result file ends within a record", e);
+		}
+
+		position = 0;
+		String id = readString(length);
+		String businessId = readString(length);
+		String topic = readString(length);
+		String text = readString(length);
+		if (position + 2 != length) {
+			throw new IOException("Corrupt result record of length " + length);
+		}
+		int stars = record[position++];
+		int score = record[position++];
+		return new ReviewResult(new Review(id, text, stars, businessId), score, topic);
+	}
+
+	private String readString(int length) throws IOException {
+		int size = 0;
+		for (int shift = 0;; shift += 7) {
+			if (position >= length || shift > 28) {
+				throw new IOException("Corrupt result record of length " + length);
+			}
+			byte b = record[position++];
+			size |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				break;
+			}
+		}
+		if (size == 0) {
+			return null;
+		}
+		size--;
+		if (size > length - position) {
+			throw new IOException("Corrupt result record of length " + length);
+		}
+		String value = new String(record, position, size, StandardCharsets.UTF_8);
+		position += size;
+		return value;
+	}
+
+}
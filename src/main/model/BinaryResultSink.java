@@ -0,0 +1,103 @@
+package main.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes results to a compact binary file which {@link BinaryResultReader}
+ * reloads much faster than the JSON or CSV could be parsed. After a header of
+ * {@link #MAGIC} and {@link #VERSION} every result is one record prefixed with
+ * its length in bytes:
+ *
+ * <pre>
+ * int     length of the rest of the record
+ * string  review id
+ * string  business id
+ * string  topic
+ * string  text
+ * byte    stars
+ * byte    score
+ * </pre>
+ *
+ * A string is its UTF-8 length plus one as a varint followed by its bytes; a
+ * length of 0 is null. The text is null when the sink was created without it.
+ *
+ * @author vbala
+ *
+ */
+public class BinaryResultSink implements ResultSink {
+
+	/**
+	 * First bytes of a result file, "YRB1"
+	 */
+	public static final int MAGIC = 0x59524231;
+
+	/**
+	 * Version of the record layout
+	 */
+	public static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final DataOutputStream out;
+	private final boolean includeText;
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream(512);
+
+	/**
+	 * Constructor - creates or truncates the file
+	 *
+	 * @param file        file to write
+	 * @param includeText whether to write the review text
+	 * @throws IOException error creating the file
+	 */
+	public BinaryResultSink(File file, boolean includeText) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE));
+		this.includeText = includeText;
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	@Override
+	public void write(ReviewResult result) throws IOException {
+		Review review = result.getReview();
+		record.reset();
+		writeString(review.id);
+		writeString(review.businessId);
+		writeString(result.getTopic());
+		writeString(includeText ? review.text : null);
+		record.write(review.stars);
+		record.write(result.getScore());
+
+		out.writeInt(record.size());
+		record.writeTo(out);
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void writeString(String value) {
+		if (value == null) {
+			writeVarInt(0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length + 1);
+		record.write(bytes, 0, bytes.length);
+	}
+
+	private void writeVarInt(int value) {
+		while ((value & ~0x7f) != 0) {
+			record.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		record.write(value);
+	}
+
+}
@@ -0,0 +1,89 @@
+package main.model;
+
+/**
+ * Accuracy and throughput of one training configuration measured with k-fold
+ * cross-validation
+ *
+ * @author vbala
+ *
+ */
+public class CrossValidationResult {
+
+	private final int iterations;
+	private final int cutoff;
+	private final int trainerThreads;
+	private final int folds;
+	private final long correct;
+	private final long evaluated;
+	private final long trainingSamples;
+	private final long trainingNanos;
+	private final long scoringNanos;
+
+	public CrossValidationResult(int iterations, int cutoff, int trainerThreads, int folds, long correct,
+			long evaluated, long trainingSamples, long trainingNanos, long scoringNanos) {
+		this.iterations = iterations;
+		this.cutoff = cutoff;
+		this.trainerThreads = trainerThreads;
+		this.folds = folds;
+		this.correct = correct;
+		this.evaluated = evaluated;
+		this.trainingSamples = trainingSamples;
+		this.trainingNanos = trainingNanos;
+		this.scoringNanos = scoringNanos;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public int getCutoff() {
+		return cutoff;
+	}
+
+	public int getTrainerThreads() {
+		return trainerThreads;
+	}
+
+	public int getFolds() {
+		return folds;
+	}
+
+	/**
+	 * @return fraction of held out reviews whose score was predicted correctly
+	 */
+	public double getAccuracy() {
+		return evaluated == 0 ? 0 : (double) correct / evaluated;
+	}
+
+	/**
+	 * @return training samples processed per second of training time, summed
+	 *         over all folds
+	 */
+	public double getTrainingSamplesPerSecond() {
+		return trainingNanos == 0 ? 0 : trainingSamples * 1e9 / trainingNanos;
+	}
+
+	/**
+	 * @return held out reviews scored per second of scoring time
+	 */
+	public double getScoredReviewsPerSecond() {
+		return scoringNanos == 0 ? 0 : evaluated * 1e9 / scoringNanos;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("CrossValidationResult [iterations=").append(iterations).append(", cutoff=").append(cutoff)
+				.append(", trainerThreads=").append(trainerThreads).append(", folds=").append(folds)
+				.append(", accuracy=").append(String.format("%.4f", getAccuracy())).append(", trainSamples/s=")
+				.append(String.format("%.0f", getTrainingSamplesPerSecond())).append(", scoredReviews/s=")
+				.append(String.format("%.0f", getScoredReviewsPerSecond())).append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,88 @@
+package main.model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes results as CSV (RFC 4180) through a large buffer: one header line,
+ * then review_id, business_id, stars, score, topic and optionally the text of
+ * every review.
+ *
+ * @author vbala
+ *
+ */
+public class CsvResultSink implements ResultSink {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final BufferedWriter writer;
+	private final boolean includeText;
+	private final StringBuilder line = new StringBuilder(256);
+
+	/**
+	 * Constructor - creates or truncates the file
+	 *
+	 * @param file        file to write
+	 * @param includeText whether to write the review text
+	 * @throws IOException error creating the file
+	 */
+	public CsvResultSink(File file, boolean includeText) throws IOException {
+		this.writer = new BufferedWriter(
+				new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), BUFFER_SIZE);
+		this.includeText = includeText;
+		writer.write(includeText ? "review_id,business_id,stars,score,topic,text\r\n"
+				: "review_id,business_id,stars,score,topic\r\n");
+	}
+
+	@Override
+	public void write(ReviewResult result) throws IOException {
+		Review review = result.getReview();
+		line.setLength(0);
+		appendField(review.id).append(',');
+		appendField(review.businessId).append(',');
+		line.append(review.stars).append(',').append(result.getScore()).append(',');
+		appendField(result.getTopic());
+		if (includeText) {
+			line.append(',');
+			appendField(review.text);
+		}
+		line.append("\r\n");
+		writer.append(line);
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Append a field, quoted when it contains a separator, quote or line break
+	 */
+	private StringBuilder appendField(String value) {
+		if (value == null) {
+			return line;
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			return line.append(value);
+		}
+		line.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				line.append('"');
+			}
+			line.append(c);
+		}
+		return line.append('"');
+	}
+
+}
@@ -1,16 +1,19 @@
 package main.model;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import main.algorithm.Metrics;
+import main.algorithm.TextTokenizer;
 
 /**
  * Represents YELP review data
@@ -19,6 +22,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  *
  */
 public class Dataset {
+
+	private static final LongAdder CLEANED_REVIEWS = Metrics.getInstance().counter("clean.reviews");
+	private static final LongAdder CLEANED_CHARS = Metrics.getInstance().counter("clean.chars");
+
 	/**
 	 * Map to store customer review ID and customer review text
 	 */
@@ -33,7 +40,9 @@ public class Dataset {
 	}
 
 	/**
-	 * Create the test data file
+	 * Create the test data file from the reviews following the first reviewLimit
+	 * reviews of the input, so they were not used for training. Use
+	 * {@link ReviewSampler} for random, stratified test sets.
 	 * 
 	 * @param pathToFile
 	 * @param pathToOutputFile
@@ -41,51 +50,7 @@ public class Dataset {
 	 * @throws IOException
 	 */
 	public void createTestDataFile(String pathToFile, String pathToOutputFile, int reviewLimit) throws IOException {
-		int maxLineCount = reviewLimit + 100;
-
-		BufferedWriter outputFile = new BufferedWriter(new FileWriter(pathToOutputFile));
-		FileInputStream inputStream = null;
-		Scanner sc = null;
-		try {
-			inputStream = new FileInputStream(pathToFile);
-			sc = new Scanner(inputStream, "UTF-8");
-
-			int count = 0;
-			while (sc.hasNextLine()) {
-				if (count < reviewLimit) {
-					continue;
-				}
-
-				if (count > maxLineCount) {
-					sc.close();
-					break;
-				}
-				if (count == 0) {
-					outputFile.write("[" + "\n");
-				}
-				String line = sc.nextLine();
-				System.out.println(line);
-				if (count != 0 && (count >= reviewLimit) && (count <= maxLineCount)) {
-					outputFile.write(",");
-				}
-
-				outputFile.write(line);
-				count++;
-			}
-			// note that Scanner suppresses exceptions
-			if (sc.ioException() != null) {
-				throw sc.ioException();
-			}
-		} finally {
-			if (inputStream != null) {
-				inputStream.close();
-			}
-			if (sc != null) {
-				outputFile.write("]" + "\n");
-				outputFile.close();
-				sc.close();
-			}
-		}
+		copyLines(pathToFile, pathToOutputFile, reviewLimit, reviewLimit + 100);
 	}
 
 	/**
@@ -121,111 +86,100 @@ public class Dataset {
 	 * @throws IOException
 	 */
 	public void streamFile(String pathToFile, String pathToOutputFile, int reviewLimit) throws IOException {
-		BufferedWriter outputFile = new BufferedWriter(new FileWriter(pathToOutputFile));
-		FileInputStream inputStream = null;
-		Scanner sc = null;
-		try {
-			inputStream = new FileInputStream(pathToFile);
-			sc = new Scanner(inputStream, "UTF-8");
+		copyLines(pathToFile, pathToOutputFile, 0, reviewLimit);
+	}
 
+	/**
+	 * Copy lines first to last (inclusive, counting from 0) of a newline-delimited
+	 * file into a JSON array.
+	 */
+	private void copyLines(String pathToFile, String pathToOutputFile, int first, int last) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(pathToFile), StandardCharsets.UTF_8);
+				BufferedWriter outputFile = Files.newBufferedWriter(Paths.get(pathToOutputFile),
+						StandardCharsets.UTF_8)) {
+			outputFile.write("[" + "\n");
 			int count = 0;
-			while (sc.hasNextLine()) {
-				if (count > reviewLimit) {
-					sc.close();
-					break;
-				}
-				if (count == 0) {
-					outputFile.write("[" + "\n");
+			String line;
+			while (count <= last && (line = reader.readLine()) != null) {
+				if (count >= first) {
+					if (count > first) {
+						outputFile.write(",");
+					}
+					outputFile.write(line);
 				}
-				String line = sc.nextLine();
-				System.out.println(line);
-				if (count != 0 && count <= reviewLimit) {
-					outputFile.write(",");
-				}
-
-				outputFile.write(line);
 				count++;
 			}
-			// note that Scanner suppresses exceptions
-			if (sc.ioException() != null) {
-				throw sc.ioException();
-			}
-		} finally {
-			if (inputStream != null) {
-				inputStream.close();
-			}
-			if (sc != null) {
-				outputFile.write("]" + "\n");
-				outputFile.close();
-				sc.close();
-			}
+			outputFile.write("]" + "\n");
 		}
 	}
 
 	/**
-	 * Read a JSON file into memory and store review data.
+	 * Read a JSON file into memory and store review data. The file is streamed
+	 * with a {@link ReviewReader}, so both the raw newline-delimited review dump
+	 * and array wrapped files are accepted.
 	 * 
 	 * @param pathToFile pointer to JSON file containing customer review data
-	 * @return
+	 * @return reviewIdToReviewMap map containing review IDs and review text
 	 * @throws IOException error opening file
 	 */
 	public Map<Integer, Review> readJSON(String pathToFile) throws IOException {
-		// Create ObjectMapper instance
-		ObjectMapper objectMapper = new ObjectMapper();
+		Map<Integer, Review> reviewIdToReviewMap = new HashMap<Integer, Review>();
 
-		// Read json like DOM parser
-		JsonNode rootNode = objectMapper.readTree(new File(pathToFile));
+		// Convert raw text to internal objects
+		int internalIndex = 0;
+		try (ReviewReader reader = new ReviewReader(pathToFile)) {
+			while (reader.hasNext()) {
+				reviewIdToReviewMap.put(internalIndex, reader.next());
+				internalIndex++;
+			}
+		}
 
-		// Parse json data and populate map
-		return parseJSON(rootNode);
-	};
+		return reviewIdToReviewMap;
+	}
 
 	/**
-	 * Parse the JSON Node returned from reading the file and populate
-	 * {@link #reviewIdToReviewMap} with data for each restaurant review
+	 * Read a JSON file into a columnar {@link ReviewTable}, which holds the
+	 * reviews in a fraction of the heap of {@link #readJSON(String)}.
 	 * 
-	 * @return reviewIdToReviewMap map containing review IDs and review text
+	 * @param pathToFile pointer to JSON file containing customer review data
+	 * @param offHeap    whether to keep the review texts outside the heap
+	 * @return table of cleaned reviews, in file order
+	 * @throws IOException error opening file
 	 */
-	private Map<Integer, Review> parseJSON(JsonNode jsonNode) {
-		Map<Integer, Review> reviewIdToReviewMap = new HashMap<Integer, Review>();
-
-		// Convert raw text to internal objects
-		int internalIndex = 0;
-		for (int i = 0; i < jsonNode.size() - 1; i++) {
-			JsonNode node = jsonNode.get(i);
-
-			String id = node.findValue("review_id").asText();
-			String text = node.findValue("text").asText();
-			// Skip if no text in review
-			if (text.isEmpty()) {
-				continue;
+	public ReviewTable readTable(String pathToFile, boolean offHeap) throws IOException {
+		ReviewTable table = new ReviewTable(offHeap);
+		try (ReviewReader reader = new ReviewReader(pathToFile)) {
+			while (reader.hasNext()) {
+				table.add(reader.next());
 			}
-
-			// Clean review text
-			String cleanText = cleanText(text);
-			int stars = node.findValue("stars").asInt();
-			String businessId = node.findValue("business_id").asText();
-			// Build review and populate map
-			Review review = new Review(id, cleanText, stars, businessId);
-			reviewIdToReviewMap.put(internalIndex, review);
-			internalIndex++;
 		}
+		return table;
+	}
 
-		return reviewIdToReviewMap;
+	/**
+	 * Lazily stream the reviews in a JSON file without loading the file into
+	 * memory. The returned stream must be closed to release the file.
+	 * 
+	 * @param pathToFile pointer to JSON file containing customer review data
+	 * @return stream of cleaned reviews
+	 * @throws IOException error opening file
+	 */
+	public Stream<Review> streamJSON(String pathToFile) throws IOException {
+		return new ReviewReader(pathToFile).stream();
 	}
 
 	/**
 	 * Clean up deficiencies in text which could slow down algorithm performance;
-	 * start with punctuation and delimiting characters
+	 * start with punctuation and delimiting characters. Runs in a single pass
+	 * over the text with the {@link TextTokenizer} of the calling thread.
 	 * 
 	 * @param text the text node to cleanup
-	 * @return converted data as an iterator
+	 * @return the letters of the text with whitespace collapsed to single spaces
 	 */
-	private String cleanText(String text) {
-		String cleaned = text.trim();
-		cleaned = cleaned.replaceAll("[^a-zA-Z\\s\\r]", ""); // Removes Special Characters and Digits
-		cleaned = cleaned.replace("\n", " ");
-		return cleaned;
+	public static String cleanText(String text) {
+		CLEANED_REVIEWS.increment();
+		CLEANED_CHARS.add(text.length());
+		return TextTokenizer.get().reset(text).cleanText();
 	}
 
 	/**
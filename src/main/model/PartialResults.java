@@ -0,0 +1,148 @@
+package main.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of analyzing one shard of the reviews, stored in a directory so a
+ * separate merge step can combine the shards: the per (business, topic)
+ * sentiment aggregates and the noun frequencies, each as a tab separated file.
+ * Files are written next to their target and moved into place, so a reader
+ * never sees a partial file.
+ *
+ * @author vbala
+ *
+ */
+public class PartialResults {
+
+	public static final String AGGREGATES_FILE = "aggregates.tsv";
+	public static final String WORD_FREQUENCIES_FILE = "words.tsv";
+
+	private PartialResults() {
+	}
+
+	/**
+	 * @param directory directory of one shard's results
+	 * @return whether the directory holds complete results
+	 */
+	public static boolean exists(File directory) {
+		return new File(directory, AGGREGATES_FILE).isFile() && new File(directory, WORD_FREQUENCIES_FILE).isFile();
+	}
+
+	/**
+	 * Write the results of one shard.
+	 *
+	 * @param directory       directory to write to
+	 * @param summaries       sentiment aggregates of the shard
+	 * @param wordFrequencies noun frequencies of the shard
+	 * @throws IOException error writing the files
+	 */
+	public static void write(File directory, List<SentimentSummary> summaries,
+			Map<String, ? extends Number> wordFrequencies) throws IOException {
+		Files.createDirectories(directory.toPath());
+
+		File aggregates = File.createTempFile("aggregates-", ".tmp", directory);
+		File words = null;
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(aggregates.toPath(), StandardCharsets.UTF_8)) {
+				for (SentimentSummary summary : summaries) {
+					writer.write(field(summary.getBusinessId()) + '\t' + field(summary.getTopic()) + '\t'
+							+ summary.getReviewCount() + '\t' + summary.getScoreSum());
+					writer.newLine();
+				}
+			}
+
+			words = File.createTempFile("words-", ".tmp", directory);
+			try (BufferedWriter writer = Files.newBufferedWriter(words.toPath(), StandardCharsets.UTF_8)) {
+				for (Map.Entry<String, ? extends Number> entry : wordFrequencies.entrySet()) {
+					writer.write(field(entry.getKey()) + '\t' + entry.getValue().longValue());
+					writer.newLine();
+				}
+			}
+
+			// Words last, exists() only sees a directory once both files are complete
+			Files.move(aggregates.toPath(), new File(directory, AGGREGATES_FILE).toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Files.move(words.toPath(), new File(directory, WORD_FREQUENCIES_FILE).toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(aggregates.toPath());
+			if (words != null) {
+				Files.deleteIfExists(words.toPath());
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @param directory directory of one shard's results
+	 * @return the sentiment aggregates of the shard
+	 * @throws IOException error reading the file, or a malformed line
+	 */
+	public static List<SentimentSummary> readSummaries(File directory) throws IOException {
+		List<SentimentSummary> summaries = new ArrayList<SentimentSummary>();
+		File file = new File(directory, AGGREGATES_FILE);
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = split(file, line, 4);
+				summaries.add(new SentimentSummary(fields[0], fields[1], parseLong(file, fields[2]),
+						parseLong(file, fields[3])));
+			}
+		}
+		return summaries;
+	}
+
+	/**
+	 * Add the noun frequencies of one shard to a map.
+	 *
+	 * @param directory       directory of one shard's results
+	 * @param wordFrequencies map of word to number of occurrences to add to
+	 * @throws IOException error reading the file, or a malformed line
+	 */
+	public static void mergeWordFrequencies(File directory, Map<String, Long> wordFrequencies) throws IOException {
+		File file = new File(directory, WORD_FREQUENCIES_FILE);
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = split(file, line, 2);
+				wordFrequencies.merge(fields[0], parseLong(file, fields[1]), Long::sum);
+			}
+		}
+	}
+
+	private static String field(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+			throw new IllegalArgumentException("Value contains a tab or line break: " + value);
+		}
+		return value;
+	}
+
+	private static String[] split(File file, String line, int fieldCount) throws IOException {
+		String[] fields = line.split("\t", -1);
+		if (fields.length != fieldCount) {
+			throw new IOException("Expected " + fieldCount + " fields in " + file.getPath() + ": " + line);
+		}
+		return fields;
+	}
+
+	private static long parseLong(File file, String value) throws IOException {
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("Malformed number in " + file.getPath() + ": " + value, e);
+		}
+	}
+
+}
@@ -0,0 +1,455 @@
+package main.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import main.algorithm.Vocabulary;
+
+/**
+ * A corpus of reviews after cleaning, tokenization and parts-of-speech tagging,
+ * read from a memory-mapped binary file. Each review is stored as a sequence
+ * of term IDs with a noun flag per token, its stars and the dictionary code of
+ * its business, so a rerun skips JSON parsing, cleaning and tagging.
+ *
+ * File layout (big-endian): a header of magic, version, review count, term
+ * count, business count and token count; string columns of the terms, the
+ * business ids and the review ids, each an offsets array followed by UTF-8
+ * bytes; then stars, business codes, token offsets, noun bits and token term
+ * IDs. Sections are padded to 4 bytes so the int columns can be mapped in
+ * place.
+ *
+ * @author vbala
+ *
+ */
+public class PreprocessedCorpus implements Closeable {
+
+	public static final int MAGIC = 0x59435250;
+	public static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 24;
+
+	/**
+	 * Tokens in each mapped region of the token column, so a corpus of more than
+	 * 2GB can be mapped
+	 */
+	public static final int DEFAULT_TOKEN_SEGMENT_SIZE = 1 << 28;
+
+	private final FileChannel channel;
+	private final Vocabulary vocabulary;
+
+	/**
+	 * Terms by ID, read without the lock of the vocabulary
+	 */
+	private final String[] terms;
+	private final String[] businessIds;
+	private final IntBuffer reviewIdOffsets;
+	private final ByteBuffer reviewIdBytes;
+	private final ByteBuffer stars;
+	private final IntBuffer businessCodes;
+	private final IntBuffer tokenOffsets;
+	private final IntBuffer nounBits;
+	private final IntBuffer[] tokenSegments;
+	private final int tokenShift;
+	private final int tokenMask;
+	private final int size;
+
+	private PreprocessedCorpus(FileChannel channel, int tokenSegmentSize) throws IOException {
+		this.channel = channel;
+		if (channel.size() < HEADER_SIZE) {
+			throw new IOException("Not a preprocessed corpus of version " + VERSION);
+		}
+		// Every section is mapped on its own since the file may exceed 2GB
+		ByteBuffer header = map(0, HEADER_SIZE);
+		if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+			throw new IOException("Not a preprocessed corpus of version " + VERSION);
+		}
+		size = header.getInt(8);
+		int termCount = header.getInt(12);
+		int businessCount = header.getInt(16);
+		int tokenCount = header.getInt(20);
+		long position = HEADER_SIZE;
+
+		// Terms are interned in order, so term IDs in the file stay valid
+		vocabulary = new Vocabulary();
+		terms = new String[termCount];
+		IntBuffer offsets = map(position, 4L * (termCount + 1)).asIntBuffer();
+		position += 4L * (termCount + 1);
+		ByteBuffer bytes = map(position, offsets.get(termCount));
+		position += pad(offsets.get(termCount));
+		for (int i = 0; i < termCount; i++) {
+			terms[i] = decode(bytes, offsets.get(i), offsets.get(i + 1));
+			vocabulary.intern(terms[i]);
+		}
+
+		businessIds = new String[businessCount];
+		offsets = map(position, 4L * (businessCount + 1)).asIntBuffer();
+		position += 4L * (businessCount + 1);
+		bytes = map(position, offsets.get(businessCount));
+		position += pad(offsets.get(businessCount));
+		for (int i = 0; i < businessCount; i++) {
+			businessIds[i] = decode(bytes, offsets.get(i), offsets.get(i + 1));
+		}
+
+		// Review ids are only decoded when asked for
+		reviewIdOffsets = map(position, 4L * (size + 1)).asIntBuffer();
+		position += 4L * (size + 1);
+		reviewIdBytes = map(position, reviewIdOffsets.get(size));
+		position += pad(reviewIdOffsets.get(size));
+
+		stars = map(position, size);
+		position += pad(size);
+		businessCodes = map(position, 4L * size).asIntBuffer();
+		position += 4L * size;
+		tokenOffsets = map(position, 4L * (size + 1)).asIntBuffer();
+		position += 4L * (size + 1);
+		int nounWords = (tokenCount + 31) / 32;
+		nounBits = map(position, 4L * nounWords).asIntBuffer();
+		position += 4L * nounWords;
+
+		tokenShift = Integer.numberOfTrailingZeros(tokenSegmentSize);
+		tokenMask = tokenSegmentSize - 1;
+		tokenSegments = new IntBuffer[(int) (((long) tokenCount + tokenMask) >>> tokenShift)];
+		for (int i = 0; i < tokenSegments.length; i++) {
+			int count = Math.min(tokenSegmentSize, tokenCount - (i << tokenShift));
+			tokenSegments[i] = map(position, 4L * count).asIntBuffer();
+			position += 4L * count;
+		}
+		if (position != channel.size()) {
+			throw new IOException("Corpus file is " + channel.size() + " bytes, expected " + position);
+		}
+	}
+
+	/**
+	 * Map a corpus file.
+	 *
+	 * @param file file written by a {@link Writer}
+	 * @return the corpus
+	 * @throws IOException error reading the file, or the file is not a corpus
+	 */
+	public static PreprocessedCorpus open(File file) throws IOException {
+		return open(file, DEFAULT_TOKEN_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Map a corpus file.
+	 *
+	 * @param file             file written by a {@link Writer}
+	 * @param tokenSegmentSize tokens per mapped region of the token column, a
+	 *                         power of two of at most 2^28
+	 * @return the corpus
+	 * @throws IOException error reading the file, or the file is not a corpus
+	 */
+	public static PreprocessedCorpus open(File file, int tokenSegmentSize) throws IOException {
+		if (Integer.bitCount(tokenSegmentSize) != 1 || tokenSegmentSize > DEFAULT_TOKEN_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("Token segment size must be a power of two up to "
+					+ DEFAULT_TOKEN_SEGMENT_SIZE + ": " + tokenSegmentSize);
+		}
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			return new PreprocessedCorpus(channel, tokenSegmentSize);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return number of reviews
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return vocabulary of every token in the corpus, term IDs of the tokens
+	 *         refer to it
+	 */
+	public Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+
+	public String getReviewId(int review) {
+		return decode(reviewIdBytes, reviewIdOffsets.get(review), reviewIdOffsets.get(review + 1));
+	}
+
+	public String getBusinessId(int review) {
+		return businessIds[businessCodes.get(review)];
+	}
+
+	public int getStars(int review) {
+		return stars.get(review);
+	}
+
+	/**
+	 * @param termId term ID of a token
+	 * @return the term
+	 */
+	public String getTerm(int termId) {
+		return terms[termId];
+	}
+
+	/**
+	 * @param review index of the review
+	 * @return number of tokens of the review
+	 */
+	public int getTokenCount(int review) {
+		return tokenOffsets.get(review + 1) - tokenOffsets.get(review);
+	}
+
+	/**
+	 * @param review index of the review
+	 * @param token  index of the token in the review
+	 * @return term ID of the token
+	 */
+	public int getTermId(int review, int token) {
+		int index = tokenOffsets.get(review) + token;
+		return tokenSegments[index >>> tokenShift].get(index & tokenMask);
+	}
+
+	/**
+	 * @param review index of the review
+	 * @param token  index of the token in the review
+	 * @return whether the token was tagged as a noun
+	 */
+	public boolean isNoun(int review, int token) {
+		int bit = tokenOffsets.get(review) + token;
+		return (nounBits.get(bit >>> 5) & (1 << (bit & 31))) != 0;
+	}
+
+	/**
+	 * @param review index of the review
+	 * @return tokens of the cleaned review text
+	 */
+	public String[] getTokens(int review) {
+		String[] words = new String[getTokenCount(review)];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = terms[getTermId(review, i)];
+		}
+		return words;
+	}
+
+	/**
+	 * @param review index of the review
+	 * @return nouns of the review in text order
+	 */
+	public String[] getNouns(int review) {
+		int count = getTokenCount(review);
+		String[] nouns = new String[count];
+		int nounCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (isNoun(review, i)) {
+				nouns[nounCount++] = terms[getTermId(review, i)];
+			}
+		}
+		return Arrays.copyOf(nouns, nounCount);
+	}
+
+	/**
+	 * @param review index of the review
+	 * @return the review with its cleaned text
+	 */
+	public Review toReview(int review) {
+		return new Review(getReviewId(review), String.join(" ", getTokens(review)), getStars(review),
+				getBusinessId(review));
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer map(long position, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+
+	private static String decode(ByteBuffer bytes, int start, int end) {
+		byte[] chars = new byte[end - start];
+		ByteBuffer view = bytes.duplicate();
+		((Buffer) view).position(start);
+		view.get(chars);
+		return new String(chars, StandardCharsets.UTF_8);
+	}
+
+	private static int pad(int length) {
+		return (length + 3) & ~3;
+	}
+
+	/**
+	 * Writes a corpus file review by review. Token IDs are spooled to a temporary
+	 * file since they are the last section of the file; the other columns are
+	 * kept in memory until {@link #finish(Vocabulary)}.
+	 */
+	public static class Writer implements Closeable {
+
+		private final File file;
+		private final File tokenFile;
+		private final DataOutputStream tokenOut;
+
+		private final Vocabulary businessIds = new Vocabulary();
+		private final ByteArrayOutputStream reviewIdBytes = new ByteArrayOutputStream();
+		private int[] reviewIdOffsets = new int[1025];
+		private byte[] stars = new byte[1024];
+		private int[] businessCodes = new int[1024];
+		private int[] tokenOffsets = new int[1025];
+		private int[] nounBits = new int[1024];
+		private int size;
+		private int tokenCount;
+
+		/**
+		 * Constructor
+		 *
+		 * @param file file to write, replaced atomically when finished
+		 * @throws IOException error creating the temporary token file
+		 */
+		public Writer(File file) throws IOException {
+			this.file = file;
+			File directory = file.getAbsoluteFile().getParentFile();
+			Files.createDirectories(directory.toPath());
+			this.tokenFile = File.createTempFile("tokens-", ".tmp", directory);
+			this.tokenOut = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tokenFile.toPath()), 1 << 16));
+		}
+
+		/**
+		 * Append a review.
+		 *
+		 * @param reviewId   Yelp review_id
+		 * @param businessId Yelp business_id
+		 * @param reviewStars stars of the review
+		 * @param termIds    term IDs of the tokens
+		 * @param nouns      noun flag of every token
+		 * @throws IOException error writing the token file
+		 */
+		public void add(String reviewId, String businessId, int reviewStars, int[] termIds, boolean[] nouns)
+				throws IOException {
+			if (size == stars.length) {
+				int capacity = size * 2;
+				reviewIdOffsets = Arrays.copyOf(reviewIdOffsets, capacity + 1);
+				stars = Arrays.copyOf(stars, capacity);
+				businessCodes = Arrays.copyOf(businessCodes, capacity);
+				tokenOffsets = Arrays.copyOf(tokenOffsets, capacity + 1);
+			}
+			if ((long) tokenCount + termIds.length > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Corpus exceeds " + Integer.MAX_VALUE + " tokens");
+			}
+
+			byte[] id = reviewId.getBytes(StandardCharsets.UTF_8);
+			reviewIdBytes.write(id, 0, id.length);
+			reviewIdOffsets[size + 1] = reviewIdBytes.size();
+			stars[size] = (byte) reviewStars;
+			businessCodes[size] = businessIds.intern(businessId == null ? "" : businessId);
+
+			for (int i = 0; i < termIds.length; i++) {
+				tokenOut.writeInt(termIds[i]);
+				if (nouns[i]) {
+					int bit = tokenCount + i;
+					if ((bit >>> 5) >= nounBits.length) {
+						nounBits = Arrays.copyOf(nounBits, Math.max(nounBits.length * 2, (bit >>> 5) + 1));
+					}
+					nounBits[bit >>> 5] |= 1 << (bit & 31);
+				}
+			}
+			tokenCount += termIds.length;
+			tokenOffsets[size + 1] = tokenCount;
+			size++;
+		}
+
+		/**
+		 * Write the corpus file.
+		 *
+		 * @param vocabulary vocabulary the term IDs refer to
+		 * @throws IOException error writing the file
+		 */
+		public void finish(Vocabulary vocabulary) throws IOException {
+			tokenOut.close();
+			File tempFile = new File(file.getPath() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()), 1 << 16))) {
+				String[] terms = vocabulary.terms();
+				String[] businesses = businessIds.terms();
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(size);
+				out.writeInt(terms.length);
+				out.writeInt(businesses.length);
+				out.writeInt(tokenCount);
+
+				writeStrings(out, terms);
+				writeStrings(out, businesses);
+				writeInts(out, reviewIdOffsets, size + 1);
+				reviewIdBytes.writeTo(out);
+				writePadding(out, reviewIdBytes.size());
+
+				out.write(stars, 0, size);
+				writePadding(out, size);
+				writeInts(out, businessCodes, size);
+				writeInts(out, tokenOffsets, size + 1);
+				int nounWords = (tokenCount + 31) / 32;
+				for (int i = 0; i < nounWords; i++) {
+					out.writeInt(i < nounBits.length ? nounBits[i] : 0);
+				}
+				try (InputStream in = new BufferedInputStream(Files.newInputStream(tokenFile.toPath()), 1 << 16)) {
+					byte[] chunk = new byte[1 << 16];
+					int read;
+					while ((read = in.read(chunk)) != -1) {
+						out.write(chunk, 0, read);
+					}
+				}
+			} catch (IOException e) {
+				Files.deleteIfExists(tempFile.toPath());
+				throw e;
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			Files.deleteIfExists(tokenFile.toPath());
+		}
+
+		@Override
+		public void close() throws IOException {
+			tokenOut.close();
+			Files.deleteIfExists(tokenFile.toPath());
+		}
+
+		private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			int[] offsets = new int[strings.length + 1];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] encoded = strings[i].getBytes(StandardCharsets.UTF_8);
+				bytes.write(encoded, 0, encoded.length);
+				offsets[i + 1] = bytes.size();
+			}
+			writeInts(out, offsets, offsets.length);
+			bytes.writeTo(out);
+			writePadding(out, bytes.size());
+		}
+
+		private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+			for (int i = 0; i < count; i++) {
+				out.writeInt(values[i]);
+			}
+		}
+
+		private static void writePadding(DataOutputStream out, int length) throws IOException {
+			for (int i = length; i < pad(length); i++) {
+				out.writeByte(0);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,24 @@
+package main.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of the scored reviews of a run. Sinks are not thread-safe unless
+ * stated otherwise; wrap them in an {@link AsyncResultSink} to write from
+ * several threads without waiting for the disk.
+ *
+ * @author vbala
+ *
+ */
+public interface ResultSink extends Closeable {
+
+	/**
+	 * Write one result.
+	 *
+	 * @param result the scored review
+	 * @throws IOException error writing
+	 */
+	void write(ReviewResult result) throws IOException;
+
+}
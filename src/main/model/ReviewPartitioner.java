@@ -0,0 +1,134 @@
+package main.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Splits a newline-delimited review file into shard files by a hash of the
+ * business_id, so every review of a business lands in the same shard and the
+ * shards can be analyzed independently, in separate processes or on separate
+ * nodes, and their per-business results merged afterwards.
+ *
+ * @author vbala
+ *
+ */
+public class ReviewPartitioner {
+
+	private final Logger LOGGER = Logger.getLogger(ReviewPartitioner.class.getSimpleName());
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final int shardCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param shardCount number of shards
+	 */
+	public ReviewPartitioner(int shardCount) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("Number of shards must be greater than 0: " + shardCount);
+		}
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * @param businessId business_id of a review, may be null
+	 * @param shardCount number of shards
+	 * @return shard of the review
+	 */
+	public static int shardOf(String businessId, int shardCount) {
+		return businessId == null ? 0 : Math.floorMod(businessId.hashCode(), shardCount);
+	}
+
+	/**
+	 * @param directory directory of the shard files
+	 * @param shard     the shard
+	 * @return review file of the shard
+	 */
+	public static File getShardFile(File directory, int shard) {
+		return new File(directory, "shard-" + shard + ".json");
+	}
+
+	/**
+	 * Copy every review line of a file into the file of its shard. Lines are
+	 * copied unchanged, so the shard files can be read like the input.
+	 *
+	 * @param pathToFile pointer to newline-delimited JSON file of reviews
+	 * @param directory  directory to write the shard files to
+	 * @return number of reviews written to each shard
+	 * @throws IOException error reading the input or writing the shards
+	 */
+	public long[] partition(String pathToFile, File directory) throws IOException {
+		long start = System.currentTimeMillis();
+		Files.createDirectories(directory.toPath());
+		long[] counts = new long[shardCount];
+		BufferedWriter[] writers = new BufferedWriter[shardCount];
+		try (BufferedReader reader = Files.newBufferedReader(new File(pathToFile).toPath(), StandardCharsets.UTF_8)) {
+			for (int shard = 0; shard < shardCount; shard++) {
+				writers[shard] = Files.newBufferedWriter(getShardFile(directory, shard).toPath(),
+						StandardCharsets.UTF_8);
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				int shard = shardOf(readBusinessId(line), shardCount);
+				writers[shard].write(line);
+				writers[shard].newLine();
+				counts[shard]++;
+			}
+		} catch (IOException | RuntimeException e) {
+			for (BufferedWriter writer : writers) {
+				try {
+					if (writer != null) {
+						writer.close();
+					}
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			throw e;
+		}
+		for (BufferedWriter writer : writers) {
+			writer.close();
+		}
+		LOGGER.info("Partitioned " + pathToFile + " into " + shardCount + " shards in "
+				+ (System.currentTimeMillis() - start) + "ms");
+		return counts;
+	}
+
+	/**
+	 * Read the top level business_id field of one JSON line, stopping as soon as
+	 * it is found.
+	 *
+	 * @return the business_id, or null if the line has none
+	 */
+	private static String readBusinessId(String line) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("business_id".equals(field) && value == JsonToken.VALUE_STRING) {
+					return parser.getText();
+				}
+				parser.skipChildren();
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,214 @@
+package main.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import main.algorithm.Metrics;
+
+/**
+ * Streaming reader for YELP review data. Reads the raw newline-delimited
+ * review.json dump (one JSON object per line) with a Jackson
+ * {@link JsonParser} and yields one {@link Review} at a time, so memory use
+ * does not depend on the size of the file.
+ *
+ * Files wrapped in a top level JSON array (the format written by
+ * {@link Dataset#streamFile(String, String, int)}) are also accepted.
+ *
+ * @author vbala
+ *
+ */
+public class ReviewReader implements Iterator<Review>, Closeable {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private static final LongAdder READ_REVIEWS = Metrics.getInstance().counter("read.reviews");
+	private static final LongAdder READ_CHARS = Metrics.getInstance().counter("read.chars");
+
+	private final JsonParser parser;
+	private final boolean clean;
+
+	/**
+	 * True when the reviews are elements of a top level JSON array
+	 */
+	private boolean wrapped;
+	private boolean started;
+	private Review next;
+
+	/**
+	 * Constructor - Open the review file and clean the review text as it is read
+	 *
+	 * @param pathToFile pointer to JSON file containing customer review data
+	 * @throws IOException error opening file
+	 */
+	public ReviewReader(String pathToFile) throws IOException {
+		this(pathToFile, true);
+	}
+
+	/**
+	 * Constructor - Open the review file
+	 *
+	 * @param pathToFile pointer to JSON file containing customer review data
+	 * @param clean      whether to run {@link Dataset#cleanText(String)} on the
+	 *                   review text
+	 * @throws IOException error opening file
+	 */
+	public ReviewReader(String pathToFile, boolean clean) throws IOException {
+		this.parser = JSON_FACTORY.createParser(new File(pathToFile));
+		this.clean = clean;
+	}
+
+	/**
+	 * Parse a single review object, such as one line of the review dump.
+	 *
+	 * @param json  the JSON text of one review
+	 * @param clean whether to clean the review text
+	 * @return the review, or null if it has no text
+	 * @throws IOException malformed JSON
+	 */
+	public static Review parseReview(String json, boolean clean) throws IOException {
+		try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			return readReview(parser, clean);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = advance();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Review next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Review review = next;
+		next = null;
+		READ_REVIEWS.increment();
+		READ_CHARS.add(review.text.length());
+		return review;
+	}
+
+	/**
+	 * @return a sequential stream over the remaining reviews; closing the stream
+	 *         closes this reader
+	 */
+	public Stream<Review> stream() {
+		Spliterator<Review> spliterator = Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.close();
+	}
+
+	/**
+	 * Move the parser to the next review object with text and read it.
+	 *
+	 * @return the next review, or null at the end of the input
+	 * @throws IOException
+	 */
+	private Review advance() throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != null) {
+			if (!started) {
+				started = true;
+				if (token == JsonToken.START_ARRAY) {
+					wrapped = true;
+					continue;
+				}
+			}
+
+			if (token == JsonToken.END_ARRAY && wrapped) {
+				return null;
+			}
+
+			if (token != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+
+			Review review = readReview(parser, clean);
+			// Skip if no text in review
+			if (review != null) {
+				return review;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Read the fields of the review object the parser is positioned on. Nested
+	 * values are skipped without being materialized.
+	 */
+	private static Review readReview(JsonParser parser, boolean clean) throws IOException {
+		String id = null;
+		String text = null;
+		String businessId = null;
+		int stars = 0;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				continue;
+			}
+
+			switch (field) {
+			case "review_id":
+				id = parser.getValueAsString();
+				break;
+			case "business_id":
+				businessId = parser.getValueAsString();
+				break;
+			case "stars":
+				stars = parser.getValueAsInt();
+				break;
+			case "text":
+				text = parser.getValueAsString();
+				break;
+			default:
+				break;
+			}
+		}
+
+		if (text == null || text.isEmpty()) {
+			return null;
+		}
+
+		return new Review(id, clean ? Dataset.cleanText(text) : text, stars, businessId);
+	}
+
+}
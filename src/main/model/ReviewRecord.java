@@ -0,0 +1,55 @@
+package main.model;
+
+/**
+ * A review and the results of each analysis stage, as it flows through the
+ * staged pipeline
+ *
+ * @author vbala
+ *
+ */
+public class ReviewRecord {
+
+	public final Review review;
+
+	/**
+	 * Tokens of the cleaned review text
+	 */
+	public String[] tokens;
+
+	/**
+	 * Predicted sentiment score
+	 */
+	public int score;
+
+	/**
+	 * Nouns of the review text
+	 */
+	public String[] nouns;
+
+	public String topic;
+
+	public ReviewRecord(Review review) {
+		this.review = review;
+	}
+
+	/**
+	 * @return the result of the analysis
+	 */
+	public ReviewResult toResult() {
+		return new ReviewResult(review, score, topic);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ReviewRecord [review=").append(review).append(", score=").append(score).append(", topic=")
+				.append(topic).append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,359 @@
+package main.model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Builds training and test files from a random sample of a newline-delimited
+ * review file. The file is split into byte ranges aligned to line boundaries
+ * and the ranges are scanned in parallel. Every review gets a pseudo-random
+ * key hashed from the seed and its byte offset and each range keeps the
+ * reviews with the smallest keys per star rating, so the per-range samples
+ * merge into a uniform sample of each rating (stratified reservoir sampling).
+ * As the keys do not depend on the ranges, the sample is the same for any
+ * number of threads.
+ *
+ * Only the offset and length of sampled reviews are kept while scanning; the
+ * sampled lines are read again when the output files are written.
+ *
+ * @author vbala
+ *
+ */
+public class ReviewSampler {
+
+	private final Logger LOGGER = Logger.getLogger(ReviewSampler.class.getSimpleName());
+
+	private static final int MAX_STARS = 5;
+	private static final int READ_BUFFER_SIZE = 1 << 20;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/**
+	 * Smallest key first; equal keys by offset, so no order depends on the ranges
+	 */
+	private static final Comparator<Entry> KEY_ORDER = Comparator.<Entry> comparingDouble(entry -> entry.key)
+			.thenComparingLong(entry -> entry.offset);
+
+	/**
+	 * A sampled review line
+	 */
+	private static class Entry {
+		final double key;
+		final long offset;
+		final int length;
+		final int stars;
+
+		Entry(double key, long offset, int length, int stars) {
+			this.key = key;
+			this.offset = offset;
+			this.length = length;
+			this.stars = stars;
+		}
+	}
+
+	/**
+	 * Sample of one byte range
+	 */
+	private static class RangeSample {
+		final List<PriorityQueue<Entry>> reservoirs = new ArrayList<PriorityQueue<Entry>>();
+		final long[] population = new long[MAX_STARS + 1];
+	}
+
+	private final int threadCount;
+	private final long seed;
+
+	/**
+	 * Constructor
+	 *
+	 * @param threadCount number of byte ranges scanned at once
+	 * @param seed        seed of the random keys, the same seed and input give
+	 *                    the same sample whatever the thread count
+	 */
+	public ReviewSampler(int threadCount, long seed) {
+		this.threadCount = threadCount;
+		this.seed = seed;
+	}
+
+	/**
+	 * Split a file into byte ranges of about equal size which start at the
+	 * beginning of a line.
+	 *
+	 * @param channel file to split
+	 * @param parts   number of ranges wanted
+	 * @return start offsets of the ranges followed by the file size; empty ranges
+	 *         are left out
+	 * @throws IOException error reading the file
+	 */
+	public static long[] split(FileChannel channel, int parts) throws IOException {
+		long size = channel.size();
+		long[] boundaries = new long[parts + 1];
+		int count = 1;
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		for (int i = 1; i < parts; i++) {
+			// Move the nominal boundary past the end of the line it falls in
+			long boundary = Math.max(size * i / parts, boundaries[count - 1]);
+			if (boundary == 0) {
+				continue;
+			}
+			long position = boundary - 1;
+			boolean found = false;
+			while (!found && position < size) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				if (read <= 0) {
+					break;
+				}
+				for (int b = 0; b < read; b++) {
+					if (buffer.get(b) == '\n') {
+						position += b + 1;
+						found = true;
+						break;
+					}
+				}
+				if (!found) {
+					position += read;
+				}
+			}
+			boundary = Math.min(position, size);
+			if (boundary > boundaries[count - 1] && boundary < size) {
+				boundaries[count++] = boundary;
+			}
+		}
+		boundaries[count++] = size;
+		return Arrays.copyOf(boundaries, count);
+	}
+
+	/**
+	 * Sample the reviews of a file and write a training file and a test file.
+	 * For every star rating up to trainPerStars + testPerStars reviews are
+	 * sampled, the first trainPerStars of them in random order go to the
+	 * training file and the rest to the test file.
+	 *
+	 * @param pathToFile       pointer to newline-delimited JSON file of reviews
+	 * @param pathToTrainFile  output file in the doccat training format, "stars
+	 *                         text" per line
+	 * @param pathToTestFile   output file of the raw JSON lines of test reviews
+	 * @param trainPerStars    number of training reviews per star rating
+	 * @param testPerStars     number of test reviews per star rating
+	 * @return number of reviews of each star rating in the input, indexed by stars
+	 * @throws IOException error reading the input or writing the output
+	 */
+	public long[] sample(String pathToFile, String pathToTrainFile, String pathToTestFile, int trainPerStars,
+			int testPerStars) throws IOException {
+		long start = System.currentTimeMillis();
+		int capacity = trainPerStars + testPerStars;
+		File file = new File(pathToFile);
+
+		long[] boundaries;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			boundaries = split(channel, threadCount);
+		}
+
+		List<RangeSample> samples = new ArrayList<RangeSample>();
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try {
+			List<Future<RangeSample>> workers = new ArrayList<Future<RangeSample>>();
+			for (int i = 0; i + 1 < boundaries.length; i++) {
+				long rangeStart = boundaries[i];
+				long rangeEnd = boundaries[i + 1];
+				workers.add(executor.submit(() -> sampleRange(file, rangeStart, rangeEnd, capacity)));
+			}
+			for (Future<RangeSample> worker : workers) {
+				samples.add(worker.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while sampling " + pathToFile);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Merge the reservoirs of the ranges, keeping the smallest keys
+		long[] population = new long[MAX_STARS + 1];
+		List<Entry> train = new ArrayList<Entry>();
+		List<Entry> test = new ArrayList<Entry>();
+		for (int stars = 1; stars <= MAX_STARS; stars++) {
+			List<Entry> merged = new ArrayList<Entry>();
+			for (RangeSample sample : samples) {
+				population[stars] += sample.population[stars];
+				merged.addAll(sample.reservoirs.get(stars));
+			}
+			merged.sort(KEY_ORDER);
+			merged = merged.subList(0, Math.min(capacity, merged.size()));
+			int trainCount = Math.min(trainPerStars, merged.size());
+			train.addAll(merged.subList(0, trainCount));
+			test.addAll(merged.subList(trainCount, merged.size()));
+			if (merged.size() < capacity) {
+				LOGGER.warning("Only " + merged.size() + " reviews with " + stars + " stars in " + pathToFile);
+			}
+		}
+
+		writeSample(file, train, pathToTrainFile, true);
+		writeSample(file, test, pathToTestFile, false);
+		LOGGER.info("Sampled " + train.size() + " training and " + test.size() + " test reviews from "
+				+ (boundaries.length - 1) + " ranges of " + pathToFile + " in " + (System.currentTimeMillis() - start)
+				+ "ms");
+		return population;
+	}
+
+	/**
+	 * Scan the lines starting in [start, end) and keep the capacity lines with
+	 * the smallest random keys of every star rating.
+	 */
+	private RangeSample sampleRange(File file, long start, long end, int capacity) throws IOException {
+		RangeSample sample = new RangeSample();
+		for (int stars = 0; stars <= MAX_STARS; stars++) {
+			// Max-heap on the key, so the largest kept key is evicted first
+			sample.reservoirs.add(new PriorityQueue<Entry>(KEY_ORDER.reversed()));
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+			byte[] line = new byte[4096];
+			int lineLength = 0;
+			long lineStart = start;
+			long position = start;
+			while (position < end) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				if (read <= 0) {
+					break;
+				}
+				read = (int) Math.min(read, end - position);
+				for (int b = 0; b < read; b++) {
+					byte c = buffer.get(b);
+					if (c == '\n') {
+						offer(sample, capacity, line, lineLength, lineStart);
+						lineLength = 0;
+						lineStart = position + b + 1;
+					} else {
+						if (lineLength == line.length) {
+							line = Arrays.copyOf(line, line.length * 2);
+						}
+						line[lineLength++] = c;
+					}
+				}
+				position += read;
+			}
+			offer(sample, capacity, line, lineLength, lineStart);
+		}
+		return sample;
+	}
+
+	private void offer(RangeSample sample, int capacity, byte[] line, int lineLength, long lineStart)
+			throws IOException {
+		int stars = readStars(line, lineLength);
+		if (stars < 1 || stars > MAX_STARS) {
+			return;
+		}
+		sample.population[stars]++;
+		Entry entry = new Entry(key(lineStart), lineStart, lineLength, stars);
+		PriorityQueue<Entry> reservoir = sample.reservoirs.get(stars);
+		if (reservoir.size() < capacity) {
+			reservoir.add(entry);
+		} else if (capacity > 0 && KEY_ORDER.compare(entry, reservoir.peek()) < 0) {
+			reservoir.poll();
+			reservoir.add(entry);
+		}
+	}
+
+	/**
+	 * Key of the line starting at offset: the SplitMix64 finalizer of the seed
+	 * and offset, scaled to [0, 1).
+	 */
+	private double key(long offset) {
+		long z = seed + (offset + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z ^= z >>> 31;
+		return (z >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Read the top level stars field of one JSON line without parsing the rest of
+	 * it.
+	 *
+	 * @return the star rating, or 0 if the line has none
+	 */
+	private static int readStars(byte[] line, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		try (JsonParser parser = JSON_FACTORY.createParser(line, 0, length)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return 0;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("stars".equals(field) && value.isNumeric()) {
+					return parser.getValueAsInt();
+				}
+				parser.skipChildren();
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Read the sampled lines back in file order and write them either as doccat
+	 * training records or as raw JSON lines.
+	 */
+	private void writeSample(File file, List<Entry> entries, String pathToOutputFile, boolean training)
+			throws IOException {
+		List<Entry> sorted = new ArrayList<Entry>(entries);
+		sorted.sort((a, b) -> Long.compare(a.offset, b.offset));
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+				BufferedWriter writer = Files.newBufferedWriter(new File(pathToOutputFile).toPath(),
+						StandardCharsets.UTF_8)) {
+			for (Entry entry : sorted) {
+				ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+						throw new IOException(file.getPath() + " changed while sampling");
+					}
+				}
+				String json = new String(buffer.array(), StandardCharsets.UTF_8);
+				if (training) {
+					Review review = ReviewReader.parseReview(json, true);
+					if (review == null || review.text.trim().isEmpty()) {
+						// Doccat rejects lines holding only the category
+						continue;
+					}
+					writer.write(entry.stars + " " + review.text);
+				} else {
+					writer.write(json);
+				}
+				writer.newLine();
+			}
+		}
+	}
+
+}
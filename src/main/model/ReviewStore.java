@@ -0,0 +1,324 @@
+package main.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Random access to the reviews of a newline-delimited review file by their
+ * Yelp review_id. The file is memory-mapped and an index of the offset of
+ * every review is kept next to it (&lt;file&gt;.idx), so a lookup costs one
+ * hash probe and reading one line from the mapped file; the reviews are never
+ * loaded into the heap.
+ *
+ * The index only holds the hash, offset and length of each review. Lines with
+ * a matching hash are confirmed by reading their review_id from the file.
+ *
+ * @author vbala
+ *
+ */
+public class ReviewStore implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(ReviewStore.class.getSimpleName());
+
+	private static final int INDEX_MAGIC = 0x59524958;
+	private static final int INDEX_VERSION = 1;
+
+	/**
+	 * Size of each mapped region of the review file
+	 */
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final RandomAccessFile file;
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Hash of the review_id, offset and length in bytes of every review line
+	 */
+	private int[] hashes;
+	private long[] offsets;
+	private int[] lengths;
+	private int size;
+
+	/**
+	 * Open addressing table of entry index + 1, 0 marks an empty slot
+	 */
+	private int[] slots;
+
+	private ReviewStore(File reviewFile) throws IOException {
+		this.file = new RandomAccessFile(reviewFile, "r");
+		FileChannel channel = file.getChannel();
+		long length = channel.size();
+		int segmentCount = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+		this.segments = new MappedByteBuffer[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			long position = i * SEGMENT_SIZE;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.min(SEGMENT_SIZE, length - position));
+		}
+	}
+
+	/**
+	 * Open a review file, loading its index or building and saving the index if
+	 * it is missing or older than the file.
+	 *
+	 * @param pathToFile pointer to newline-delimited JSON file of reviews
+	 * @return the store
+	 * @throws IOException error reading the file or index
+	 */
+	public static ReviewStore open(String pathToFile) throws IOException {
+		File reviewFile = new File(pathToFile);
+		File indexFile = new File(pathToFile + ".idx");
+		ReviewStore store = new ReviewStore(reviewFile);
+		try {
+			if (!store.loadIndex(indexFile, reviewFile)) {
+				long start = System.currentTimeMillis();
+				store.buildIndex();
+				store.saveIndex(indexFile, reviewFile);
+				LOGGER.info("Indexed " + store.size + " reviews of " + pathToFile + " in "
+						+ (System.currentTimeMillis() - start) + "ms");
+			}
+			store.buildSlots();
+			return store;
+		} catch (IOException | RuntimeException e) {
+			store.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param reviewId the Yelp review_id
+	 * @return the review with cleaned text, or null if there is no such review
+	 * @throws IOException error reading the review
+	 */
+	public Review get(String reviewId) throws IOException {
+		String json = getJSON(reviewId);
+		return json == null ? null : ReviewReader.parseReview(json, true);
+	}
+
+	/**
+	 * @param reviewId the Yelp review_id
+	 * @return the raw JSON line of the review, or null if there is no such review
+	 * @throws IOException error reading the review
+	 */
+	public String getJSON(String reviewId) throws IOException {
+		int hash = reviewId.hashCode();
+		int mask = slots.length - 1;
+		for (int slot = mix(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int entry = slots[slot] - 1;
+			if (hashes[entry] != hash) {
+				continue;
+			}
+			byte[] line = read(offsets[entry], lengths[entry]);
+			if (reviewId.equals(readReviewId(line, line.length))) {
+				return new String(line, StandardCharsets.UTF_8);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return number of reviews in the store
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Scan the mapped file line by line and record the review_id hash, offset and
+	 * length of every line.
+	 */
+	private void buildIndex() throws IOException {
+		hashes = new int[1024];
+		offsets = new long[1024];
+		lengths = new int[1024];
+		size = 0;
+
+		byte[] line = new byte[4096];
+		int lineLength = 0;
+		long lineStart = 0;
+		long position = 0;
+		for (MappedByteBuffer segment : segments) {
+			ByteBuffer buffer = ((ByteBuffer) segment).duplicate();
+			while (buffer.hasRemaining()) {
+				byte b = buffer.get();
+				if (b == '\n') {
+					addLine(line, lineLength, lineStart);
+					lineLength = 0;
+					lineStart = position + 1;
+				} else {
+					if (lineLength == line.length) {
+						line = Arrays.copyOf(line, line.length * 2);
+					}
+					line[lineLength++] = b;
+				}
+				position++;
+			}
+		}
+		addLine(line, lineLength, lineStart);
+	}
+
+	private void addLine(byte[] line, int lineLength, long lineStart) throws IOException {
+		String reviewId = readReviewId(line, lineLength);
+		if (reviewId == null) {
+			return;
+		}
+		if (size == hashes.length) {
+			hashes = Arrays.copyOf(hashes, size * 2);
+			offsets = Arrays.copyOf(offsets, size * 2);
+			lengths = Arrays.copyOf(lengths, size * 2);
+		}
+		hashes[size] = reviewId.hashCode();
+		offsets[size] = lineStart;
+		lengths[size] = lineLength;
+		size++;
+	}
+
+	private void buildSlots() {
+		int capacity = 16;
+		while (capacity < size * 2) {
+			capacity <<= 1;
+		}
+		slots = new int[capacity];
+		int mask = capacity - 1;
+		for (int entry = 0; entry < size; entry++) {
+			int slot = mix(hashes[entry]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = entry + 1;
+		}
+	}
+
+	/**
+	 * Load the index if it was built from the current version of the review file.
+	 *
+	 * @return whether the index was loaded
+	 */
+	private boolean loadIndex(File indexFile, File reviewFile) throws IOException {
+		if (!indexFile.isFile()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(indexFile.toPath()), 1 << 16))) {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION || in.readLong() != reviewFile.length()
+					|| in.readLong() != reviewFile.lastModified()) {
+				LOGGER.info("Rebuilding stale index " + indexFile.getPath());
+				return false;
+			}
+			size = in.readInt();
+			hashes = new int[size];
+			offsets = new long[size];
+			lengths = new int[size];
+			for (int i = 0; i < size; i++) {
+				hashes[i] = in.readInt();
+				offsets[i] = in.readLong();
+				lengths[i] = in.readInt();
+			}
+			return true;
+		}
+	}
+
+	private void saveIndex(File indexFile, File reviewFile) throws IOException {
+		File tempFile = File.createTempFile(indexFile.getName() + "-", ".tmp",
+				indexFile.getAbsoluteFile().getParentFile());
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()), 1 << 16))) {
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(INDEX_VERSION);
+				out.writeLong(reviewFile.length());
+				out.writeLong(reviewFile.lastModified());
+				out.writeInt(size);
+				for (int i = 0; i < size; i++) {
+					out.writeInt(hashes[i]);
+					out.writeLong(offsets[i]);
+					out.writeInt(lengths[i]);
+				}
+			}
+			// Readers opening the store meanwhile see the old index or the new one
+			Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
+		}
+	}
+
+	/**
+	 * Copy a range of the mapped file, which may span two segments.
+	 */
+	private byte[] read(long offset, int length) {
+		byte[] bytes = new byte[length];
+		int copied = 0;
+		while (copied < length) {
+			long position = offset + copied;
+			MappedByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)];
+			int segmentOffset = (int) (position % SEGMENT_SIZE);
+			int count = Math.min(length - copied, segment.limit() - segmentOffset);
+			ByteBuffer view = ((ByteBuffer) segment).duplicate();
+			// Cast keeps the Java 8 Buffer.position signature
+			((Buffer) view).position(segmentOffset);
+			view.get(bytes, copied, count);
+			copied += count;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Read the top level review_id field of one JSON line without parsing the
+	 * rest of it.
+	 *
+	 * @return the review_id, or null if the line has none
+	 */
+	private static String readReviewId(byte[] line, int length) throws IOException {
+		if (length == 0) {
+			return null;
+		}
+		try (JsonParser parser = JSON_FACTORY.createParser(line, 0, length)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("review_id".equals(field) && value == JsonToken.VALUE_STRING) {
+					return parser.getText();
+				}
+				parser.skipChildren();
+			}
+		}
+		return null;
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
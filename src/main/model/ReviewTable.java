@@ -0,0 +1,325 @@
+package main.model;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import main.algorithm.Vocabulary;
+
+/**
+ * Columnar store of reviews. Review and business ids are dictionary-encoded
+ * to ints, stars are kept in a byte array and all texts are packed into UTF-8
+ * buffers of up to {@link #DEFAULT_SEGMENT_SIZE} bytes, which may be allocated
+ * off-heap, with arrays of offsets and lengths; a text never spans two
+ * buffers, so the table holds more text than one buffer can address. A review
+ * takes about a dozen bytes of column data plus its text instead of a
+ * {@link Review} object with three strings and a map entry.
+ *
+ * Reviews are read through a {@link View}, a flyweight which is moved from
+ * row to row without allocating. Appending is not thread-safe; once loaded,
+ * any number of threads may read the table, each with its own view.
+ *
+ * @author vbala
+ *
+ */
+public class ReviewTable {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Largest text buffer, texts are spread over as many buffers as needed
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+	private final Vocabulary reviewIds = new Vocabulary();
+	private final Vocabulary businessIds = new Vocabulary();
+	private final boolean offHeap;
+	private final int segmentSize;
+
+	private int[] reviewIdCodes = new int[INITIAL_CAPACITY];
+	private int[] businessIdCodes = new int[INITIAL_CAPACITY];
+	private byte[] stars = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * Text of row i is textLengths[i] bytes at textOffsets[i], an offset of
+	 * segment * segmentSize plus the position in the segment
+	 */
+	private long[] textOffsets = new long[INITIAL_CAPACITY];
+	private int[] textLengths = new int[INITIAL_CAPACITY];
+	private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+	private ByteBuffer text;
+	private long textBytes;
+	private int size;
+
+	/**
+	 * Whether every text is ASCII, so a byte offset is also a char offset
+	 */
+	private boolean ascii = true;
+
+	/**
+	 * Constructor - texts are kept on the heap
+	 */
+	public ReviewTable() {
+		this(false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param offHeap whether to keep the texts in a direct buffer outside the heap
+	 */
+	public ReviewTable(boolean offHeap) {
+		this(offHeap, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param offHeap     whether to keep the texts in direct buffers outside the
+	 *                    heap
+	 * @param segmentSize largest text buffer in bytes, also the longest text
+	 */
+	public ReviewTable(boolean offHeap, int segmentSize) {
+		this.offHeap = offHeap;
+		this.segmentSize = segmentSize;
+		this.text = allocate(Math.min(segmentSize, 64 * INITIAL_CAPACITY));
+		segments.add(text);
+	}
+
+	/**
+	 * Append a review.
+	 *
+	 * @param review the review
+	 * @return row of the review
+	 */
+	public int add(Review review) {
+		if (size == stars.length) {
+			int capacity = size * 2;
+			reviewIdCodes = Arrays.copyOf(reviewIdCodes, capacity);
+			businessIdCodes = Arrays.copyOf(businessIdCodes, capacity);
+			stars = Arrays.copyOf(stars, capacity);
+			textOffsets = Arrays.copyOf(textOffsets, capacity);
+			textLengths = Arrays.copyOf(textLengths, capacity);
+		}
+
+		byte[] bytes = review.text.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > text.remaining()) {
+			growText(bytes.length);
+		}
+		textOffsets[size] = (long) (segments.size() - 1) * segmentSize + text.position();
+		textLengths[size] = bytes.length;
+		textBytes += bytes.length;
+		text.put(bytes);
+		if (ascii && bytes.length != review.text.length()) {
+			ascii = false;
+		}
+
+		reviewIdCodes[size] = reviewIds.intern(review.id);
+		businessIdCodes[size] = businessIds.intern(review.businessId == null ? "" : review.businessId);
+		stars[size] = (byte) review.stars;
+		return size++;
+	}
+
+	/**
+	 * @return number of reviews
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of distinct businesses
+	 */
+	public int getBusinessCount() {
+		return businessIds.size();
+	}
+
+	/**
+	 * @param code dictionary code of a business
+	 * @return the business id
+	 */
+	public String getBusinessId(int code) {
+		return businessIds.term(code);
+	}
+
+	/**
+	 * @return number of bytes used by the packed texts
+	 */
+	public long getTextBytes() {
+		return textBytes;
+	}
+
+	/**
+	 * @return a view positioned on the first row
+	 */
+	public View view() {
+		return new View();
+	}
+
+	/**
+	 * @param row row of the review
+	 * @return a copy of the review as a {@link Review} object
+	 */
+	public Review getReview(int row) {
+		return view().moveTo(row).toReview();
+	}
+
+	private ByteBuffer allocate(int capacity) {
+		return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+	}
+
+	/**
+	 * Make room for a text in the last segment, growing it up to the segment
+	 * size or else starting a new segment.
+	 */
+	private void growText(int needed) {
+		if (needed > segmentSize) {
+			throw new IllegalArgumentException("Review text of " + needed + " bytes exceeds " + segmentSize);
+		}
+		long required = (long) text.position() + needed;
+		if (required > segmentSize) {
+			text = allocate(Math.min(segmentSize, Math.max(64 * INITIAL_CAPACITY, needed)));
+			segments.add(text);
+			return;
+		}
+		int capacity = (int) Math.min(segmentSize, Math.max((long) text.capacity() * 2, required));
+		ByteBuffer grown = allocate(capacity);
+		// Casts keep the Java 8 Buffer method signatures
+		((Buffer) text).flip();
+		grown.put(text);
+		text = grown;
+		segments.set(segments.size() - 1, grown);
+	}
+
+	private ByteBuffer segment(long offset) {
+		return segments.get((int) (offset / segmentSize));
+	}
+
+	/**
+	 * Flyweight over one row of the table. Getters read the columns of the
+	 * current row; {@link #moveTo(int)} moves the view to another row.
+	 */
+	public class View {
+
+		private final Text chars = new Text();
+		private int row;
+
+		private View() {
+		}
+
+		/**
+		 * @param row row to read
+		 * @return this view
+		 */
+		public View moveTo(int row) {
+			if (row < 0 || row >= size) {
+				throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+			}
+			this.row = row;
+			return this;
+		}
+
+		/**
+		 * @return the current row
+		 */
+		public int getRow() {
+			return row;
+		}
+
+		public String getReviewId() {
+			return reviewIds.term(reviewIdCodes[row]);
+		}
+
+		/**
+		 * @return dictionary code of the business, see
+		 *         {@link ReviewTable#getBusinessId(int)}
+		 */
+		public int getBusinessCode() {
+			return businessIdCodes[row];
+		}
+
+		public String getBusinessId() {
+			return businessIds.term(businessIdCodes[row]);
+		}
+
+		public int getStars() {
+			return stars[row];
+		}
+
+		/**
+		 * @return the text decoded into a new string
+		 */
+		public String getText() {
+			long offset = textOffsets[row];
+			byte[] bytes = new byte[textLengths[row]];
+			ByteBuffer buffer = segment(offset).duplicate();
+			((Buffer) buffer).position((int) (offset % segmentSize));
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * The text as a char sequence. When every text is ASCII it reads the packed
+		 * buffer directly and is only valid until the view moves; otherwise it is
+		 * the decoded string.
+		 *
+		 * @return the text of the current row
+		 */
+		public CharSequence text() {
+			if (!ascii) {
+				return getText();
+			}
+			chars.segment = segment(textOffsets[row]);
+			chars.start = (int) (textOffsets[row] % segmentSize);
+			chars.end = chars.start + textLengths[row];
+			return chars;
+		}
+
+		/**
+		 * @return a copy of the current row as a {@link Review} object
+		 */
+		public Review toReview() {
+			return new Review(getReviewId(), getText(), getStars(), getBusinessId());
+		}
+
+	}
+
+	/**
+	 * ASCII text of one row read straight from the packed buffer
+	 */
+	private static class Text implements CharSequence {
+
+		ByteBuffer segment;
+		int start;
+		int end;
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) segment.get(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return toString().substring(from, to);
+		}
+
+		@Override
+		public String toString() {
+			byte[] bytes = new byte[end - start];
+			ByteBuffer buffer = segment.duplicate();
+			((Buffer) buffer).position(start);
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+
+	}
+
+}
@@ -0,0 +1,91 @@
+package main.model;
+
+/**
+ * Aggregated sentiment of all reviews of a business about one topic
+ *
+ * @author vbala
+ *
+ */
+public class SentimentSummary {
+
+	private final String businessId;
+	private final String topic;
+	private final long reviewCount;
+	private final long scoreSum;
+
+	public SentimentSummary(String businessId, String topic, long reviewCount, long scoreSum) {
+		this.businessId = businessId;
+		this.topic = topic;
+		this.reviewCount = reviewCount;
+		this.scoreSum = scoreSum;
+	}
+
+	public String getBusinessId() {
+		return businessId;
+	}
+
+	public String getTopic() {
+		return topic;
+	}
+
+	/**
+	 * @return number of reviews about the topic
+	 */
+	public long getReviewCount() {
+		return reviewCount;
+	}
+
+	/**
+	 * @return sum of the sentiment scores of the reviews
+	 */
+	public long getScoreSum() {
+		return scoreSum;
+	}
+
+	/**
+	 * @return mean sentiment score of the reviews
+	 */
+	public double getMeanScore() {
+		return reviewCount == 0 ? 0 : (double) scoreSum / reviewCount;
+	}
+
+	/**
+	 * @return the feedback category of the mean score, e.g. "extremely positive"
+	 */
+	public String getFeedback() {
+		double mean = getMeanScore();
+		if (mean >= 4.5) {
+			return "extremely positive";
+		} else if (mean >= 3.5) {
+			return "positive";
+		} else if (mean > 2.5) {
+			return "mixed";
+		} else if (mean > 1.5) {
+			return "negative";
+		}
+		return "extremely negative";
+	}
+
+	/**
+	 * @return sentence describing the summary, e.g. "b1 received extremely
+	 *         positive feedback related to their food."
+	 */
+	public String describe() {
+		return businessId + " received " + getFeedback() + " feedback related to their " + topic + ".";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("SentimentSummary [businessId=").append(businessId).append(", topic=").append(topic)
+				.append(", reviewCount=").append(reviewCount).append(", meanScore=").append(getMeanScore())
+				.append("]");
+		return builder.toString();
+	}
+
+}
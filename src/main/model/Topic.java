@@ -1,7 +1,11 @@
 package main.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Topic {
 	// TODO Use word frequency matrix to predefine categories
@@ -21,9 +25,33 @@ public class Topic {
 //	private static String LOCATION = "location";
 	private static String VIBE = "vibe";
 	private static String STAFF = "staff";
+	private static String DRINKS = "drinks";
 //	private static String SCENE = "scene";
 //	private static String EXPERIENCE = "experience";
 
-	public static List<String> TOPICS = Arrays.asList(FOOD, SERVICE, ATMOSPHERE, VIBE, STAFF);
+	/**
+	 * Terms naming every topic, single words or phrases; compiled by
+	 * main.algorithm.TopicLexicon
+	 */
+	public static final Map<String, List<String>> DEFAULT_LEXICON;
+
+	static {
+		Map<String, List<String>> lexicon = new LinkedHashMap<String, List<String>>();
+		lexicon.put(FOOD, Arrays.asList("food", "meal", "meals", "dish", "dishes", "menu", "flavor", "taste",
+				"portion", "portions", "breakfast", "brunch", "lunch", "dinner", "dessert"));
+		lexicon.put(SERVICE, Arrays.asList("service", "customer service", "wait time", "waiting time",
+				"reservation", "reservations"));
+		lexicon.put(ATMOSPHERE, Arrays.asList("atmosphere", "ambiance", "ambience", "decor", "music", "seating",
+				"patio"));
+		lexicon.put(VIBE, Arrays.asList("vibe", "vibes"));
+		lexicon.put(STAFF, Arrays.asList("staff", "waiter", "waiters", "waitress", "waitresses", "server", "servers",
+				"bartender", "bartenders", "manager", "hostess"));
+		lexicon.put(DRINKS, Arrays.asList("drinks", "drink", "cocktail", "cocktails", "beer", "beers", "wine",
+				"happy hour"));
+		DEFAULT_LEXICON = Collections.unmodifiableMap(lexicon);
+	}
+
+	public static List<String> TOPICS = Collections
+			.unmodifiableList(new ArrayList<String>(DEFAULT_LEXICON.keySet()));
 
 }
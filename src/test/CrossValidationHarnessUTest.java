@@ -0,0 +1,70 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.CrossValidationHarness;
+import main.model.CrossValidationResult;
+
+public class CrossValidationHarnessUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void evaluatesEveryConfigurationInGridOrder() throws IOException {
+		String trainingFile = ModelFixtures.writeSentimentTrainingFile(folder.getRoot()).getPath();
+		int[] iterations = { 5, 10 };
+		int[] cutoffs = { 0, 1 };
+		int[] trainerThreads = { 1, 2 };
+
+		List<CrossValidationResult> results = new CrossValidationHarness(4, 4, 42).run(trainingFile, iterations,
+				cutoffs, trainerThreads);
+
+		assertEquals(8, results.size());
+		int i = 0;
+		for (int iteration : iterations) {
+			for (int cutoff : cutoffs) {
+				for (int threads : trainerThreads) {
+					CrossValidationResult result = results.get(i++);
+					assertEquals(iteration, result.getIterations());
+					assertEquals(cutoff, result.getCutoff());
+					assertEquals(threads, result.getTrainerThreads());
+					assertEquals(4, result.getFolds());
+					// Positive and negative words never mix, so every held out review is right
+					assertEquals(1.0, result.getAccuracy(), 1e-9);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void resultsDoNotDependOnThreadCount() throws IOException {
+		String trainingFile = ModelFixtures.writeSentimentTrainingFile(folder.getRoot()).getPath();
+		int[] iterations = { 1, 3 };
+		int[] cutoffs = { 0 };
+		int[] trainerThreads = { 1, 8 };
+
+		List<CrossValidationResult> sequential = new CrossValidationHarness(3, 1, 7).run(trainingFile, iterations,
+				cutoffs, trainerThreads);
+		List<CrossValidationResult> parallel = new CrossValidationHarness(3, 6, 7).run(trainingFile, iterations,
+				cutoffs, trainerThreads);
+
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(sequential.get(i).getAccuracy(), parallel.get(i).getAccuracy(), 1e-9);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsSingleFold() {
+		new CrossValidationHarness(1, 4, 42);
+	}
+
+}
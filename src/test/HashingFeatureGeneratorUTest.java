@@ -0,0 +1,71 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import main.algorithm.HashingDoccatFactory;
+import main.algorithm.HashingFeatureGenerator;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.TrainingParameters;
+
+public class HashingFeatureGeneratorUTest {
+
+	@Test
+	public void hashesTokensAndNgramsIntoBuckets() {
+		HashingFeatureGenerator generator = new HashingFeatureGenerator(16, 2);
+		String[] tokens = { "great", "food", "great" };
+		Collection<String> features = generator.extractFeatures(tokens, Collections.emptyMap());
+
+		// Each token followed by the bigram starting at it
+		assertEquals(5, features.size());
+		for (String feature : features) {
+			int bucket = Integer.parseInt(feature.substring(2));
+			assertTrue(bucket >= 0 && bucket < 16);
+		}
+		List<String> list = new ArrayList<String>(features);
+		assertEquals("h=" + generator.bucket("great"), list.get(0));
+		assertEquals(list.get(0), list.get(4));
+	}
+
+	@Test
+	public void loadedModelKeepsHashingConfiguration() throws IOException {
+		List<DocumentSample> samples = new ArrayList<DocumentSample>();
+		for (int i = 0; i < 10; i++) {
+			samples.add(new DocumentSample("5", new String[] { "great", "food", "lovely" }));
+			samples.add(new DocumentSample("1", new String[] { "terrible", "food", "rude" }));
+		}
+		TrainingParameters params = new TrainingParameters();
+		params.put(TrainingParameters.ITERATIONS_PARAM, 10);
+		params.put(TrainingParameters.CUTOFF_PARAM, 0);
+		DoccatModel model = DocumentCategorizerME.train("en", ObjectStreamUtils.createObjectStream(samples), params,
+				new HashingDoccatFactory(64, 2));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		model.serialize(out);
+		DoccatModel loaded = new DoccatModel(new ByteArrayInputStream(out.toByteArray()));
+
+		HashingFeatureGenerator generator = (HashingFeatureGenerator) loaded.getFactory().getFeatureGenerators()[0];
+		assertEquals(64, generator.getBuckets());
+		assertEquals(2, generator.getNgramSize());
+
+		String[] tokens = { "rude", "food" };
+		DocumentCategorizerME categorizer = new DocumentCategorizerME(loaded);
+		assertArrayEquals(new DocumentCategorizerME(model).categorize(tokens), categorizer.categorize(tokens), 1e-12);
+		assertEquals("1", categorizer.getBestCategory(categorizer.categorize(tokens)));
+	}
+
+}
@@ -0,0 +1,62 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import main.algorithm.LatencyHistogram;
+import main.algorithm.Metrics;
+
+public class MetricsUTest {
+
+	@Test
+	public void reportsPercentilesWithinABucket() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long nanos = 1; nanos <= 1000; nanos++) {
+			histogram.record(nanos * 1000);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500, histogram.getMean(), 1e-6);
+		assertEquals(1000000, histogram.getMax());
+
+		long p50 = histogram.getPercentile(0.5);
+		assertTrue(p50 >= 500000 && p50 <= 500000 * 1.25);
+		long p99 = histogram.getPercentile(0.99);
+		assertTrue(p99 >= 990000 && p99 <= 1000000);
+
+		histogram.reset();
+		assertEquals(0, histogram.getPercentile(0.5));
+	}
+
+	@Test
+	public void exposesMetricsOverJmx() throws Exception {
+		Metrics metrics = Metrics.getInstance();
+		metrics.counter("test.records").add(3);
+		metrics.histogram("test.latency").record(2000);
+		metrics.registerGauge("test.depth", () -> 7);
+		metrics.registerMBean();
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+		TabularData counters = (TabularData) server.getAttribute(name, "Counters");
+		assertEquals(3L, counters.get(new Object[] { "test.records" }).get("value"));
+		TabularData gauges = (TabularData) server.getAttribute(name, "Gauges");
+		assertEquals(7L, gauges.get(new Object[] { "test.depth" }).get("value"));
+		TabularData latencies = (TabularData) server.getAttribute(name, "Latencies");
+		CompositeData latency = (CompositeData) latencies.get(new Object[] { "test.latency" }).get("value");
+		assertEquals(1L, latency.get("count"));
+
+		String json = (String) server.getAttribute(name, "SnapshotJson");
+		assertTrue(json.contains("\"test.records\":{\"count\":3"));
+		metrics.unregisterGauge("test.depth");
+	}
+
+}
@@ -0,0 +1,69 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import main.app.MicroBatcher;
+
+public class MicroBatcherUTest {
+
+	@Test
+	public void coalescesItemsIntoBatches() throws Exception {
+		List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+		MicroBatcher<Integer, Integer> batcher = new MicroBatcher<Integer, Integer>("test.coalesce", 1, 10, 200,
+				1000, () -> items -> {
+					batchSizes.add(items.size());
+					List<Integer> results = new ArrayList<Integer>();
+					for (Integer item : items) {
+						results.add(item * 2);
+					}
+					return results;
+				});
+		try {
+			List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+			for (int i = 0; i < 100; i++) {
+				futures.add(batcher.submit(i));
+			}
+			for (int i = 0; i < 100; i++) {
+				assertEquals(Integer.valueOf(i * 2), futures.get(i).get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			batcher.close();
+		}
+
+		int total = 0;
+		for (int size : batchSizes) {
+			assertTrue(size <= 10);
+			total += size;
+		}
+		assertEquals(100, total);
+		assertTrue(batchSizes.size() < 100);
+	}
+
+	@Test
+	public void failsEveryItemOfAFailedBatch() throws Exception {
+		MicroBatcher<String, String> batcher = new MicroBatcher<String, String>("test.fail", 1, 4, 0, 10,
+				() -> items -> {
+					throw new IllegalStateException("broken");
+				});
+		try {
+			batcher.submit("a").get(5, TimeUnit.SECONDS);
+			fail("Expected the batch to fail");
+		} catch (ExecutionException e) {
+			assertEquals("broken", e.getCause().getMessage());
+		} finally {
+			batcher.close();
+		}
+	}
+
+}
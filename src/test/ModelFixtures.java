@@ -0,0 +1,89 @@
+package test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSSample;
+import opennlp.tools.postag.POSTaggerFactory;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.util.ObjectStreamUtils;
+import opennlp.tools.util.TrainingParameters;
+
+/**
+ * Tiny sentiment training files and parts-of-speech models for the tests, so
+ * they run without the Yelp dataset or the OpenNLP model downloads.
+ *
+ * @author vbala
+ *
+ */
+public class ModelFixtures {
+
+	public static final String[] NOUNS = { "food", "service", "staff", "pizza" };
+	public static final String[] POSITIVE = { "delicious", "amazing", "great" };
+	public static final String[] NEGATIVE = { "terrible", "awful", "rude" };
+
+	private ModelFixtures() {
+	}
+
+	/**
+	 * Write sentiment training records where positive and negative words never
+	 * mix: "5 The food was delicious amazing great" and "1 The food was terrible
+	 * awful rude" for every noun.
+	 *
+	 * @param directory directory to write the file in
+	 * @return the training file
+	 * @throws IOException
+	 */
+	public static File writeSentimentTrainingFile(File directory) throws IOException {
+		File file = new File(directory, "train.txt");
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (int i = 0; i < 50; i++) {
+				String noun = NOUNS[i % NOUNS.length];
+				writer.write("5 The " + noun + " was " + String.join(" ", POSITIVE));
+				writer.newLine();
+				writer.write("1 The " + noun + " was " + String.join(" ", NEGATIVE));
+				writer.newLine();
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Write a parts-of-speech model trained on "The noun was adjective"
+	 * sentences, which tags {@link #NOUNS} as NN.
+	 *
+	 * @param directory directory to write the model in
+	 * @return the model file
+	 * @throws IOException
+	 */
+	public static File writePOSModel(File directory) throws IOException {
+		List<POSSample> samples = new ArrayList<POSSample>();
+		for (String noun : NOUNS) {
+			for (String[] adjectives : new String[][] { POSITIVE, NEGATIVE }) {
+				for (String adjective : adjectives) {
+					samples.add(new POSSample(new String[] { "The", noun, "was", adjective },
+							new String[] { "DT", "NN", "VBD", "JJ" }));
+				}
+			}
+		}
+		TrainingParameters params = TrainingParameters.defaultParams();
+		params.put(TrainingParameters.CUTOFF_PARAM, 0);
+		params.put("PrintMessages", false);
+		POSModel model = POSTaggerME.train("en", ObjectStreamUtils.createObjectStream(samples), params,
+				new POSTaggerFactory());
+
+		File file = new File(directory, "en-pos.bin");
+		try (OutputStream out = Files.newOutputStream(file.toPath())) {
+			model.serialize(out);
+		}
+		return file;
+	}
+
+}
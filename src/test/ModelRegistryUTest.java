@@ -0,0 +1,119 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.HashingDoccatFactory;
+import main.algorithm.ModelRegistry;
+import opennlp.tools.doccat.DoccatFactory;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSampleStream;
+import opennlp.tools.util.MarkableFileInputStreamFactory;
+import opennlp.tools.util.PlainTextByLineStream;
+import opennlp.tools.util.TrainingParameters;
+
+public class ModelRegistryUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static TrainingParameters params(int iterations, int cutoff) {
+		TrainingParameters params = new TrainingParameters();
+		params.put(TrainingParameters.ITERATIONS_PARAM, iterations + "");
+		params.put(TrainingParameters.CUTOFF_PARAM, cutoff + "");
+		return params;
+	}
+
+	/**
+	 * Trainer of a model with {@link #params(int, int)} of 20 iterations and
+	 * cutoff 0, counting its calls. Training adds defaults to the parameters it
+	 * gets, so it gets its own instance.
+	 */
+	private static ModelRegistry.Trainer trainer(File trainingFile, AtomicInteger calls) {
+		return () -> {
+			calls.incrementAndGet();
+			return DocumentCategorizerME.train("en",
+					new DocumentSampleStream(
+							new PlainTextByLineStream(new MarkableFileInputStreamFactory(trainingFile), "UTF-8")),
+					params(20, 0), new DoccatFactory());
+		};
+	}
+
+	@Test
+	public void keyDependsOnTrainingFileParamsAndFeatures() throws IOException {
+		ModelRegistry registry = new ModelRegistry(folder.newFolder("registry"));
+		File trainingFile = folder.newFile("train.txt");
+		Files.write(trainingFile.toPath(), Arrays.asList("5 great food", "1 awful food"), StandardCharsets.UTF_8);
+		String key = registry.key(trainingFile, params(20, 0), new DoccatFactory());
+
+		// Setting order does not matter
+		TrainingParameters reordered = new TrainingParameters();
+		reordered.put(TrainingParameters.CUTOFF_PARAM, "0");
+		reordered.put(TrainingParameters.ITERATIONS_PARAM, "20");
+		assertEquals(key, registry.key(trainingFile, reordered, new DoccatFactory()));
+
+		assertTrue(!key.equals(registry.key(trainingFile, params(10, 0), new DoccatFactory())));
+		assertTrue(!key.equals(registry.key(trainingFile, params(20, 0), new HashingDoccatFactory(1024, 1))));
+		assertTrue(!registry.key(trainingFile, params(20, 0), new HashingDoccatFactory(1024, 1))
+				.equals(registry.key(trainingFile, params(20, 0), new HashingDoccatFactory(2048, 1))));
+
+		Files.write(trainingFile.toPath(), Arrays.asList("5 great food", "1 rude staff"), StandardCharsets.UTF_8);
+		assertTrue(!key.equals(registry.key(trainingFile, params(20, 0), new DoccatFactory())));
+	}
+
+	@Test
+	public void storesModelOnceAndReloadsIt() throws IOException {
+		File directory = new File(folder.getRoot(), "registry");
+		File trainingFile = ModelFixtures.writeSentimentTrainingFile(folder.getRoot());
+		TrainingParameters params = params(20, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		DoccatModel trained = new ModelRegistry(directory).getOrTrain(trainingFile, params, new DoccatFactory(),
+				trainer(trainingFile, calls));
+		// A new registry over the same directory, as in the next run
+		ModelRegistry registry = new ModelRegistry(directory);
+		DoccatModel loaded = registry.getOrTrain(trainingFile, params, new DoccatFactory(),
+				trainer(trainingFile, calls));
+
+		assertEquals(1, calls.get());
+		String[] tokens = { "The", "food", "was", "delicious" };
+		assertTrue(Arrays.equals(new DocumentCategorizerME(trained).categorize(tokens),
+				new DocumentCategorizerME(loaded).categorize(tokens)));
+		// Only the model is left, no temporary file
+		assertEquals(Arrays.asList(registry.getModelFile(registry.key(trainingFile, params, new DoccatFactory()))
+				.getName()), Arrays.asList(directory.list()));
+	}
+
+	@Test
+	public void retrainsUnreadableModel() throws IOException {
+		File directory = folder.newFolder("registry");
+		ModelRegistry registry = new ModelRegistry(directory);
+		File trainingFile = ModelFixtures.writeSentimentTrainingFile(folder.getRoot());
+		TrainingParameters params = params(20, 0);
+		File modelFile = registry.getModelFile(registry.key(trainingFile, params, new DoccatFactory()));
+		Files.write(modelFile.toPath(), "truncated".getBytes(StandardCharsets.UTF_8));
+
+		AtomicInteger calls = new AtomicInteger();
+		registry.getOrTrain(trainingFile, params, new DoccatFactory(),
+				trainer(trainingFile, calls));
+		assertEquals(1, calls.get());
+
+		// The stored model replaced the unreadable one
+		new ModelRegistry(directory).getOrTrain(trainingFile, params, new DoccatFactory(),
+				trainer(trainingFile, calls));
+		assertEquals(1, calls.get());
+	}
+
+}
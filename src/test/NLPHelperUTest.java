@@ -0,0 +1,129 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.ModelRegistry;
+import main.algorithm.NLPHelper;
+import main.algorithm.TextTokenizer;
+import main.algorithm.Vocabulary;
+import main.model.PreprocessedCorpus;
+import main.model.Review;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizer;
+import opennlp.tools.doccat.DocumentCategorizerME;
+
+public class NLPHelperUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Review texts mixing nouns with a random number of positive and negative
+	 * words, the same for every run
+	 */
+	private static String[] reviewTexts(int count) {
+		Random random = new Random(11);
+		String[] texts = new String[count];
+		for (int i = 0; i < count; i++) {
+			StringBuilder sb = new StringBuilder("The ").append(ModelFixtures.NOUNS[i % ModelFixtures.NOUNS.length])
+					.append(" was");
+			int words = 1 + random.nextInt(6);
+			for (int w = 0; w < words; w++) {
+				String[] sentiment = random.nextBoolean() ? ModelFixtures.POSITIVE : ModelFixtures.NEGATIVE;
+				sb.append(' ').append(sentiment[random.nextInt(sentiment.length)]);
+			}
+			texts[i] = sb.toString();
+		}
+		return texts;
+	}
+
+	private File writeCorpus(String[] texts) throws IOException {
+		File file = new File(folder.getRoot(), "corpus.bin");
+		Vocabulary vocabulary = new Vocabulary();
+		try (PreprocessedCorpus.Writer writer = new PreprocessedCorpus.Writer(file)) {
+			for (int r = 0; r < texts.length; r++) {
+				String[] tokens = TextTokenizer.get().reset(texts[r]).tokens();
+				int[] termIds = new int[tokens.length];
+				for (int t = 0; t < termIds.length; t++) {
+					termIds[t] = vocabulary.intern(tokens[t]);
+				}
+				writer.add("review" + r, "business", 3, termIds, new boolean[termIds.length]);
+			}
+			writer.finish(vocabulary);
+		}
+		return file;
+	}
+
+	@Test
+	public void parallelScoresMatchSequentialScores() throws IOException {
+		NLPHelper nlpHelper = new NLPHelper(new ModelRegistry(folder.newFolder("registry")));
+		DoccatModel model = nlpHelper
+				.trainDoccatModel(ModelFixtures.writeSentimentTrainingFile(folder.getRoot()).getPath());
+
+		try (PreprocessedCorpus corpus = PreprocessedCorpus.open(writeCorpus(reviewTexts(1000)))) {
+			int[] scores = nlpHelper.testTextClassificationModel(() -> new DocumentCategorizerME(model), corpus, 4);
+
+			assertEquals(corpus.size(), scores.length);
+			DocumentCategorizer categorizer = new DocumentCategorizerME(model);
+			int positive = 0;
+			for (int i = 0; i < scores.length; i++) {
+				assertEquals(nlpHelper.scoreReview(categorizer, corpus.getTokens(i)), scores[i]);
+				positive += scores[i] == 5 ? 1 : 0;
+			}
+			// Both categories occur, so a mixed up review would be noticed
+			assertTrue(positive > 0 && positive < scores.length);
+		}
+	}
+
+	@Test
+	public void parallelNounsMatchSequentialNouns() throws IOException {
+		NLPHelper nlpHelper = new NLPHelper(new ModelRegistry(folder.newFolder("registry")));
+		String posModelFile = ModelFixtures.writePOSModel(folder.getRoot()).getPath();
+		String[] texts = reviewTexts(1000);
+		Review[] reviews = new Review[texts.length];
+		for (int i = 0; i < reviews.length; i++) {
+			reviews[i] = new Review("review" + i, texts[i], 3, "business");
+		}
+
+		// Only the first count reviews are tagged
+		int count = 900;
+		String[][] tokens = new String[reviews.length][];
+		boolean[][] nouns = new boolean[reviews.length][];
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			NLPHelper.tagNouns(reviews, count, posModelFile, pool, tokens, nouns);
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int i = 0; i < count; i++) {
+			assertArrayEquals(nlpHelper.getTokens(reviews[i]), tokens[i]);
+			List<String> taggedNouns = new ArrayList<String>();
+			for (int t = 0; t < tokens[i].length; t++) {
+				if (nouns[i][t]) {
+					taggedNouns.add(tokens[i][t]);
+				}
+			}
+			String[] expected = nlpHelper.tagNouns(tokens[i], posModelFile);
+			assertEquals(1, expected.length);
+			assertArrayEquals(expected, taggedNouns.toArray(new String[taggedNouns.size()]));
+		}
+		assertNull(tokens[count]);
+		assertNull(nouns[reviews.length - 1]);
+	}
+
+}
@@ -0,0 +1,110 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.NaiveBayesModel;
+
+public class NaiveBayesModelUTest {
+
+	private static final String[] LINES = { "5 great food great service", "1 terrible food rude service",
+			"5 lovely staff great wine", "1 cold food terrible wait", "3 food was okay" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void classifiesTrainedDocuments() {
+		NaiveBayesModel model = new NaiveBayesModel();
+		for (String line : LINES) {
+			model.addLine(line);
+		}
+		assertEquals(5, model.getDocumentCount());
+		assertEquals("5", model.getBestCategory(model.categorize(new String[] { "great", "wine" })));
+		assertEquals("1", model.getBestCategory(model.categorize(new String[] { "terrible", "rude" })));
+
+		double[] outcomes = model.categorize(new String[] { "unseen" });
+		double sum = 0;
+		for (double outcome : outcomes) {
+			sum += outcome;
+		}
+		assertEquals(1.0, sum, 1e-9);
+	}
+
+	@Test
+	public void mergedShardsScoreLikeOneModel() {
+		NaiveBayesModel whole = new NaiveBayesModel();
+		NaiveBayesModel first = new NaiveBayesModel();
+		NaiveBayesModel second = new NaiveBayesModel();
+		for (int i = 0; i < LINES.length; i++) {
+			whole.addLine(LINES[i]);
+			(i % 2 == 0 ? first : second).addLine(LINES[LINES.length - 1 - i]);
+		}
+		NaiveBayesModel merged = new NaiveBayesModel();
+		merged.merge(first);
+		merged.merge(second);
+
+		String[] tokens = { "great", "food", "rude", "okay" };
+		assertEquals(whole.getDocumentCount(), merged.getDocumentCount());
+		assertEquals(whole.scoreMap(tokens), merged.scoreMap(tokens));
+	}
+
+	@Test
+	public void roundTripsCounts() throws IOException {
+		NaiveBayesModel model = new NaiveBayesModel(0.5);
+		for (String line : LINES) {
+			model.addLine(line);
+		}
+		File file = new File(folder.getRoot(), "model.bin");
+		model.save(file);
+		NaiveBayesModel loaded = NaiveBayesModel.load(file);
+
+		String[] tokens = { "great", "service", "wait" };
+		assertEquals(model.getTermCount(), loaded.getTermCount());
+		assertArrayEquals(model.categorize(tokens), loaded.categorize(tokens), 1e-12);
+
+		// Loaded counts keep growing
+		loaded.addLine("1 rude rude rude");
+		assertEquals(6, loaded.getDocumentCount());
+	}
+
+	@Test
+	public void scoresWithTheTermsOfItsTables() {
+		NaiveBayesModel model = new NaiveBayesModel();
+		for (String line : LINES) {
+			model.addLine(line);
+		}
+		double[] before = model.categorize(new String[] { "great", "superb" });
+
+		// A new term is only scored once the tables are rebuilt
+		model.addLine("5 superb superb superb");
+		double[] after = model.categorize(new String[] { "great", "superb" });
+		assertTrue(after[model.getIndex("5")] > before[model.getIndex("5")]);
+	}
+
+	@Test
+	public void failedSaveLeavesNoTemporaryFile() throws IOException {
+		NaiveBayesModel model = new NaiveBayesModel();
+		model.addLine(LINES[0]);
+		// A non-empty directory cannot be replaced by the model file
+		File target = folder.newFolder("model.bin");
+		new File(target, "keep").createNewFile();
+		try {
+			model.save(target);
+			fail("Saved over a non-empty directory");
+		} catch (IOException e) {
+			// expected
+		}
+		assertArrayEquals(new String[] { "model.bin" }, folder.getRoot().list());
+	}
+
+}
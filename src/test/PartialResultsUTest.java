@@ -0,0 +1,81 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.model.PartialResults;
+import main.model.SentimentSummary;
+
+public class PartialResultsUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTripsResults() throws IOException {
+		File directory = new File(folder.getRoot(), "shard-0");
+		assertTrue(!PartialResults.exists(directory));
+
+		Map<String, Long> words = new HashMap<String, Long>();
+		words.put("food", 12L);
+		words.put("caf\u00e9", 3000000000L);
+		PartialResults.write(directory, Arrays.asList(new SentimentSummary("b0", "food", 2, 9),
+				new SentimentSummary(null, "", 1, 5)), words);
+		assertTrue(PartialResults.exists(directory));
+		assertEquals(2, directory.list().length);
+
+		List<SentimentSummary> summaries = PartialResults.readSummaries(directory);
+		assertEquals(2, summaries.size());
+		assertEquals("b0", summaries.get(0).getBusinessId());
+		assertEquals("food", summaries.get(0).getTopic());
+		assertEquals(2, summaries.get(0).getReviewCount());
+		assertEquals(9, summaries.get(0).getScoreSum());
+		// A missing business is written as an empty id
+		assertEquals("", summaries.get(1).getBusinessId());
+		assertEquals(5, summaries.get(1).getScoreSum());
+
+		Map<String, Long> read = new HashMap<String, Long>();
+		read.put("food", 1L);
+		PartialResults.mergeWordFrequencies(directory, read);
+		assertEquals(Long.valueOf(13), read.get("food"));
+		assertEquals(Long.valueOf(3000000000L), read.get("caf\u00e9"));
+	}
+
+	@Test
+	public void rejectsTabsAndLeavesNothingBehind() throws IOException {
+		File directory = folder.newFolder("shard-0");
+		try {
+			PartialResults.write(directory, Arrays.asList(new SentimentSummary("b\t0", "food", 1, 1)),
+					new HashMap<String, Long>());
+			fail("Wrote a business id containing a tab");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0, directory.list().length);
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsMalformedLines() throws IOException {
+		File directory = folder.newFolder("shard-0");
+		PartialResults.write(directory, Arrays.asList(new SentimentSummary("b0", "food", 1, 1)),
+				new HashMap<String, Long>());
+		Files.write(new File(directory, PartialResults.AGGREGATES_FILE).toPath(),
+				Arrays.asList("b0\tfood\tmany\t1"), StandardCharsets.UTF_8);
+		PartialResults.readSummaries(directory);
+	}
+
+}
@@ -0,0 +1,206 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import main.algorithm.Metrics;
+import main.app.Pipeline;
+
+public class PipelineUTest {
+
+	/**
+	 * Record counting the stages it went through
+	 */
+	private static class Item {
+		final int id;
+		final AtomicInteger stages = new AtomicInteger();
+
+		Item(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Source of numbered items counting how many were read
+	 */
+	private static class Source implements Iterator<Item> {
+		final int size;
+		final AtomicInteger read = new AtomicInteger();
+
+		Source(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return read.get() < size;
+		}
+
+		@Override
+		public Item next() {
+			return new Item(read.getAndIncrement());
+		}
+	}
+
+	@Test
+	public void multiWorkerRunDeliversEveryRecordOnce() throws IOException {
+		ConcurrentMap<Integer, AtomicInteger> delivered = new ConcurrentHashMap<Integer, AtomicInteger>();
+		Pipeline<Item> pipeline = new Pipeline<Item>(4);
+		pipeline.addStage("test.once.a", 3, item -> item.stages.incrementAndGet());
+		pipeline.addStage("test.once.b", 2, item -> item.stages.incrementAndGet());
+		pipeline.addStage("test.once.c", 4, item -> {
+			item.stages.incrementAndGet();
+			assertEquals(3, item.stages.get());
+			delivered.computeIfAbsent(item.id, id -> new AtomicInteger()).incrementAndGet();
+		});
+
+		assertEquals(1000, pipeline.run(new Source(1000)));
+		assertEquals(1000, delivered.size());
+		for (AtomicInteger count : delivered.values()) {
+			assertEquals(1, count.get());
+		}
+		assertFalse(Metrics.getInstance().getGauges().containsKey("pipeline.test.once.a.queueDepth"));
+		assertFalse(Metrics.getInstance().getGauges().containsKey("pipeline.test.once.c.queueDepth"));
+	}
+
+	@Test
+	public void runsEmptySource() throws IOException {
+		Pipeline<Item> pipeline = new Pipeline<Item>(2);
+		pipeline.addStage("test.empty.a", 2, item -> fail("no records expected"));
+		pipeline.addStage("test.empty.b", 3, item -> fail("no records expected"));
+		assertEquals(0, pipeline.run(Collections.<Item>emptyIterator()));
+	}
+
+	@Test
+	public void failingStageFailsRun() {
+		Source source = new Source(1000000);
+		Pipeline<Item> pipeline = new Pipeline<Item>(4);
+		pipeline.addStage("test.fail.a", 2, item -> {
+		});
+		pipeline.addStage("test.fail.b", 2, item -> {
+			if (item.id == 50) {
+				throw new IOException("broken record " + item.id);
+			}
+		});
+		pipeline.addStage("test.fail.c", 1, item -> {
+		});
+
+		try {
+			pipeline.run(source);
+			fail("expected the failure of the stage");
+		} catch (IOException e) {
+			assertEquals("broken record 50", e.getMessage());
+		}
+		// The source stops being read once a stage fails
+		assertTrue(source.read.get() < 1000000);
+		assertFalse(Thread.currentThread().isInterrupted());
+		assertFalse(Metrics.getInstance().getGauges().containsKey("pipeline.test.fail.b.queueDepth"));
+	}
+
+	@Test
+	public void failedRunWaitsForEveryWorker() {
+		CountDownLatch failing = new CountDownLatch(1);
+		AtomicBoolean finished = new AtomicBoolean();
+		Pipeline<Item> pipeline = new Pipeline<Item>(4);
+		pipeline.addStage("test.join", 2, item -> {
+			if (item.id == 1) {
+				failing.countDown();
+				throw new IOException("broken record");
+			}
+			if (item.id == 0) {
+				// Keeps working through interrupts, like a blocking call which ignores them
+				boolean interrupted = false;
+				while (failing.getCount() > 0) {
+					try {
+						failing.await();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				long end = System.currentTimeMillis() + 200;
+				while (System.currentTimeMillis() < end) {
+					interrupted |= Thread.interrupted();
+				}
+				finished.set(true);
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		try {
+			pipeline.run(new Source(2));
+			fail("expected the failure of the stage");
+		} catch (IOException e) {
+			assertEquals("broken record", e.getMessage());
+		}
+		assertTrue(finished.get());
+	}
+
+	@Test
+	public void wrapsUncheckedFailures() {
+		Pipeline<Item> pipeline = new Pipeline<Item>(4);
+		pipeline.addStage("test.unchecked", 1, item -> {
+			throw new IllegalStateException("bad state");
+		});
+		try {
+			pipeline.run(new Source(10));
+			fail("expected the failure of the stage");
+		} catch (IOException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void blockedStageHoldsBackSource() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Source source = new Source(100);
+		Pipeline<Item> pipeline = new Pipeline<Item>(2);
+		pipeline.addStage("test.pressure.a", 1, item -> {
+		});
+		pipeline.addStage("test.pressure.b", 1, item -> release.await());
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Long> run = executor.submit(() -> pipeline.run(source));
+			long deadline = System.currentTimeMillis() + 5000;
+			while (pipeline.getQueueDepth(1) < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(100);
+
+			// Two full queues, a record in each worker and one the source waits to put
+			assertEquals(2, pipeline.getQueueDepth(0));
+			assertEquals(2, pipeline.getQueueDepth(1));
+			assertTrue(source.read.get() <= 7);
+			assertEquals(Long.valueOf(2),
+					Metrics.getInstance().getGauges().get("pipeline.test.pressure.b.queueDepth"));
+
+			release.countDown();
+			assertEquals(Long.valueOf(100), run.get(5, TimeUnit.SECONDS));
+			assertEquals(100, source.read.get());
+			assertFalse(Metrics.getInstance().getGauges().containsKey("pipeline.test.pressure.b.queueDepth"));
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.Vocabulary;
+import main.model.PreprocessedCorpus;
+
+public class PreprocessedCorpusUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTripsReviews() throws IOException {
+		File file = new File(folder.getRoot(), "corpus.bin");
+		Vocabulary vocabulary = new Vocabulary();
+		String[][] texts = { { "the", "food", "was", "great" }, {}, { "slow", "service" } };
+		boolean[][] nouns = { { false, true, false, false }, {}, { false, true } };
+		try (PreprocessedCorpus.Writer writer = new PreprocessedCorpus.Writer(file)) {
+			for (int r = 0; r < texts.length; r++) {
+				int[] termIds = new int[texts[r].length];
+				for (int t = 0; t < termIds.length; t++) {
+					termIds[t] = vocabulary.intern(texts[r][t]);
+				}
+				writer.add("review" + r, "business" + (r % 2), r + 1, termIds, nouns[r]);
+			}
+			writer.finish(vocabulary);
+		}
+
+		try (PreprocessedCorpus corpus = PreprocessedCorpus.open(file)) {
+			assertEquals(3, corpus.size());
+			for (int r = 0; r < texts.length; r++) {
+				assertArrayEquals(texts[r], corpus.getTokens(r));
+				assertEquals("review" + r, corpus.getReviewId(r));
+				assertEquals("business" + (r % 2), corpus.getBusinessId(r));
+				assertEquals(r + 1, corpus.getStars(r));
+			}
+			assertArrayEquals(new String[] { "food" }, corpus.getNouns(0));
+			assertTrue(corpus.isNoun(2, 1));
+			assertFalse(corpus.isNoun(2, 0));
+			assertEquals(vocabulary.lookup("service"), corpus.getVocabulary().lookup("service"));
+			assertEquals("the food was great", corpus.toReview(0).text);
+		}
+	}
+
+	@Test
+	public void readsTokensAcrossSegments() throws IOException {
+		File file = new File(folder.getRoot(), "corpus.bin");
+		Vocabulary vocabulary = new Vocabulary();
+		String[][] texts = { { "a", "b", "c" }, { "d" }, { "e", "f", "g", "h", "i" } };
+		try (PreprocessedCorpus.Writer writer = new PreprocessedCorpus.Writer(file)) {
+			for (int r = 0; r < texts.length; r++) {
+				int[] termIds = new int[texts[r].length];
+				for (int t = 0; t < termIds.length; t++) {
+					termIds[t] = vocabulary.intern(texts[r][t]);
+				}
+				writer.add("review" + r, "business", 5, termIds, new boolean[termIds.length]);
+			}
+			writer.finish(vocabulary);
+		}
+
+		try (PreprocessedCorpus corpus = PreprocessedCorpus.open(file, 2)) {
+			for (int r = 0; r < texts.length; r++) {
+				assertArrayEquals(texts[r], corpus.getTokens(r));
+			}
+		}
+	}
+
+	@Test
+	public void keepsNounsAfterLongReviews() throws IOException {
+		File file = new File(folder.getRoot(), "corpus.bin");
+		Vocabulary vocabulary = new Vocabulary();
+		// One review longer than twice the initial noun bit capacity
+		int[] termIds = new int[100000];
+		boolean[] nouns = new boolean[termIds.length];
+		for (int t = 0; t < termIds.length; t++) {
+			termIds[t] = vocabulary.intern(t % 2 == 0 ? "the" : "food");
+		}
+		nouns[termIds.length - 1] = true;
+		try (PreprocessedCorpus.Writer writer = new PreprocessedCorpus.Writer(file)) {
+			writer.add("long", "business", 5, termIds, nouns);
+			writer.add("short", "business", 1, new int[] { vocabulary.lookup("food") }, new boolean[] { true });
+			writer.finish(vocabulary);
+		}
+
+		try (PreprocessedCorpus corpus = PreprocessedCorpus.open(file)) {
+			assertTrue(corpus.isNoun(0, termIds.length - 1));
+			assertFalse(corpus.isNoun(0, termIds.length - 2));
+			assertArrayEquals(new String[] { "food" }, corpus.getNouns(0));
+			assertArrayEquals(new String[] { "food" }, corpus.getNouns(1));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTokenSegmentSizeThatIsNotAPowerOfTwo() throws IOException {
+		PreprocessedCorpus.open(new File(folder.getRoot(), "corpus.bin"), 3);
+	}
+
+}
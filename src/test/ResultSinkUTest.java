@@ -0,0 +1,112 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.model.AsyncResultSink;
+import main.model.BinaryResultReader;
+import main.model.BinaryResultSink;
+import main.model.CsvResultSink;
+import main.model.ResultSink;
+import main.model.Review;
+import main.model.ReviewResult;
+
+public class ResultSinkUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void writesCsvAndBinaryInOrder() throws IOException {
+		File csvFile = folder.newFile("results.csv");
+		File binaryFile = folder.newFile("results.bin");
+		List<ReviewResult> results = new ArrayList<ReviewResult>();
+		for (int i = 0; i < 5000; i++) {
+			String text = i % 2 == 0 ? "great \"pho\", slow\nservice \u00e9" : "ok";
+			results.add(new ReviewResult(new Review("r" + i, text, 1 + i % 5, "b" + i % 13), i % 5,
+					i % 3 == 0 ? null : "food"));
+		}
+
+		try (ResultSink sink = new AsyncResultSink(16, new CsvResultSink(csvFile, true),
+				new BinaryResultSink(binaryFile, true))) {
+			for (ReviewResult result : results) {
+				sink.write(result);
+			}
+		}
+
+		try (BinaryResultReader reader = new BinaryResultReader(binaryFile.getPath())) {
+			for (ReviewResult expected : results) {
+				ReviewResult actual = reader.next();
+				assertEquals(expected.getReview().id, actual.getReview().id);
+				assertEquals(expected.getReview().businessId, actual.getReview().businessId);
+				assertEquals(expected.getReview().stars, actual.getReview().stars);
+				assertEquals(expected.getReview().text, actual.getReview().text);
+				assertEquals(expected.getScore(), actual.getScore());
+				assertEquals(expected.getTopic(), actual.getTopic());
+			}
+			assertFalse(reader.hasNext());
+		}
+
+		String csv = new String(Files.readAllBytes(csvFile.toPath()), StandardCharsets.UTF_8);
+		String[] lines = csv.split("\r\n");
+		assertEquals("review_id,business_id,stars,score,topic,text", lines[0]);
+		assertEquals("r0,b0,1,0,,\"great \"\"pho\"\", slow\nservice \u00e9\"", lines[1]);
+		assertEquals("r1,b1,2,1,food,ok", lines[2]);
+		assertEquals(results.size() + 1, lines.length);
+	}
+
+	@Test
+	public void leavesOutTextWhenAsked() throws IOException {
+		File binaryFile = folder.newFile("results.bin");
+		try (ResultSink sink = new BinaryResultSink(binaryFile, false)) {
+			sink.write(new ReviewResult(new Review("r0", "text", 5, "b0"), 4, "food"));
+		}
+		try (BinaryResultReader reader = new BinaryResultReader(binaryFile.getPath())) {
+			ReviewResult result = reader.next();
+			assertNull(result.getReview().text);
+			assertEquals("food", result.getTopic());
+		}
+	}
+
+	@Test
+	public void rethrowsWriterFailure() throws IOException {
+		ResultSink failing = new ResultSink() {
+			@Override
+			public void write(ReviewResult result) throws IOException {
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		AsyncResultSink sink = new AsyncResultSink(4, failing);
+		for (int i = 0; i < 100; i++) {
+			try {
+				sink.write(new ReviewResult(new Review("r" + i, "ok", 3, "b"), 2, "food"));
+			} catch (IOException e) {
+				break;
+			}
+		}
+		try {
+			sink.close();
+			fail("Expected the writer failure");
+		} catch (IOException e) {
+			assertEquals("disk full", e.getCause().getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.SentimentAggregator;
+import main.model.PartialResults;
+import main.model.ReviewPartitioner;
+import main.model.SentimentSummary;
+
+public class ReviewPartitionerUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void keepsBusinessesInOneShard() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 50; i++) {
+			lines.add("{\"review_id\":\"r" + i + "\",\"business_id\":\"b" + (i % 7) + "\",\"stars\":3,\"text\":\"ok\"}");
+		}
+		File input = folder.newFile("reviews.json");
+		Files.write(input.toPath(), lines, StandardCharsets.UTF_8);
+
+		File directory = folder.newFolder("shards");
+		long[] counts = new ReviewPartitioner(3).partition(input.getPath(), directory);
+		assertEquals(50, Arrays.stream(counts).sum());
+
+		for (int shard = 0; shard < 3; shard++) {
+			List<String> shardLines = Files.readAllLines(ReviewPartitioner.getShardFile(directory, shard).toPath(),
+					StandardCharsets.UTF_8);
+			assertEquals(counts[shard], shardLines.size());
+			for (String line : shardLines) {
+				String businessId = line.replaceAll(".*\"business_id\":\"([^\"]*)\".*", "$1");
+				assertEquals(shard, ReviewPartitioner.shardOf(businessId, 3));
+			}
+		}
+	}
+
+	@Test
+	public void mergesPartialResults() throws IOException {
+		File first = folder.newFolder("shard-0");
+		File second = folder.newFolder("shard-1");
+		Map<String, Long> words = new HashMap<String, Long>();
+		words.put("food", 3L);
+		PartialResults.write(first, Arrays.asList(new SentimentSummary("b0", "food", 2, 9)), words);
+		words.put("staff", 1L);
+		PartialResults.write(second, Arrays.asList(new SentimentSummary("b0", "food", 1, 1),
+				new SentimentSummary("b1", "", 1, 5)), words);
+		assertTrue(PartialResults.exists(first));
+
+		SentimentAggregator aggregator = new SentimentAggregator();
+		Map<String, Long> merged = new HashMap<String, Long>();
+		for (File directory : new File[] { first, second }) {
+			for (SentimentSummary summary : PartialResults.readSummaries(directory)) {
+				aggregator.merge(summary);
+			}
+			PartialResults.mergeWordFrequencies(directory, merged);
+		}
+		assertEquals(3, aggregator.getSummary("b0", "food").getReviewCount());
+		assertEquals(10, aggregator.getSummary("b0", "food").getScoreSum());
+		assertEquals(5, aggregator.getSummary("b1", "").getScoreSum());
+		assertEquals(Long.valueOf(6), merged.get("food"));
+		assertEquals(Long.valueOf(1), merged.get("staff"));
+	}
+
+}
@@ -0,0 +1,72 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import main.model.Dataset;
+import main.model.Review;
+import main.model.ReviewReader;
+
+public class ReviewReaderUTest {
+
+	private static final String LINE_1 = "{\"review_id\":\"r1\",\"user_id\":\"u1\",\"business_id\":\"b1\",\"stars\":5.0,"
+			+ "\"text\":\"Great food!\\nWill return.\",\"date\":\"2018-01-01\"}";
+	private static final String LINE_2 = "{\"review_id\":\"r2\",\"business_id\":\"b2\",\"stars\":1,\"text\":\"\"}";
+	private static final String LINE_3 = "{\"review_id\":\"r3\",\"business_id\":\"b1\",\"stars\":2,"
+			+ "\"attributes\":{\"a\":[1,2]},\"text\":\"Slow service\"}";
+
+	private File write(String content) throws IOException {
+		File file = File.createTempFile("reviews", ".json");
+		file.deleteOnExit();
+		try (Writer writer = new FileWriter(file)) {
+			writer.write(content);
+		}
+		return file;
+	}
+
+	@Test
+	public void readsNewlineDelimitedReviews() throws IOException {
+		File file = write(LINE_1 + "\n" + LINE_2 + "\n" + LINE_3 + "\n");
+
+		try (Stream<Review> reviews = new Dataset().streamJSON(file.getPath())) {
+			List<Review> list = reviews.collect(Collectors.toList());
+			assertEquals(2, list.size());
+			assertEquals("r1", list.get(0).id);
+			assertEquals("Great food Will return", list.get(0).text);
+			assertEquals(5, list.get(0).stars);
+			assertEquals("b1", list.get(1).businessId);
+			assertEquals("Slow service", list.get(1).text);
+		}
+	}
+
+	@Test
+	public void readsArrayWrappedReviews() throws IOException {
+		File file = write("[\n" + LINE_1 + "," + LINE_3 + "]\n");
+
+		Map<Integer, Review> reviews = new Dataset().readJSON(file.getPath());
+		assertEquals(2, reviews.size());
+		assertEquals("r3", reviews.get(1).id);
+	}
+
+	@Test
+	public void keepsRawTextWhenNotCleaning() throws IOException {
+		File file = write(LINE_1);
+
+		try (ReviewReader reader = new ReviewReader(file.getPath(), false)) {
+			assertEquals("Great food!\nWill return.", reader.next().text);
+			assertFalse(reader.hasNext());
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.model.Review;
+import main.model.ReviewReader;
+import main.model.ReviewSampler;
+
+public class ReviewSamplerUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File writeReviews(int count) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			int stars = 1 + i % 5;
+			lines.add("{\"review_id\":\"r" + i + "\",\"business_id\":\"b" + (i % 7) + "\",\"stars\":" + stars
+					+ ".0,\"text\":\"review number " + i + " with " + stars + " stars\"}");
+		}
+		File file = folder.newFile("reviews.json");
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		return file;
+	}
+
+	@Test
+	public void splitsAtLineBoundaries() throws IOException {
+		File file = writeReviews(100);
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long[] boundaries = ReviewSampler.split(channel, 7);
+			assertEquals(8, boundaries.length);
+			assertEquals(0, boundaries[0]);
+			assertEquals(bytes.length, boundaries[boundaries.length - 1]);
+			for (int i = 1; i < boundaries.length - 1; i++) {
+				assertTrue(boundaries[i] > boundaries[i - 1]);
+				assertEquals('\n', bytes[(int) boundaries[i] - 1]);
+			}
+		}
+	}
+
+	@Test
+	public void samplesEveryStarRating() throws IOException {
+		File file = writeReviews(1000);
+		File train = new File(folder.getRoot(), "train.txt");
+		File test = new File(folder.getRoot(), "test.json");
+
+		long[] population = new ReviewSampler(4, 42).sample(file.getPath(), train.getPath(), test.getPath(), 20, 5);
+		for (int stars = 1; stars <= 5; stars++) {
+			assertEquals(200, population[stars]);
+		}
+
+		int[] trainCounts = new int[6];
+		for (String line : Files.readAllLines(train.toPath(), StandardCharsets.UTF_8)) {
+			trainCounts[Integer.parseInt(line.substring(0, line.indexOf(' ')))]++;
+		}
+		Set<String> testIds = new HashSet<String>();
+		int[] testCounts = new int[6];
+		try (ReviewReader reader = new ReviewReader(test.getPath())) {
+			while (reader.hasNext()) {
+				Review review = reader.next();
+				testIds.add(review.id);
+				testCounts[review.stars]++;
+			}
+		}
+		for (int stars = 1; stars <= 5; stars++) {
+			assertEquals(20, trainCounts[stars]);
+			assertEquals(5, testCounts[stars]);
+		}
+		assertEquals(25, testIds.size());
+	}
+
+	@Test
+	public void sampleDoesNotDependOnThreadCount() throws IOException {
+		File file = writeReviews(1000);
+		List<List<String>> samples = new ArrayList<List<String>>();
+		for (int threads : new int[] { 1, 3, 8 }) {
+			File train = new File(folder.getRoot(), "train-" + threads + ".txt");
+			File test = new File(folder.getRoot(), "test-" + threads + ".json");
+			new ReviewSampler(threads, 42).sample(file.getPath(), train.getPath(), test.getPath(), 20, 5);
+			List<String> lines = new ArrayList<String>(Files.readAllLines(train.toPath(), StandardCharsets.UTF_8));
+			lines.addAll(Files.readAllLines(test.toPath(), StandardCharsets.UTF_8));
+			samples.add(lines);
+		}
+		assertEquals(samples.get(0), samples.get(1));
+		assertEquals(samples.get(0), samples.get(2));
+
+		File train = new File(folder.getRoot(), "train-other.txt");
+		File test = new File(folder.getRoot(), "test-other.json");
+		new ReviewSampler(3, 43).sample(file.getPath(), train.getPath(), test.getPath(), 20, 5);
+		assertTrue(!samples.get(0).subList(0, 100)
+				.equals(Files.readAllLines(train.toPath(), StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void skipsReviewsWithoutWords() throws IOException {
+		List<String> lines = new ArrayList<String>();
+		lines.add("{\"review_id\":\"r0\",\"business_id\":\"b0\",\"stars\":5.0,\"text\":\"12345 !!! \\u2605\\u2605\"}");
+		lines.add("{\"review_id\":\"r1\",\"business_id\":\"b0\",\"stars\":5.0,\"text\":\"great food\"}");
+		File file = folder.newFile("reviews.json");
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		File train = new File(folder.getRoot(), "train.txt");
+		File test = new File(folder.getRoot(), "test.json");
+
+		new ReviewSampler(1, 42).sample(file.getPath(), train.getPath(), test.getPath(), 10, 0);
+		assertEquals(Arrays.asList("5 great food"), Files.readAllLines(train.toPath(), StandardCharsets.UTF_8));
+	}
+
+}
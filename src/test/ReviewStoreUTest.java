@@ -0,0 +1,101 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.model.Review;
+import main.model.ReviewStore;
+
+public class ReviewStoreUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String line(int i) {
+		return "{\"review_id\":\"r" + i + "\",\"business_id\":\"b" + (i % 3) + "\",\"stars\":" + (i % 5 + 1)
+				+ ",\"text\":\"Review number " + i + "!\"}";
+	}
+
+	private File writeReviews(int count) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			lines.add(line(i));
+		}
+		// Lines without a review_id are not indexed
+		lines.add("");
+		lines.add("{\"business_id\":\"b0\",\"stars\":3}");
+		File file = folder.newFile("reviews.json");
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		return file;
+	}
+
+	@Test
+	public void buildsIndexAndFindsReviews() throws IOException {
+		File file = writeReviews(500);
+		try (ReviewStore store = ReviewStore.open(file.getPath())) {
+			assertEquals(500, store.size());
+			Review review = store.get("r123");
+			assertEquals("r123", review.id);
+			assertEquals("b0", review.businessId);
+			assertEquals(123 % 5 + 1, review.stars);
+			assertEquals(line(499), store.getJSON("r499"));
+		}
+		assertTrue(new File(file.getPath() + ".idx").isFile());
+		String[] names = folder.getRoot().list();
+		Arrays.sort(names);
+		assertArrayEquals(new String[] { "reviews.json", "reviews.json.idx" }, names);
+	}
+
+	@Test
+	public void missingIdIsNull() throws IOException {
+		File file = writeReviews(10);
+		try (ReviewStore store = ReviewStore.open(file.getPath())) {
+			assertNull(store.get("r10"));
+			assertNull(store.getJSON(""));
+		}
+	}
+
+	@Test
+	public void reloadsSavedIndex() throws IOException {
+		File file = writeReviews(200);
+		File indexFile = new File(file.getPath() + ".idx");
+		ReviewStore.open(file.getPath()).close();
+
+		// A rebuilt index would be saved again with a new modification time
+		assertTrue(indexFile.setLastModified(1000000000000L));
+		try (ReviewStore store = ReviewStore.open(file.getPath())) {
+			assertEquals(200, store.size());
+			assertEquals("r42", store.get("r42").id);
+		}
+		assertEquals(1000000000000L, indexFile.lastModified());
+	}
+
+	@Test
+	public void rebuildsStaleIndex() throws IOException {
+		File file = writeReviews(100);
+		ReviewStore.open(file.getPath()).close();
+
+		Files.write(file.toPath(), Arrays.asList(line(100)), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+		try (ReviewStore store = ReviewStore.open(file.getPath())) {
+			assertEquals(101, store.size());
+			assertEquals("r100", store.get("r100").id);
+			assertEquals("r7", store.get("r7").id);
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import main.model.Review;
+import main.model.ReviewTable;
+
+public class ReviewTableUTest {
+
+	private static ReviewTable fill(boolean offHeap, String extraText) {
+		ReviewTable table = new ReviewTable(offHeap);
+		for (int i = 0; i < 3000; i++) {
+			table.add(new Review("r" + i, "review text number " + i, 1 + i % 5, "b" + (i % 10)));
+		}
+		table.add(new Review("last", extraText, 4, "b3"));
+		return table;
+	}
+
+	@Test
+	public void readsColumnsThroughView() {
+		for (boolean offHeap : new boolean[] { false, true }) {
+			ReviewTable table = fill(offHeap, "the last review");
+			assertEquals(3001, table.size());
+			assertEquals(10, table.getBusinessCount());
+
+			ReviewTable.View view = table.view();
+			for (int i = 0; i < 3000; i++) {
+				view.moveTo(i);
+				assertEquals("r" + i, view.getReviewId());
+				assertEquals("b" + (i % 10), view.getBusinessId());
+				assertEquals(1 + i % 5, view.getStars());
+				assertEquals("review text number " + i, view.text().toString());
+			}
+			view.moveTo(3000);
+			assertEquals(view.getBusinessCode(), table.view().moveTo(3).getBusinessCode());
+			assertEquals("the last review", view.getText());
+		}
+	}
+
+	@Test
+	public void decodesUnicodeText() {
+		ReviewTable table = fill(false, "caf\u00e9 cr\u00e8me br\u00fbl\u00e9e");
+		ReviewTable.View view = table.view().moveTo(3000);
+		assertEquals("caf\u00e9 cr\u00e8me br\u00fbl\u00e9e", view.text().toString());
+		assertEquals("review text number 7", table.getReview(7).text);
+	}
+
+	@Test
+	public void spreadsTextsOverSegments() {
+		ReviewTable table = new ReviewTable(false, 100);
+		for (int i = 0; i < 50; i++) {
+			table.add(new Review("r" + i, "segmented review text " + i, 3, "b"));
+		}
+		assertEquals(50, table.size());
+		ReviewTable.View view = table.view();
+		for (int i = 0; i < 50; i++) {
+			assertEquals("segmented review text " + i, view.moveTo(i).text().toString());
+		}
+		assertEquals(50 * "segmented review text ".length() + 10 + 2 * 40, table.getTextBytes());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTextLongerThanSegment() {
+		new ReviewTable(false, 16).add(new Review("r", "a review text over sixteen bytes", 3, "b"));
+	}
+
+}
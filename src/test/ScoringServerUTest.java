@@ -0,0 +1,184 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.NLPHelper;
+import main.app.ScoringServer;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizer;
+
+public class ScoringServerUTest {
+
+	/**
+	 * Largest request body the server accepts
+	 */
+	private static final int MAX_BODY_BYTES = 16 << 20;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private DoccatModel model;
+	private String posModelPath;
+	private ScoringServer server;
+
+	/**
+	 * Status and body of one response
+	 */
+	private static class Response {
+		final int status;
+		final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		model = new NLPHelper().trainDoccatModel(ModelFixtures.writeSentimentTrainingFile(folder.getRoot()).getPath());
+		posModelPath = ModelFixtures.writePOSModel(folder.getRoot()).getPath();
+	}
+
+	@After
+	public void tearDown() {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	private int start(NLPHelper nlpHelper, int queueCapacity, long requestTimeoutMillis) throws IOException {
+		server = new ScoringServer(nlpHelper, model, posModelPath, null, 100, 1, 1, 0, queueCapacity,
+				requestTimeoutMillis);
+		return server.start(new InetSocketAddress("127.0.0.1", 0), 4);
+	}
+
+	private static Response request(int port, String method, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/score")
+				.openConnection();
+		try {
+			connection.setRequestMethod(method);
+			if (body != null) {
+				connection.setDoOutput(true);
+				connection.setFixedLengthStreamingMode(body.length);
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(body);
+				}
+			}
+			int status = connection.getResponseCode();
+			try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					bytes.write(buffer, 0, read);
+				}
+				return new Response(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	private static Response post(int port, String body) throws IOException {
+		return request(port, "POST", body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void scoresEveryRequestShape() throws IOException {
+		int port = start(new NLPHelper(), 16, 10000);
+		String pizza = "{\"score\":5,\"topic\":\"pizza\"}";
+		String staff = "{\"score\":1,\"topic\":\"staff\"}";
+
+		Response response = post(port, "\"The pizza was delicious\"");
+		assertEquals(200, response.status);
+		assertEquals("{\"results\":[" + pizza + "]}", response.body);
+
+		response = post(port, "[\"The pizza was amazing\", \"The staff was rude\"]");
+		assertEquals(200, response.status);
+		assertEquals("{\"results\":[" + pizza + "," + staff + "]}", response.body);
+
+		response = post(port, "{\"id\":7,\"text\":\"The staff was awful\"}");
+		assertEquals(200, response.status);
+		assertEquals("{\"results\":[" + staff + "]}", response.body);
+
+		response = post(port, "{\"texts\":[\"The staff was terrible\",\"The pizza was great\"],\"extra\":[1]}");
+		assertEquals(200, response.status);
+		assertEquals("{\"results\":[" + staff + "," + pizza + "]}", response.body);
+	}
+
+	@Test
+	public void rejectsBadRequests() throws IOException {
+		int port = start(new NLPHelper(), 16, 10000);
+		assertEquals(405, request(port, "GET", null).status);
+
+		Response response = post(port, "{\"text\":");
+		assertEquals(400, response.status);
+		assertTrue(response.body, response.body.startsWith("{\"error\":\"Malformed JSON"));
+		assertEquals(400, post(port, "[\"fine\", 3]").status);
+		assertEquals(400, post(port, "{\"texts\":[]}").status);
+		assertEquals(400, post(port, "42").status);
+
+		byte[] body = new byte[MAX_BODY_BYTES + 1];
+		body[0] = '"';
+		assertEquals(413, request(port, "POST", body).status);
+	}
+
+	@Test
+	public void rejectsWhenFullAndTimesOut() throws Exception {
+		CountDownLatch scoring = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// Hold the only worker on its first text
+		NLPHelper blocking = new NLPHelper() {
+			@Override
+			public int scoreReview(DocumentCategorizer categorizer, String[] tokens) {
+				scoring.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.scoreReview(categorizer, tokens);
+			}
+		};
+		int port = start(blocking, 1, 500);
+
+		ExecutorService client = Executors.newSingleThreadExecutor();
+		try {
+			Future<Response> first = client.submit(() -> post(port, "\"The pizza was great\""));
+			scoring.await();
+
+			// One text fits in the queue, the second one is rejected
+			Response response = post(port, "[\"The food was great\", \"The food was rude\"]");
+			assertEquals(503, response.status);
+			assertEquals("{\"error\":\"Too many texts waiting to be scored\"}", response.body);
+
+			assertEquals(504, first.get().status);
+		} finally {
+			release.countDown();
+			client.shutdownNow();
+		}
+	}
+
+}
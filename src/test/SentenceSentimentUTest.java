@@ -0,0 +1,78 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.DocumentFrequencyTable;
+import main.algorithm.ModelRegistry;
+import main.algorithm.NLPHelper;
+import main.algorithm.SentimentAggregator;
+import main.algorithm.TfIdfTopicScorer;
+import main.model.AspectSentiment;
+import main.model.Review;
+import main.model.SentimentSummary;
+import opennlp.tools.doccat.DoccatModel;
+
+public class SentenceSentimentUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void rollsUpSentencesByReviewAspectAndBusiness() throws IOException {
+		NLPHelper nlpHelper = new NLPHelper(new ModelRegistry(folder.newFolder("registry")));
+		DoccatModel model = nlpHelper.trainDoccatModel(ModelFixtures.writeSentimentTrainingFile(folder.getRoot()).getPath());
+		String posModelFile = ModelFixtures.writePOSModel(folder.getRoot()).getPath();
+
+		// The review without sentences sits between the others, so a wrong offset
+		// would attribute sentences to the wrong review
+		List<Review> reviews = Arrays.asList(
+				new Review("praise-and-pan", "The food was delicious. The food was amazing. The service was terrible.",
+						5, "bistro"),
+				new Review("no-sentences", "", 3, "bistro"),
+				new Review("pan", "The service was awful.", 1, "bistro"),
+				new Review("other-business", "The food was great.", 5, "diner"));
+		SentimentAggregator businessAspects = new SentimentAggregator();
+		List<AspectSentiment> aspectSentiments = nlpHelper.runSentenceSentiment(model, reviews, posModelFile,
+				new TfIdfTopicScorer(new DocumentFrequencyTable()), 2, businessAspects);
+
+		Map<String, AspectSentiment> byReviewAndAspect = new HashMap<String, AspectSentiment>();
+		for (AspectSentiment aspectSentiment : aspectSentiments) {
+			byReviewAndAspect.put(aspectSentiment.getReviewId() + "/" + aspectSentiment.getAspect(), aspectSentiment);
+		}
+		assertEquals(4, aspectSentiments.size());
+		assertAspect(byReviewAndAspect.get("praise-and-pan/food"), "bistro", 2, 10);
+		assertAspect(byReviewAndAspect.get("praise-and-pan/service"), "bistro", 1, 1);
+		assertAspect(byReviewAndAspect.get("pan/service"), "bistro", 1, 1);
+		assertAspect(byReviewAndAspect.get("other-business/food"), "diner", 1, 5);
+		assertNull(byReviewAndAspect.get("no-sentences/food"));
+
+		assertSummary(businessAspects.getSummary("bistro", "food"), 2, 10);
+		assertSummary(businessAspects.getSummary("bistro", "service"), 2, 2);
+		assertSummary(businessAspects.getSummary("diner", "food"), 1, 5);
+		assertNull(businessAspects.getSummary("diner", "service"));
+	}
+
+	private static void assertAspect(AspectSentiment aspectSentiment, String businessId, int sentenceCount,
+			long scoreSum) {
+		assertEquals(businessId, aspectSentiment.getBusinessId());
+		assertEquals(sentenceCount, aspectSentiment.getSentenceCount());
+		assertEquals(scoreSum, aspectSentiment.getScoreSum());
+	}
+
+	private static void assertSummary(SentimentSummary summary, long sentenceCount, long scoreSum) {
+		assertEquals(sentenceCount, summary.getReviewCount());
+		assertEquals(scoreSum, summary.getScoreSum());
+	}
+
+}
@@ -0,0 +1,89 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import main.algorithm.SentimentAggregator;
+import main.model.Review;
+import main.model.ReviewResult;
+import main.model.SentimentSummary;
+
+public class SentimentAggregatorUTest {
+
+	@Test
+	public void recordsScoresPerBusinessAndTopic() {
+		SentimentAggregator aggregator = new SentimentAggregator();
+		aggregator.record("b1", "food", 5);
+		aggregator.record("b1", "food", 3);
+		aggregator.record(new ReviewResult(new Review("r3", "text", 1, "b1"), 1, "service"));
+		aggregator.record("b2", "food", 4);
+
+		assertEquals(2, aggregator.getBusinessCount());
+		assertSummary(aggregator.getSummary("b1", "food"), 2, 8);
+		assertSummary(aggregator.getSummary("b1", "service"), 1, 1);
+		assertSummary(aggregator.getSummary("b2", "food"), 1, 4);
+		assertNull(aggregator.getSummary("b2", "service"));
+		assertNull(aggregator.getSummary("b3", "food"));
+	}
+
+	@Test
+	public void recordsReviewsWithoutBusinessId() {
+		SentimentAggregator aggregator = new SentimentAggregator();
+		aggregator.record(null, "food", 2);
+		aggregator.record(new ReviewResult(new Review("r2", "text", 4, null), 4, "food"));
+
+		assertSummary(aggregator.getSummary(null, "food"), 2, 6);
+		assertSummary(aggregator.getSummary("", "food"), 2, 6);
+		assertEquals("", aggregator.getSummaries(0).get(0).getBusinessId());
+	}
+
+	@Test
+	public void mergesPartialAggregates() {
+		SentimentAggregator shard = new SentimentAggregator();
+		shard.record("b1", "food", 5);
+		shard.record("b1", "food", 4);
+		shard.record("b2", "staff", 1);
+
+		SentimentAggregator merged = new SentimentAggregator();
+		merged.record("b1", "food", 3);
+		for (SentimentSummary summary : shard.getSummaries(0)) {
+			merged.merge(summary);
+		}
+
+		assertSummary(merged.getSummary("b1", "food"), 3, 12);
+		assertSummary(merged.getSummary("b2", "staff"), 1, 1);
+	}
+
+	@Test
+	public void summarizesPairsWithEnoughReviews() {
+		SentimentAggregator aggregator = new SentimentAggregator();
+		aggregator.record("b2", "food", 5);
+		aggregator.record("b2", "food", 5);
+		aggregator.record("b1", "staff", 2);
+		aggregator.record("b1", "food", 4);
+		aggregator.record("b1", "food", 2);
+		aggregator.record("b1", "food", 3);
+		aggregator.record("b1", "service", 1);
+		aggregator.record("b1", "service", 1);
+
+		// By business, then by descending review count
+		List<SentimentSummary> summaries = aggregator.getSummaries(2);
+		assertEquals(3, summaries.size());
+		assertEquals("b1", summaries.get(0).getBusinessId());
+		assertEquals("food", summaries.get(0).getTopic());
+		assertEquals(3.0, summaries.get(0).getMeanScore(), 1e-9);
+		assertEquals("service", summaries.get(1).getTopic());
+		assertEquals("b2", summaries.get(2).getBusinessId());
+		assertEquals(4, aggregator.getSummaries(0).size());
+	}
+
+	private static void assertSummary(SentimentSummary summary, long reviewCount, long scoreSum) {
+		assertEquals(reviewCount, summary.getReviewCount());
+		assertEquals(scoreSum, summary.getScoreSum());
+	}
+
+}
@@ -0,0 +1,63 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.app.ShardCoordinator;
+import main.model.PartialResults;
+import main.model.SentimentSummary;
+
+public class ShardCoordinatorUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void mergesShardDirectories() throws IOException {
+		ShardCoordinator coordinator = new ShardCoordinator(2, folder.getRoot());
+		Map<String, Long> words = new HashMap<String, Long>();
+		words.put("food", 3L);
+		PartialResults.write(coordinator.getResultDirectory(0),
+				Arrays.asList(new SentimentSummary("b0", "food", 2, 9), new SentimentSummary("b2", "staff", 1, 4)),
+				words);
+		words.put("staff", 1L);
+		PartialResults.write(coordinator.getResultDirectory(1),
+				Arrays.asList(new SentimentSummary("b0", "food", 1, 1), new SentimentSummary("b1", "", 1, 5)), words);
+
+		coordinator.merge();
+		assertEquals(3, coordinator.getAggregator().getBusinessCount());
+		SentimentSummary food = coordinator.getAggregator().getSummary("b0", "food");
+		assertEquals(3, food.getReviewCount());
+		assertEquals(10, food.getScoreSum());
+		assertEquals(4, coordinator.getAggregator().getSummary("b2", "staff").getScoreSum());
+		assertEquals(Long.valueOf(6), coordinator.getWordFrequencies().get("food"));
+		assertEquals(Long.valueOf(1), coordinator.getWordFrequencies().get("staff"));
+	}
+
+	@Test
+	public void missingShardFailsMerge() throws IOException {
+		ShardCoordinator coordinator = new ShardCoordinator(3, folder.getRoot());
+		PartialResults.write(coordinator.getResultDirectory(0), Arrays.asList(new SentimentSummary("b0", "food", 1, 3)),
+				new HashMap<String, Long>());
+		PartialResults.write(coordinator.getResultDirectory(2), Arrays.asList(new SentimentSummary("b2", "food", 1, 3)),
+				new HashMap<String, Long>());
+		try {
+			coordinator.merge();
+			fail("Merged without the results of shard 1");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("No results for shard 1"));
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import main.algorithm.TextTokenizer;
+
+public class TextTokenizerUTest {
+
+	@Test
+	public void removesPunctuationWithoutSplittingWords() {
+		TextTokenizer tokenizer = TextTokenizer.get().reset("Great!!! food, don't miss... the cr\u00e8me br\u00fbl\u00e9e.");
+		assertArrayEquals(new String[] { "Great", "food", "dont", "miss", "the", "crme", "brle" },
+				tokenizer.tokens());
+		assertEquals("Great food dont miss the crme brle", tokenizer.cleanText());
+	}
+
+	@Test
+	public void removesDigits() {
+		TextTokenizer tokenizer = TextTokenizer.get().reset("5stars 10/10 would eat again 2day");
+		assertArrayEquals(new String[] { "stars", "would", "eat", "again", "day" }, tokenizer.tokens());
+		assertEquals(5, tokenizer.size());
+	}
+
+	@Test
+	public void splitsOnNewlinesAndTabs() {
+		TextTokenizer tokenizer = TextTokenizer.get().reset("good\n\nfood\r\nslow\tservice  ");
+		assertArrayEquals(new String[] { "good", "food", "slow", "service" }, tokenizer.tokens());
+		assertEquals("good food slow service", tokenizer.cleanText());
+		assertEquals(tokenizer.cleanText().length(), tokenizer.length());
+	}
+
+	@Test
+	public void handlesEmptyInput() {
+		TextTokenizer tokenizer = TextTokenizer.get().reset("");
+		assertEquals(0, tokenizer.size());
+		assertEquals(0, tokenizer.tokens().length);
+		assertEquals("", tokenizer.cleanText());
+
+		tokenizer.reset(" 123 !!! \n");
+		assertEquals(0, tokenizer.size());
+		assertEquals("", tokenizer.cleanText());
+	}
+
+	@Test
+	public void reusesBuffersAcrossResets() {
+		StringBuilder longText = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			longText.append("word").append(i).append(' ');
+		}
+		TextTokenizer tokenizer = TextTokenizer.get().reset(longText);
+		assertEquals(500, tokenizer.size());
+		assertEquals("word", tokenizer.token(499));
+
+		tokenizer.reset("short text");
+		assertArrayEquals(new String[] { "short", "text" }, tokenizer.tokens());
+		assertEquals("text".hashCode(), tokenizer.tokenHash(1));
+		assertEquals(6, tokenizer.start(1));
+		assertEquals(10, tokenizer.end(1));
+	}
+
+}
@@ -0,0 +1,94 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.DocumentFrequencyTable;
+import main.algorithm.TfIdfTopicScorer;
+
+public class TfIdfTopicScorerUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void countsEveryTermOncePerDocument() {
+		DocumentFrequencyTable table = new DocumentFrequencyTable();
+		table.addDocument(new String[] { "place", "pizza", "place" });
+		table.addDocument(new String[] { "place" });
+		assertEquals(2, table.getDocumentCount());
+		assertEquals(2, table.getDocumentFrequency("place"));
+		assertEquals(1, table.getDocumentFrequency("pizza"));
+		assertEquals(0, table.getDocumentFrequency("sushi"));
+		assertEquals(1.0, table.idf("place"), 1e-9);
+	}
+
+	@Test
+	public void prefersRareNounsOverGenericOnes() {
+		TfIdfTopicScorer scorer = new TfIdfTopicScorer(new DocumentFrequencyTable());
+		for (int i = 0; i < 20; i++) {
+			scorer.selectTopic(new String[] { "place", "time" });
+		}
+		assertEquals("pizza", scorer.selectTopic(new String[] { "place", "pizza", "time" }));
+		// Repetition in the review outweighs a slightly lower idf
+		assertEquals("place", scorer.selectTopic(new String[] { "place", "place", "place", "place", "pasta" }));
+		assertEquals("", scorer.selectTopic(new String[0]));
+	}
+
+	@Test
+	public void warmStartsFromSnapshot() throws IOException {
+		DocumentFrequencyTable table = new DocumentFrequencyTable();
+		for (int i = 0; i < 10; i++) {
+			table.addDocument(new String[] { "place", i % 2 == 0 ? "burger" : "fries" });
+		}
+		File snapshot = new File(folder.getRoot(), "df/snapshot.tsv");
+		table.save(snapshot);
+
+		DocumentFrequencyTable loaded = new DocumentFrequencyTable();
+		loaded.load(snapshot);
+		assertEquals(10, loaded.getDocumentCount());
+		assertEquals(10, loaded.getDocumentFrequency("place"));
+		assertEquals(5, loaded.getDocumentFrequency("burger"));
+		assertEquals(3, loaded.size());
+
+		// The first review of the new run is already scored against the old ones
+		assertEquals("burger", new TfIdfTopicScorer(loaded).selectTopic(new String[] { "place", "burger" }));
+	}
+
+	@Test
+	public void remembersCountedSources() throws IOException {
+		DocumentFrequencyTable table = new DocumentFrequencyTable();
+		assertTrue(table.addSource("abc123"));
+		assertFalse(table.addSource("abc123"));
+		table.addDocument(new String[] { "place" });
+		File snapshot = new File(folder.getRoot(), "snapshot.tsv");
+		table.save(snapshot);
+
+		DocumentFrequencyTable loaded = new DocumentFrequencyTable();
+		loaded.load(snapshot);
+		assertTrue(loaded.hasSource("abc123"));
+		assertFalse(loaded.hasSource("def456"));
+		assertEquals(1, loaded.getDocumentCount());
+		assertEquals(1, loaded.size());
+	}
+
+	@Test
+	public void readOnlyScorerDoesNotCountReviews() {
+		DocumentFrequencyTable table = new DocumentFrequencyTable();
+		table.addDocument(new String[] { "place", "pizza" });
+		table.addDocument(new String[] { "place" });
+		TfIdfTopicScorer scorer = new TfIdfTopicScorer(table, false);
+		assertEquals("pizza", scorer.selectTopic(new String[] { "place", "pizza" }));
+		assertEquals(2, table.getDocumentCount());
+		assertEquals(1, table.getDocumentFrequency("pizza"));
+	}
+
+}
@@ -0,0 +1,50 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import main.algorithm.IntIntCounter;
+import main.algorithm.SpaceSaving;
+import main.algorithm.TopK;
+
+public class TopKUTest {
+
+	@Test
+	public void keepsHighestCounts() {
+		IntIntCounter counter = new IntIntCounter();
+		for (int key = 0; key < 100; key++) {
+			counter.add(key, (key * 37) % 101);
+		}
+
+		TopK top = TopK.of(counter, 3);
+		assertArrayEquals(new int[] { 30, 60, 90 }, top.sortedKeys());
+		assertArrayEquals(new long[] { 100, 99, 98 }, top.sortedCounts());
+	}
+
+	@Test
+	public void spaceSavingFindsHeavyHitters() {
+		SpaceSaving heavyHitters = new SpaceSaving(50);
+		for (int i = 0; i < 10000; i++) {
+			heavyHitters.offer("word" + i);
+			if (i % 4 == 0) {
+				heavyHitters.offer("food");
+			}
+			if (i % 10 == 0) {
+				heavyHitters.offer("service");
+			}
+		}
+
+		List<SpaceSaving.Entry> top = heavyHitters.top(2);
+		assertEquals("food", top.get(0).getWord());
+		assertEquals("service", top.get(1).getWord());
+		assertTrue(top.get(0).getCount() - top.get(0).getError() <= 2500);
+		assertTrue(top.get(0).getCount() >= 2500);
+		assertEquals(13500, heavyHitters.getTotal());
+	}
+
+}
@@ -0,0 +1,112 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import main.algorithm.NLPHelper;
+import main.algorithm.SpaceSaving;
+import main.algorithm.TopicLexicon;
+
+public class TopicLexiconUTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String[] tokens(String text) {
+		return text.split(" ");
+	}
+
+	@Test
+	public void matchesWordsAndPhrases() {
+		Map<String, List<String>> aspects = new LinkedHashMap<String, List<String>>();
+		aspects.put("service", Arrays.asList("service", "wait time", "long wait time"));
+		aspects.put("time", Arrays.asList("time"));
+		aspects.put("drinks", Arrays.asList("happy hour", "beer"));
+		TopicLexicon lexicon = new TopicLexicon(aspects);
+
+		assertEquals("drinks", lexicon.match(tokens("great Happy Hour specials")));
+		// The phrase ends together with its suffix and wins as the longer term
+		assertEquals("service", lexicon.match(tokens("the long wait time was bad")));
+		assertEquals("time", lexicon.match(tokens("no time to wait")));
+		// A failed phrase falls back to the term starting inside it
+		assertEquals("drinks", lexicon.match(tokens("happy beer")));
+		assertNull(lexicon.match(tokens("happy wait")));
+		assertNull(lexicon.match(new String[0]));
+	}
+
+	@Test
+	public void looksUpTokensIgnoringCase() {
+		Map<String, List<String>> aspects = new LinkedHashMap<String, List<String>>();
+		aspects.put("food", Arrays.asList("Pizza", "pasta", "dim sum"));
+		TopicLexicon lexicon = new TopicLexicon(aspects);
+
+		int pizza = lexicon.tokenId("pizza");
+		assertTrue(pizza != TopicLexicon.NOT_FOUND);
+		assertEquals(pizza, lexicon.tokenId("PIZZA"));
+		assertEquals(pizza, lexicon.tokenId("piZza"));
+		assertEquals(lexicon.tokenId("sum"), lexicon.tokenId("Sum"));
+		assertEquals(TopicLexicon.NOT_FOUND, lexicon.tokenId("pizzas"));
+		assertEquals(TopicLexicon.NOT_FOUND, lexicon.tokenId(""));
+		assertArrayEquals(new int[] { pizza, TopicLexicon.NOT_FOUND },
+				lexicon.translate(new String[] { "Pizza", "salad" }));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsTermOfTwoAspects() {
+		Map<String, List<String>> aspects = new LinkedHashMap<String, List<String>>();
+		aspects.put("food", Arrays.asList("menu"));
+		aspects.put("drinks", Arrays.asList("Menu"));
+		new TopicLexicon(aspects);
+	}
+
+	@Test
+	public void loadsLexiconFile() throws IOException {
+		File file = folder.newFile("lexicon.txt");
+		Files.write(file.toPath(),
+				Arrays.asList("# aspects", "", "parking: parking, parking lot", "price: price, prices"),
+				StandardCharsets.UTF_8);
+		TopicLexicon lexicon = TopicLexicon.load(file);
+		assertEquals(Arrays.asList("parking", "price"), lexicon.getAspects());
+		assertEquals("price", lexicon.match(tokens("high prices")));
+	}
+
+	@Test
+	public void lexiconWinsOverFrequentNouns() {
+		NLPHelper helper = new NLPHelper();
+		SpaceSaving frequencies = new SpaceSaving(10);
+		assertEquals("place", helper.selectTopic(tokens("nice place"), tokens("place"), frequencies));
+		assertEquals("service",
+				helper.selectTopic(tokens("the wait time at this place"), tokens("place"), frequencies));
+		assertEquals("staff", helper.selectTopic(tokens("place waiter"), frequencies));
+	}
+
+	@Test
+	public void nounsFrequentLaterBecomeTopics() {
+		NLPHelper helper = new NLPHelper();
+		SpaceSaving frequencies = new SpaceSaving(2);
+		assertEquals("burger", helper.selectTopic(tokens("burger"), frequencies));
+		assertEquals("salad", helper.selectTopic(tokens("salad"), frequencies));
+		// Only two nouns are monitored, pizza evicts the rarer ones once it is frequent
+		for (int i = 0; i < 5; i++) {
+			helper.selectTopic(tokens("pizza"), frequencies);
+		}
+		assertEquals("pizza", helper.selectTopic(tokens("burger pizza"), frequencies));
+		assertEquals(0, frequencies.count("salad"));
+	}
+
+}
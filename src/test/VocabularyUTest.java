@@ -0,0 +1,48 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import main.algorithm.IntIntCounter;
+import main.algorithm.TextTokenizer;
+import main.algorithm.Vocabulary;
+
+public class VocabularyUTest {
+
+	@Test
+	public void internsTokensToDenseIds() {
+		Vocabulary vocabulary = new Vocabulary();
+		TextTokenizer tokenizer = new TextTokenizer().reset("Food, food!  service\nfood");
+
+		assertEquals(4, tokenizer.size());
+		assertEquals("Food food service food", tokenizer.cleanText());
+		assertEquals(0, vocabulary.intern(tokenizer, 0));
+		assertEquals(1, vocabulary.intern(tokenizer, 1));
+		assertEquals(2, vocabulary.intern(tokenizer, 2));
+		assertEquals(1, vocabulary.intern(tokenizer, 3));
+		assertEquals(1, vocabulary.lookup("food"));
+		assertEquals(Vocabulary.NOT_FOUND, vocabulary.lookup("staff"));
+		assertEquals("service", vocabulary.term(2));
+	}
+
+	@Test
+	public void growsPastInitialCapacity() {
+		Vocabulary vocabulary = new Vocabulary();
+		IntIntCounter counter = new IntIntCounter();
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 5000; i++) {
+				counter.increment(vocabulary.intern("term" + i));
+			}
+		}
+
+		assertEquals(5000, vocabulary.size());
+		assertEquals(5000, counter.size());
+		assertEquals(3, counter.get(vocabulary.lookup("term4321")));
+		assertEquals(0, counter.get(7000));
+		assertFalse(counter.containsKey(7000));
+		assertEquals(Integer.valueOf(3), counter.toMap(vocabulary).get("term17"));
+	}
+
+}